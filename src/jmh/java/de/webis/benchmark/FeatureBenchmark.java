@@ -0,0 +1,144 @@
+package de.webis.benchmark;
+
+import java.util.List;
+import java.util.Set;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.unit.UnitLevel;
+import de.webis.listenability.features.unit.features.Feature;
+
+/**
+ * Benchmarks {@link Feature#compute(Unit)} of each Ortmann19 feature on all
+ * units of each level it allows.
+ * <p>
+ * Each invocation computes the feature for all units of the level in the CAS.
+ * The scores of the previous invocation are removed beforehand, so that the
+ * score arrays do not grow over the iterations.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+@State(Scope.Thread)
+public class FeatureBenchmark {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The package of the Ortmann19 features.
+   */
+  public static final String FEATURE_PACKAGE =
+      "de.webis.listenability.features.unit.features.ortmann19.";
+
+  // -------------------------------------------------------------------------
+  // PARAMETERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The number of tokens of the CAS.
+   */
+  @Param({"1000", "10000", "100000"})
+  public int tokens;
+
+  /**
+   * The feature and the level of the units, separated by a colon.
+   */
+  @Param({
+    "AnswerParticles:DOCUMENT", "AnswerParticles:PARAGRAPH",
+    "AnswerParticles:SENTENCE",
+    "CoordInit:DOCUMENT", "CoordInit:PARAGRAPH",
+    "DemonstrativePronouns:DOCUMENT", "DemonstrativePronouns:PARAGRAPH",
+    "DemonstrativePronouns:SENTENCE",
+    "DemonstrativePronounsShort:DOCUMENT",
+    "DemonstrativePronounsShort:PARAGRAPH",
+    "DemonstrativePronounsShort:SENTENCE",
+    "Exclam:DOCUMENT", "Exclam:PARAGRAPH",
+    "Interjections:DOCUMENT", "Interjections:PARAGRAPH",
+    "Interjections:SENTENCE",
+    "LexDens:DOCUMENT", "LexDens:PARAGRAPH", "LexDens:SENTENCE",
+    "MeanSentenceLength:DOCUMENT", "MeanSentenceLength:PARAGRAPH",
+    "MeanWordLength:DOCUMENT", "MeanWordLength:PARAGRAPH",
+    "MeanWordLength:SENTENCE",
+    "MedianSentenceLength:DOCUMENT", "MedianSentenceLength:PARAGRAPH",
+    "MedianWordLength:DOCUMENT", "MedianWordLength:PARAGRAPH",
+    "MedianWordLength:SENTENCE",
+    "NomCmplx:DOCUMENT", "NomCmplx:PARAGRAPH", "NomCmplx:SENTENCE",
+    "PronounFirst:DOCUMENT", "PronounFirst:PARAGRAPH",
+    "PronounFirst:SENTENCE",
+    "PronounSubject:DOCUMENT", "PronounSubject:PARAGRAPH",
+    "PronounSubject:SENTENCE",
+    "Question:DOCUMENT", "Question:PARAGRAPH",
+    "Subord:DOCUMENT", "Subord:PARAGRAPH", "Subord:SENTENCE",
+    "VerbsToNouns:DOCUMENT", "VerbsToNouns:PARAGRAPH",
+    "VerbsToNouns:SENTENCE"
+  })
+  public String featureAtLevel;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private JCas jCas;
+
+  private Feature feature;
+
+  private List<Unit> units;
+
+  // -------------------------------------------------------------------------
+  // SETUP
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates the CAS and the feature.
+   * @throws UIMAException If the CAS could not be created
+   * @throws ReflectiveOperationException If the feature could not be created
+   * @throws IllegalArgumentException If the feature does not allow the level
+   */
+  @Setup(Level.Trial)
+  public void setUp()
+  throws UIMAException, ReflectiveOperationException {
+    final String[] parts = this.featureAtLevel.split(":");
+    final UnitLevel level = UnitLevel.valueOf(parts[1]);
+    this.feature = (Feature) Class.forName(FEATURE_PACKAGE + parts[0])
+        .getDeclaredConstructor().newInstance();
+    if (!this.feature.check(Set.of(level))) {
+      throw new IllegalArgumentException(
+          "Feature " + parts[0] + " can not be computed for " + level);
+    }
+    this.jCas = SyntheticCas.create(this.tokens);
+    this.units = SyntheticCas.getUnits(this.jCas, level);
+  }
+
+  /**
+   * Removes the scores of the previous invocation.
+   */
+  @Setup(Level.Invocation)
+  public void clearScores() {
+    SyntheticCas.clearScores(this.jCas);
+  }
+
+  // -------------------------------------------------------------------------
+  // BENCHMARKS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Computes the feature for all units.
+   */
+  @Benchmark
+  public void compute() {
+    for (final Unit unit : this.units) {
+      this.feature.compute(unit);
+    }
+  }
+
+}
@@ -0,0 +1,137 @@
+package de.webis.benchmark;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.webis.listenability.features.unit.Kuperman12AnalysisEngine;
+
+/**
+ * Benchmarks {@link Kuperman12AnalysisEngine#accept(JCas)}.
+ * <p>
+ * The engine uses a synthetic lexicon with all columns of the default mapping,
+ * which contains most, but not all words of the synthetic CAS.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+@State(Scope.Thread)
+public class Kuperman12Benchmark {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The columns of the synthetic lexicon.
+   */
+  public static final List<String> COLUMNS = List.of(
+      "Word", "Length", "Freq_HAL", "Ortho_N", "Phono_N", "Phono_N_H", "OG_N",
+      "OG_N_H", "Freq_N", "Freq_N_P", "Freq_N_PH", "Freq_N_OG", "Freq_N_OGH",
+      "OLD", "PLD", "BG_Mean", "BG_Sum", "NSyll", "NMorph", "NPhon");
+
+  /**
+   * The words of the synthetic lexicon.
+   */
+  public static final List<String> WORDS = List.of(
+      "the", "old", "editor", "of", "wrote", "that", "we", "should", "read",
+      "it", "but", "this", "is", "very", "good", "news", "for", "you", "well",
+      "do", "know", "those");
+
+  // -------------------------------------------------------------------------
+  // PARAMETERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The number of tokens of the CAS.
+   */
+  @Param({"1000", "10000", "100000"})
+  public int tokens;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private Path lexicon;
+
+  private Kuperman12AnalysisEngine engine;
+
+  private JCas jCas;
+
+  // -------------------------------------------------------------------------
+  // SETUP
+  // -------------------------------------------------------------------------
+
+  /**
+   * Writes the lexicon and creates the engine and the CAS.
+   * @throws IOException If the lexicon could not be written
+   * @throws UIMAException If the CAS could not be created
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, UIMAException {
+    this.lexicon = Files.createTempFile("kuperman12-benchmark", ".csv");
+    try (final Writer writer =
+        Files.newBufferedWriter(this.lexicon, StandardCharsets.UTF_8)) {
+      writer.write(String.join(",", COLUMNS));
+      writer.write('\n');
+      for (int w = 0; w < WORDS.size(); ++w) {
+        writer.write(WORDS.get(w));
+        for (int c = 1; c < COLUMNS.size(); ++c) {
+          writer.write(',');
+          writer.write(String.valueOf(w * COLUMNS.size() + c));
+        }
+        writer.write('\n');
+      }
+    }
+
+    final Properties properties = new Properties();
+    properties.setProperty("lexicon", this.lexicon.toString());
+    this.engine = new Kuperman12AnalysisEngine();
+    this.engine.configure(properties);
+    this.jCas = SyntheticCas.create(this.tokens);
+  }
+
+  /**
+   * Removes the scores of the previous invocation.
+   */
+  @Setup(Level.Invocation)
+  public void clearScores() {
+    SyntheticCas.clearScores(this.jCas);
+  }
+
+  /**
+   * Deletes the lexicon.
+   * @throws IOException If the lexicon could not be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(this.lexicon);
+  }
+
+  // -------------------------------------------------------------------------
+  // BENCHMARKS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds the lexicon scores to all tokens.
+   */
+  @Benchmark
+  public void accept() {
+    this.engine.accept(this.jCas);
+  }
+
+}
@@ -0,0 +1,175 @@
+package de.webis.benchmark;
+
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.unit.UnitLevel;
+import de.webis.writing.ScoreBatch;
+import de.webis.writing.Scores;
+
+/**
+ * Benchmarks the functions of {@link Scores} on all tokens of a CAS.
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class ScoresBenchmark {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The names of the scores added to each token.
+   */
+  public static final String[] SCORE_NAMES = {"first", "second", "third"};
+
+  // -------------------------------------------------------------------------
+  // STATES
+  // -------------------------------------------------------------------------
+
+  /**
+   * A CAS without scores, which are removed before each invocation.
+   */
+  @State(Scope.Thread)
+  public static class Unscored {
+
+    /**
+     * The number of tokens of the CAS.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int tokens;
+
+    private JCas jCas;
+
+    private List<Unit> units;
+
+    /**
+     * Creates the CAS.
+     * @throws UIMAException If the CAS could not be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws UIMAException {
+      this.jCas = SyntheticCas.create(this.tokens);
+      this.units = SyntheticCas.getUnits(this.jCas, UnitLevel.TOKEN);
+    }
+
+    /**
+     * Removes the scores of the previous invocation.
+     */
+    @Setup(Level.Invocation)
+    public void clearScores() {
+      SyntheticCas.clearScores(this.jCas);
+    }
+
+  }
+
+  /**
+   * A CAS with {@link #SCORE_NAMES} scores for each token.
+   */
+  @State(Scope.Thread)
+  public static class Scored {
+
+    /**
+     * The number of tokens of the CAS.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int tokens;
+
+    private JCas jCas;
+
+    private List<Unit> units;
+
+    /**
+     * Creates the CAS and adds the scores.
+     * @throws UIMAException If the CAS could not be created
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws UIMAException {
+      this.jCas = SyntheticCas.create(this.tokens);
+      this.units = SyntheticCas.getUnits(this.jCas, UnitLevel.TOKEN);
+      for (final Unit unit : this.units) {
+        for (int s = 0; s < SCORE_NAMES.length; ++s) {
+          Scores.add(unit, SCORE_NAMES[s], s);
+        }
+      }
+    }
+
+  }
+
+  // -------------------------------------------------------------------------
+  // BENCHMARKS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds {@link #SCORE_NAMES} scores to each token, one at a time.
+   * @param state The CAS
+   */
+  @Benchmark
+  public void add(final Unscored state) {
+    for (final Unit unit : state.units) {
+      for (int s = 0; s < SCORE_NAMES.length; ++s) {
+        Scores.add(unit, SCORE_NAMES[s], s);
+      }
+    }
+  }
+
+  /**
+   * Adds {@link #SCORE_NAMES} scores to each token in a batch.
+   * @param state The CAS
+   */
+  @Benchmark
+  public void addBatch(final Unscored state) {
+    for (final Unit unit : state.units) {
+      final ScoreBatch batch = Scores.batch(unit);
+      for (int s = 0; s < SCORE_NAMES.length; ++s) {
+        batch.add(SCORE_NAMES[s], s);
+      }
+      batch.commit();
+    }
+  }
+
+  /**
+   * Gets the existing scored unit of each token.
+   * @param state The CAS
+   * @param blackhole Consumes the scored units
+   */
+  @Benchmark
+  public void getUnitFor(final Scored state, final Blackhole blackhole) {
+    for (final Unit unit : state.units) {
+      blackhole.consume(Scores.getUnitFor(unit));
+    }
+  }
+
+  /**
+   * Creates a new scored unit for each token.
+   * @param state The CAS
+   * @param blackhole Consumes the scored units
+   */
+  @Benchmark
+  public void getUnitForNew(final Unscored state, final Blackhole blackhole) {
+    for (final Unit unit : state.units) {
+      blackhole.consume(Scores.getUnitFor(unit));
+    }
+  }
+
+  /**
+   * Writes all scored units to JSON.
+   * @param state The CAS
+   * @return The JSON
+   */
+  @Benchmark
+  public String toJson(final Scored state) {
+    return Scores.toJson(state.jCas);
+  }
+
+}
@@ -0,0 +1,217 @@
+package de.webis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+
+import de.aitools.commons.uima.core.Document;
+import de.aitools.commons.uima.core.Paragraph;
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.unit.UnitLevel;
+import de.webis.writing.types.Explanation;
+import de.webis.writing.types.Score;
+import de.webis.writing.types.ScoredUnit;
+import de.webis.writing.types.Suggestion;
+
+/**
+ * Creates pre-annotated CASes for the benchmarks.
+ * <p>
+ * The CASes contain a document, paragraphs, sentences, and tokens with
+ * part-of-speech tags, lemmas, and dependencies, as the tokenizer and parser
+ * would create them. The text repeats a few sentence templates, so the
+ * benchmark results do not depend on a corpus.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class SyntheticCas {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The name of the type system descriptor that is added to the automatically
+   * detected types.
+   */
+  public static final String TYPE_SYSTEM =
+      "de.webis.listenability.types.ListenabilityTypeSystem";
+
+  /**
+   * The number of sentences per paragraph.
+   */
+  public static final int SENTENCES_PER_PARAGRAPH = 8;
+
+  /**
+   * The sentence templates, one token per row: text, part-of-speech tag,
+   * lemma, dependency label, and index of the parent token in the sentence
+   * (empty for the root).
+   */
+  private static final String[][][] TEMPLATES = {
+    {
+      {"The", "DT", "the", "det", "2"},
+      {"old", "JJ", "old", "amod", "2"},
+      {"editor", "NN", "editor", "nsubj", "6"},
+      {"of", "IN", "of", "case", "5"},
+      {"the", "DT", "the", "det", "5"},
+      {"paper", "NN", "paper", "nmod", "2"},
+      {"wrote", "VBD", "write", "ROOT", ""},
+      {"that", "IN", "that", "mark", "10"},
+      {"we", "PRP", "we", "nsubj", "10"},
+      {"should", "MD", "should", "aux", "10"},
+      {"read", "VB", "read", "ccomp", "6"},
+      {"it", "PRP", "it", "dobj", "10"},
+      {".", ".", ".", "punct", "6"}
+    },
+    {
+      {"But", "CC", "but", "cc", "2"},
+      {"this", "DT", "this", "nsubj", "2"},
+      {"is", "VBZ", "be", "ROOT", ""},
+      {"very", "RB", "very", "advmod", "4"},
+      {"good", "JJ", "good", "amod", "5"},
+      {"news", "NN", "news", "attr", "2"},
+      {"for", "IN", "for", "case", "7"},
+      {"you", "PRP", "you", "nmod", "5"},
+      {"!", ".", "!", "punct", "2"}
+    },
+    {
+      {"Well", "UH", "well", "intj", "3"},
+      {",", ",", ",", "punct", "3"},
+      {"do", "VBP", "do", "aux", "3"},
+      {"you", "PRP", "you", "nsubj", "3"},
+      {"know", "VB", "know", "ROOT", ""},
+      {"those", "DT", "those", "det", "6"},
+      {"people", "NNS", "people", "dobj", "4"},
+      {"?", ".", "?", "punct", "4"}
+    }
+  };
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private SyntheticCas() { }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates a CAS with the given number of tokens.
+   * @param numTokens The number of tokens
+   * @return The CAS
+   * @throws UIMAException If the CAS could not be created
+   */
+  public static JCas create(final int numTokens) throws UIMAException {
+    final TypeSystemDescription typeSystem =
+        CasCreationUtils.mergeTypeSystems(List.of(
+            TypeSystemDescriptionFactory.createTypeSystemDescription(),
+            TypeSystemDescriptionFactory.createTypeSystemDescription(
+                TYPE_SYSTEM)));
+    final JCas jCas = JCasFactory.createJCas(typeSystem);
+
+    final StringBuilder text = new StringBuilder();
+    final List<int[]> sentenceSpans = new ArrayList<>();
+    final List<int[]> paragraphSpans = new ArrayList<>();
+    final List<String[]> tokenRows = new ArrayList<>();
+    final List<int[]> tokenSpans = new ArrayList<>();
+    final List<Integer> tokenSentenceFirstTokens = new ArrayList<>();
+    int paragraphBegin = 0;
+    for (int s = 0; tokenRows.size() < numTokens; ++s) {
+      if (s > 0 && s % SENTENCES_PER_PARAGRAPH == 0) {
+        paragraphSpans.add(new int[] {paragraphBegin, text.length()});
+        text.append("\n\n");
+        paragraphBegin = text.length();
+      } else if (s > 0) {
+        text.append(' ');
+      }
+
+      final String[][] template = TEMPLATES[s % TEMPLATES.length];
+      final int length =
+          Math.min(template.length, numTokens - tokenRows.size());
+      final int sentenceBegin = text.length();
+      final int sentenceFirstToken = tokenRows.size();
+      for (int t = 0; t < length; ++t) {
+        if (t > 0) { text.append(' '); }
+        final int begin = text.length();
+        text.append(template[t][0]);
+        tokenRows.add(template[t]);
+        tokenSpans.add(new int[] {begin, text.length()});
+        tokenSentenceFirstTokens.add(sentenceFirstToken);
+      }
+      sentenceSpans.add(new int[] {sentenceBegin, text.length()});
+    }
+    paragraphSpans.add(new int[] {paragraphBegin, text.length()});
+
+    jCas.setDocumentText(text.toString());
+    new Document(jCas, 0, text.length()).addToIndexes();
+    for (final int[] span : paragraphSpans) {
+      new Paragraph(jCas, span[0], span[1]).addToIndexes();
+    }
+    for (final int[] span : sentenceSpans) {
+      new Sentence(jCas, span[0], span[1]).addToIndexes();
+    }
+    final Token[] tokens = new Token[tokenRows.size()];
+    for (int t = 0; t < tokens.length; ++t) {
+      tokens[t] = new Token(jCas, tokenSpans.get(t)[0], tokenSpans.get(t)[1]);
+    }
+    for (int t = 0; t < tokens.length; ++t) {
+      final String[] row = tokenRows.get(t);
+      tokens[t].setPos(row[1]);
+      tokens[t].setLemma(row[2]);
+      tokens[t].setDepLabel(row[3]);
+      if (!row[4].isEmpty()) {
+        final int parent =
+            tokenSentenceFirstTokens.get(t) + Integer.parseInt(row[4]);
+        if (parent < tokens.length) { // the last sentence may be cut
+          tokens[t].setParent(tokens[parent]);
+        }
+      }
+      tokens[t].addToIndexes();
+    }
+    return jCas;
+  }
+
+  /**
+   * Gets the units of a level in a CAS.
+   * @param jCas The CAS
+   * @param level The level of the units
+   * @return The units in index order
+   */
+  public static List<Unit> getUnits(final JCas jCas, final UnitLevel level) {
+    switch (level) {
+    case DOCUMENT:
+      return new ArrayList<>(JCasUtil.select(jCas, Document.class));
+    case PARAGRAPH:
+      return new ArrayList<>(JCasUtil.select(jCas, Paragraph.class));
+    case SENTENCE:
+      return new ArrayList<>(JCasUtil.select(jCas, Sentence.class));
+    case TOKEN:
+      return new ArrayList<>(JCasUtil.select(jCas, Token.class));
+    default:
+      throw new IllegalArgumentException("Unknown level: " + level);
+    }
+  }
+
+  /**
+   * Removes all scored units, scores, suggestions, and explanations from a
+   * CAS, so that it can be scored again.
+   * @param jCas The CAS
+   */
+  public static void clearScores(final JCas jCas) {
+    jCas.removeAllIncludingSubtypes(ScoredUnit.type);
+    jCas.removeAllIncludingSubtypes(Score.type);
+    jCas.removeAllIncludingSubtypes(Suggestion.type);
+    jCas.removeAllIncludingSubtypes(Explanation.type);
+  }
+
+}
@@ -0,0 +1,201 @@
+package de.webis.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+import de.aitools.ie.perceptron.PerceptronTagger;
+import de.aitools.ie.perceptron.PerceptronTokenizer;
+import de.aitools.ie.stanford.Tokenizer;
+
+/**
+ * Benchmarks the {@link PerceptronTokenizer} against the CoreNLP
+ * {@link Tokenizer}, both with part-of-speech tags and lemmas.
+ * <p>
+ * The accuracy of the perceptron tokenizer, as the share of CoreNLP tokens
+ * that it tokenizes and tags the same, is printed once per trial. If no
+ * {@link #model} is given, a tagger is trained on the CoreNLP tags of the
+ * benchmark text itself, so that the printed accuracy is only an upper bound;
+ * for the accuracy on held-out text use
+ * {@link PerceptronTagger#main(String[])} with <code>evaluate</code>.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+@State(Scope.Thread)
+public class TaggerBenchmark {
+
+  // -------------------------------------------------------------------------
+  // PARAMETERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The number of tokens of the text.
+   */
+  @Param({"1000", "10000", "100000"})
+  public int tokens;
+
+  /**
+   * The model file of the perceptron tagger, or empty to train one.
+   */
+  @Param({""})
+  public String model;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private String text;
+
+  private JCas jCas;
+
+  private Tokenizer stanford;
+
+  private PerceptronTokenizer perceptron;
+
+  private Path trainedModel;
+
+  // -------------------------------------------------------------------------
+  // SETUP
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates both tokenizers and prints the accuracy of the perceptron one.
+   * @throws IOException If the model could not be read or written
+   * @throws UIMAException If the CAS could not be created
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException, UIMAException {
+    this.jCas = SyntheticCas.create(this.tokens);
+    this.text = this.jCas.getDocumentText();
+
+    this.stanford = new Tokenizer();
+    this.stanford.configure(new Properties());
+    this.resetCas();
+    this.stanford.accept(this.jCas);
+    final Map<String, String> stanfordTags = this.getTags();
+
+    this.trainedModel = null;
+    Path modelPath = Paths.get(this.model);
+    if (this.model.isEmpty()) {
+      final List<PerceptronTagger.TaggedSentence> sentences =
+          new ArrayList<PerceptronTagger.TaggedSentence>();
+      for (final Sentence sentence
+          : JCasUtil.select(this.jCas, Sentence.class)) {
+        final List<Token> sentenceTokens =
+            JCasUtil.selectCovered(Token.class, sentence);
+        final String[] words = new String[sentenceTokens.size()];
+        final String[] tags = new String[sentenceTokens.size()];
+        for (int t = 0; t < words.length; ++t) {
+          words[t] = sentenceTokens.get(t).getCoveredText();
+          tags[t] = sentenceTokens.get(t).getPos();
+        }
+        sentences.add(new PerceptronTagger.TaggedSentence(words, tags));
+      }
+      this.trainedModel = Files.createTempFile("tagger-benchmark", ".model");
+      PerceptronTagger.train(sentences, PerceptronTagger.DEFAULT_BITS,
+          PerceptronTagger.DEFAULT_ITERATIONS).save(this.trainedModel);
+      modelPath = this.trainedModel;
+    }
+
+    this.perceptron = new PerceptronTokenizer();
+    final Properties properties = new Properties();
+    properties.setProperty(
+        PerceptronTokenizer.PROPERTY_MODEL, modelPath.toString());
+    this.perceptron.configure(properties);
+    this.resetCas();
+    this.perceptron.accept(this.jCas);
+    final Map<String, String> perceptronTags = this.getTags();
+
+    int sameTokens = 0;
+    int sameTags = 0;
+    for (final Map.Entry<String, String> entry : stanfordTags.entrySet()) {
+      final String tag = perceptronTags.get(entry.getKey());
+      if (tag != null) {
+        ++sameTokens;
+        if (tag.equals(entry.getValue())) { ++sameTags; }
+      }
+    }
+    System.out.println("Perceptron tokenizer on " + stanfordTags.size()
+        + " CoreNLP tokens: " + (double) sameTokens / stanfordTags.size()
+        + " same tokens, " + (double) sameTags / stanfordTags.size()
+        + " same tokens and tags");
+  }
+
+  /**
+   * Removes the annotations of the previous invocation.
+   */
+  @Setup(Level.Invocation)
+  public void resetCas() {
+    this.jCas.reset();
+    this.jCas.setDocumentText(this.text);
+  }
+
+  /**
+   * Releases the CoreNLP pipeline and deletes the trained model.
+   * @throws IOException If the model could not be deleted
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    this.stanford.close();
+    if (this.trainedModel != null) {
+      Files.deleteIfExists(this.trainedModel);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // BENCHMARKS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Annotates the text with CoreNLP.
+   */
+  @Benchmark
+  public void stanford() {
+    this.stanford.accept(this.jCas);
+  }
+
+  /**
+   * Annotates the text with the rule-based tokenizer and perceptron tagger.
+   */
+  @Benchmark
+  public void perceptron() {
+    this.perceptron.accept(this.jCas);
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the tags of the tokens in the CAS.
+   * @return The tag by the span of each token
+   */
+  private Map<String, String> getTags() {
+    final Map<String, String> tags = new HashMap<String, String>();
+    for (final Token token : JCasUtil.select(this.jCas, Token.class)) {
+      tags.put(token.getBegin() + ":" + token.getEnd(), token.getPos());
+    }
+    return tags;
+  }
+
+}
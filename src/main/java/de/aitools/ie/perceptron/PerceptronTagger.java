@@ -0,0 +1,845 @@
+package de.aitools.ie.perceptron;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.logging.Logger;
+
+/**
+ * Greedy averaged-perceptron part-of-speech tagger with hashed features.
+ * <p>
+ * Each token is tagged from left to right by the tag with the highest sum of
+ * the weights of its features: the word, its prefix and suffixes, its shape,
+ * the surrounding words, and the two tags before it. Features are not stored
+ * as strings, but hashed from the characters of the text directly into one of
+ * 2<sup>bits</sup> rows of weights, which takes no allocation per token.
+ * Frequent words that nearly always have the same tag are tagged by a
+ * dictionary instead.
+ * </p><p>
+ * A tagger is trained ({@link #train(List, int, int)}) on sentences tagged by
+ * CoreNLP, so that it learns the tags of the <code>pos</code> annotator that
+ * the {@link de.aitools.ie.stanford.Tokenizer} uses. Such sentences are
+ * created by CoreNLP's tagger with the same model, one sentence per line in
+ * <code>word_TAG</code> format:
+ * </p>
+ * <pre>
+ * java -cp stanford-corenlp-3.9.2.jar:stanford-corenlp-3.9.2-models.jar \
+ *   edu.stanford.nlp.tagger.maxent.MaxentTagger \
+ *   -model edu/stanford/nlp/models/pos-tagger/english-left3words/english-left3words-distsim.tagger \
+ *   -textFile corpus.txt -outputFormat slashTags -tagSeparator _ \
+ *   > corpus.tagged
+ * </pre>
+ * <p>
+ * Train and evaluate a tagger using {@link #main(String[])}.
+ * </p><p>
+ * The model file contains, in this order and in big endian byte order:
+ * </p>
+ * <pre>
+ * int MAGIC, int bits, int numTags, UTF tag * numTags,
+ * int numWords, (long wordHash, byte tag) * numWords,
+ * int numRows, (int row, float weight * numTags) * numRows
+ * </pre>
+ * <p>
+ * where only rows with a non-zero weight are stored.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class PerceptronTagger {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(PerceptronTagger.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The first integer of each model file ("PCT1").
+   */
+  public static final int MAGIC = 0x50435431;
+
+  /**
+   * The default number of bits of the feature hashes.
+   */
+  public static final int DEFAULT_BITS = 18;
+
+  /**
+   * The default number of passes over the training sentences.
+   */
+  public static final int DEFAULT_ITERATIONS = 5;
+
+  /**
+   * The minimum number of occurrences of a word in the training sentences for
+   * it to be tagged by the dictionary.
+   */
+  public static final int DICTIONARY_MIN_FREQUENCY = 20;
+
+  /**
+   * The minimum share of the most frequent tag of a word in the training
+   * sentences for it to be tagged by the dictionary.
+   */
+  public static final double DICTIONARY_MIN_SHARE = 0.97;
+
+  /**
+   * The number of feature templates.
+   */
+  private static final int NUM_TEMPLATES = 16;
+
+  /**
+   * Hash of the words before the first token of a sentence.
+   */
+  private static final long START = 0x5354415254L;
+
+  /**
+   * Hash of the words after the last token of a sentence.
+   */
+  private static final long END = 0x454e44L;
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * The PTB escapes of CoreNLP and the characters they stand for.
+   */
+  private static final Map<String, String> UNESCAPES = Map.of(
+      "-LRB-", "(", "-RRB-", ")", "-LSB-", "[", "-RSB-", "]",
+      "-LCB-", "{", "-RCB-", "}", "``", "\"", "''", "\"");
+
+  /**
+   * The taggers opened in this process, by their real path.
+   */
+  private static final Map<Path, PerceptronTagger> TAGGERS =
+      new HashMap<Path, PerceptronTagger>();
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private final String[] tags;
+
+  private final int bits;
+
+  /**
+   * The weights, <code>tags.length</code> per row of feature hashes.
+   */
+  private final float[] weights;
+
+  /**
+   * Open-addressing table of the word hashes of the dictionary, with 0 for
+   * empty slots.
+   */
+  private final long[] dictionaryWords;
+
+  /**
+   * The tags of the words in {@link #dictionaryWords}.
+   */
+  private final byte[] dictionaryTags;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private PerceptronTagger(final String[] tags, final int bits,
+      final float[] weights, final Map<Long, Integer> dictionary) {
+    if (tags.length > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("Too many tags: " + tags.length);
+    }
+    this.tags = tags;
+    this.bits = bits;
+    this.weights = weights;
+    final int capacity = Integer.highestOneBit(
+        Math.max(1, dictionary.size()) * 2) * 2;
+    this.dictionaryWords = new long[capacity];
+    this.dictionaryTags = new byte[capacity];
+    for (final Map.Entry<Long, Integer> entry : dictionary.entrySet()) {
+      int slot = this.slot(entry.getKey());
+      while (this.dictionaryWords[slot] != 0) {
+        slot = (slot + 1) & (capacity - 1);
+      }
+      this.dictionaryWords[slot] = entry.getKey();
+      this.dictionaryTags[slot] = (byte) (int) entry.getValue();
+    }
+  }
+
+  /**
+   * Reads a tagger from a model file.
+   * @param path The model file
+   * @return The tagger
+   * @throws IOException If the file could not be read
+   * @throws IllegalArgumentException If the file is not a model file
+   */
+  public static PerceptronTagger load(final Path path) throws IOException {
+    try (final DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IllegalArgumentException("Not a tagger model: " + path);
+      }
+      final int bits = in.readInt();
+      final String[] tags = new String[in.readInt()];
+      for (int t = 0; t < tags.length; ++t) {
+        tags[t] = in.readUTF();
+      }
+      final int numWords = in.readInt();
+      final Map<Long, Integer> dictionary = new HashMap<Long, Integer>();
+      for (int w = 0; w < numWords; ++w) {
+        final long word = in.readLong();
+        dictionary.put(word, (int) in.readByte());
+      }
+      final float[] weights = new float[(1 << bits) * tags.length];
+      final int numRows = in.readInt();
+      for (int r = 0; r < numRows; ++r) {
+        final int offset = in.readInt() * tags.length;
+        for (int t = 0; t < tags.length; ++t) {
+          weights[offset + t] = in.readFloat();
+        }
+      }
+      final PerceptronTagger tagger =
+          new PerceptronTagger(tags, bits, weights, dictionary);
+      LOG.info("Loaded tagger " + path + " with " + tags.length + " tags, "
+          + numWords + " dictionary words, and " + numRows + " of "
+          + (1 << bits) + " feature rows");
+      return tagger;
+    }
+  }
+
+  /**
+   * Gets the tagger of a model file, reading it if it was not opened in this
+   * process before.
+   * @param path The model file
+   * @return The tagger
+   * @throws IOException If the file could not be read
+   * @throws IllegalArgumentException If the file is not a model file
+   */
+  public static PerceptronTagger open(final Path path) throws IOException {
+    final Path realPath = path.toRealPath();
+    synchronized (TAGGERS) {
+      PerceptronTagger tagger = TAGGERS.get(realPath);
+      if (tagger == null) {
+        tagger = PerceptronTagger.load(realPath);
+        TAGGERS.put(realPath, tagger);
+      }
+      return tagger;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the tags this tagger assigns.
+   * @return The tags, by their index
+   */
+  public List<String> getTags() {
+    return List.of(this.tags);
+  }
+
+  /**
+   * Gets a tag this tagger assigns.
+   * @param index The index of the tag
+   * @return The tag
+   */
+  public String getTag(final int index) {
+    return this.tags[index];
+  }
+
+  /**
+   * Gets the number of bits of the feature hashes.
+   * @return The number
+   */
+  public int getBits() {
+    return this.bits;
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Tags the tokens of a sentence.
+   * <p>
+   * This method can be called by several threads at once.
+   * </p>
+   * @param text The text
+   * @param begins The start of each token in the text
+   * @param ends The end of each token in the text
+   * @param from The index of the first token of the sentence
+   * @param to The index after the last token of the sentence
+   * @return The index of the tag of each token of the sentence (see
+   * {@link #getTag(int)})
+   */
+  public int[] tag(final CharSequence text, final int[] begins,
+      final int[] ends, final int from, final int to) {
+    final TokenHashes hashes = new TokenHashes(text, begins, ends, from, to);
+    final int[] guesses = new int[to - from];
+    final int[] rows = new int[NUM_TEMPLATES];
+    final float[] scores = new float[this.tags.length];
+    for (int t = 0; t < guesses.length; ++t) {
+      final int prev = t > 0 ? guesses[t - 1] : -1;
+      final int prev2 = t > 1 ? guesses[t - 2] : -2;
+      guesses[t] = this.lookUp(hashes.words[t + 2]);
+      if (guesses[t] < 0) {
+        this.computeRows(hashes, t, prev, prev2, rows);
+        guesses[t] = this.predict(rows, scores);
+      }
+    }
+    return guesses;
+  }
+
+  /**
+   * Gets the share of tokens of tagged sentences that this tagger tags the
+   * same.
+   * @param sentences The tagged sentences
+   * @return The accuracy
+   */
+  public double evaluate(final List<TaggedSentence> sentences) {
+    long correct = 0;
+    long total = 0;
+    final Map<String, Integer> indices = this.getTagIndices();
+    for (final TaggedSentence sentence : sentences) {
+      final int[] guesses = this.tag(sentence.text, sentence.begins,
+          sentence.ends, 0, sentence.size());
+      for (int t = 0; t < guesses.length; ++t) {
+        final Integer truth = indices.get(sentence.tags[t]);
+        if (truth != null && truth == guesses[t]) { ++correct; }
+        ++total;
+      }
+    }
+    return total == 0 ? 1 : (double) correct / total;
+  }
+
+  /**
+   * Writes this tagger to a model file.
+   * @param path The model file
+   * @throws IOException If the file could not be written
+   */
+  public void save(final Path path) throws IOException {
+    try (final DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(this.bits);
+      out.writeInt(this.tags.length);
+      for (final String tag : this.tags) {
+        out.writeUTF(tag);
+      }
+      int numWords = 0;
+      for (final long word : this.dictionaryWords) {
+        if (word != 0) { ++numWords; }
+      }
+      out.writeInt(numWords);
+      for (int slot = 0; slot < this.dictionaryWords.length; ++slot) {
+        if (this.dictionaryWords[slot] != 0) {
+          out.writeLong(this.dictionaryWords[slot]);
+          out.writeByte(this.dictionaryTags[slot]);
+        }
+      }
+      final int numTags = this.tags.length;
+      final List<Integer> rows = new ArrayList<Integer>();
+      for (int row = 0; row < (1 << this.bits); ++row) {
+        for (int t = 0; t < numTags; ++t) {
+          if (this.weights[row * numTags + t] != 0) {
+            rows.add(row);
+            break;
+          }
+        }
+      }
+      out.writeInt(rows.size());
+      for (final int row : rows) {
+        out.writeInt(row);
+        for (int t = 0; t < numTags; ++t) {
+          out.writeFloat(this.weights[row * numTags + t]);
+        }
+      }
+    }
+    LOG.info("Saved tagger to " + path);
+  }
+
+  /**
+   * Trains a tagger on tagged sentences.
+   * <p>
+   * The training takes 16 bytes of memory per row of feature hashes and tag,
+   * which is 190 MB for the {@link #DEFAULT_BITS} and the 45 tags of the Penn
+   * Treebank.
+   * </p>
+   * @param sentences The tagged sentences
+   * @param bits The number of bits of the feature hashes
+   * @param iterations The number of passes over the sentences, which are
+   * shuffled before each pass
+   * @return The tagger
+   */
+  public static PerceptronTagger train(final List<TaggedSentence> sentences,
+      final int bits, final int iterations) {
+    // tags and dictionary
+    final TreeSet<String> tagSet = new TreeSet<String>();
+    final Map<Long, Map<String, Integer>> wordTags =
+        new HashMap<Long, Map<String, Integer>>();
+    for (final TaggedSentence sentence : sentences) {
+      final TokenHashes hashes = new TokenHashes(sentence.text,
+          sentence.begins, sentence.ends, 0, sentence.size());
+      for (int t = 0; t < sentence.size(); ++t) {
+        tagSet.add(sentence.tags[t]);
+        wordTags.computeIfAbsent(hashes.words[t + 2],
+            word -> new HashMap<String, Integer>())
+          .merge(sentence.tags[t], 1, Integer::sum);
+      }
+    }
+    final String[] tags = tagSet.toArray(new String[0]);
+    final Map<String, Integer> indices = new HashMap<String, Integer>();
+    for (int t = 0; t < tags.length; ++t) {
+      indices.put(tags[t], t);
+    }
+    final Map<Long, Integer> dictionary = new HashMap<Long, Integer>();
+    for (final Map.Entry<Long, Map<String, Integer>> entry
+        : wordTags.entrySet()) {
+      int frequency = 0;
+      int maxFrequency = 0;
+      String maxTag = null;
+      for (final Map.Entry<String, Integer> tag
+          : entry.getValue().entrySet()) {
+        frequency += tag.getValue();
+        if (tag.getValue() > maxFrequency) {
+          maxFrequency = tag.getValue();
+          maxTag = tag.getKey();
+        }
+      }
+      if (frequency >= DICTIONARY_MIN_FREQUENCY
+          && maxFrequency >= DICTIONARY_MIN_SHARE * frequency) {
+        dictionary.put(entry.getKey(), indices.get(maxTag));
+      }
+    }
+    final PerceptronTagger tagger = new PerceptronTagger(
+        tags, bits, new float[(1 << bits) * tags.length], dictionary);
+    LOG.info("Training tagger with " + tags.length + " tags and "
+        + dictionary.size() + " dictionary words on " + sentences.size()
+        + " sentences");
+
+    // averaged perceptron
+    final float[] weights = tagger.weights;
+    final double[] totals = new double[weights.length];
+    final int[] stamps = new int[weights.length];
+    int instances = 0;
+    final List<TaggedSentence> shuffled =
+        new ArrayList<TaggedSentence>(sentences);
+    final Random random = new Random(0);
+    final int[] rows = new int[NUM_TEMPLATES];
+    final float[] scores = new float[tags.length];
+    for (int i = 0; i < iterations; ++i) {
+      Collections.shuffle(shuffled, random);
+      long correct = 0;
+      long total = 0;
+      for (final TaggedSentence sentence : shuffled) {
+        final TokenHashes hashes = new TokenHashes(sentence.text,
+            sentence.begins, sentence.ends, 0, sentence.size());
+        final int[] guesses = new int[sentence.size()];
+        for (int t = 0; t < guesses.length; ++t) {
+          final int truth = indices.get(sentence.tags[t]);
+          final int prev = t > 0 ? guesses[t - 1] : -1;
+          final int prev2 = t > 1 ? guesses[t - 2] : -2;
+          guesses[t] = tagger.lookUp(hashes.words[t + 2]);
+          if (guesses[t] < 0) {
+            tagger.computeRows(hashes, t, prev, prev2, rows);
+            guesses[t] = tagger.predict(rows, scores);
+            ++instances;
+            if (guesses[t] != truth) {
+              for (final int row : rows) {
+                update(weights, totals, stamps, instances, row + truth, 1);
+                update(weights, totals, stamps, instances, row + guesses[t],
+                    -1);
+              }
+            }
+          }
+          if (guesses[t] == truth) { ++correct; }
+          ++total;
+        }
+      }
+      LOG.info("Iteration " + (i + 1) + " of " + iterations
+          + ": training accuracy " + (double) correct / total);
+    }
+    if (instances > 0) {
+      for (int w = 0; w < weights.length; ++w) {
+        totals[w] += (double) (instances - stamps[w]) * weights[w];
+        weights[w] = (float) (totals[w] / instances);
+      }
+    }
+    return tagger;
+  }
+
+  /**
+   * Reads tagged sentences, one sentence per line with whitespace-separated
+   * tokens in <code>word_TAG</code> format, as written by CoreNLP's tagger.
+   * <p>
+   * The escaped brackets and quotes of CoreNLP (like <code>-LRB-</code>) are
+   * replaced by the characters they stand for, as the {@link RuleTokenizer}
+   * does not escape them.
+   * </p>
+   * @param path The file
+   * @return The sentences
+   * @throws IOException If the file could not be read
+   */
+  public static List<TaggedSentence> readTagged(final Path path)
+  throws IOException {
+    final List<TaggedSentence> sentences = new ArrayList<TaggedSentence>();
+    try (final BufferedReader reader =
+        Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line = null;
+      while ((line = reader.readLine()) != null) {
+        line = line.trim();
+        if (line.isEmpty()) { continue; }
+        final String[] tokens = line.split("\\s+");
+        final String[] words = new String[tokens.length];
+        final String[] tags = new String[tokens.length];
+        for (int t = 0; t < tokens.length; ++t) {
+          final int separator = tokens[t].lastIndexOf('_');
+          if (separator <= 0) {
+            throw new IllegalArgumentException(
+                "Not in word_TAG format: " + tokens[t]);
+          }
+          final String word = tokens[t].substring(0, separator);
+          words[t] = UNESCAPES.getOrDefault(word, word);
+          tags[t] = tokens[t].substring(separator + 1);
+        }
+        sentences.add(new TaggedSentence(words, tags));
+      }
+    }
+    return sentences;
+  }
+
+  /**
+   * Trains or evaluates a tagger.
+   * <p>
+   * Arguments: <code>train TAGGED-FILE MODEL-FILE [ITERATIONS [BITS]]</code>
+   * to train a tagger on sentences in the format of
+   * {@link #readTagged(Path)}, or <code>evaluate TAGGED-FILE MODEL-FILE</code>
+   * to print the accuracy of a tagger on held-out sentences.
+   * </p>
+   * @param args The arguments
+   * @throws IOException If reading or writing fails
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length >= 3 && args.length <= 5 && args[0].equals("train")) {
+      final int iterations = args.length >= 4
+          ? Integer.parseInt(args[3]) : DEFAULT_ITERATIONS;
+      final int bits = args.length >= 5
+          ? Integer.parseInt(args[4]) : DEFAULT_BITS;
+      PerceptronTagger.train(readTagged(Paths.get(args[1])), bits, iterations)
+        .save(Paths.get(args[2]));
+    } else if (args.length == 3 && args[0].equals("evaluate")) {
+      final List<TaggedSentence> sentences = readTagged(Paths.get(args[1]));
+      final PerceptronTagger tagger = PerceptronTagger.load(Paths.get(args[2]));
+      final long start = System.nanoTime();
+      final double accuracy = tagger.evaluate(sentences);
+      final long nanos = System.nanoTime() - start;
+      long tokens = 0;
+      for (final TaggedSentence sentence : sentences) {
+        tokens += sentence.size();
+      }
+      System.out.println("accuracy: " + accuracy);
+      System.out.println("tokens per second: " + tokens * 1e9 / nanos);
+    } else {
+      System.err.println("Usage: " + PerceptronTagger.class.getName()
+          + " train TAGGED-FILE MODEL-FILE [ITERATIONS [BITS]]");
+      System.err.println("       " + PerceptronTagger.class.getName()
+          + " evaluate TAGGED-FILE MODEL-FILE");
+      System.exit(1);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  private Map<String, Integer> getTagIndices() {
+    final Map<String, Integer> indices = new HashMap<String, Integer>();
+    for (int t = 0; t < this.tags.length; ++t) {
+      indices.put(this.tags[t], t);
+    }
+    return indices;
+  }
+
+  /**
+   * Gets the tag of a word from the dictionary.
+   * @param word The hash of the word
+   * @return The index of the tag, or -1 if the word is not in the dictionary
+   */
+  private int lookUp(final long word) {
+    final int mask = this.dictionaryWords.length - 1;
+    for (int slot = this.slot(word); this.dictionaryWords[slot] != 0;
+        slot = (slot + 1) & mask) {
+      if (this.dictionaryWords[slot] == word) {
+        return this.dictionaryTags[slot];
+      }
+    }
+    return -1;
+  }
+
+  private int slot(final long word) {
+    return (int) mix(word) & (this.dictionaryWords.length - 1);
+  }
+
+  /**
+   * Computes the offsets of the weight rows of the features of a token.
+   * @param hashes The hashes of the tokens of the sentence
+   * @param t The index of the token in the sentence
+   * @param prev The tag of the previous token, or -1 at the start
+   * @param prev2 The tag of the token before the previous one, or -2 at the
+   * start
+   * @param rows The array to put the offsets in
+   */
+  private void computeRows(final TokenHashes hashes, final int t,
+      final int prev, final int prev2, final int[] rows) {
+    final int w = t + 2; // the hashes start with two START tokens
+    rows[0] = this.row(0, 0);
+    rows[1] = this.row(1, hashes.words[w]);
+    rows[2] = this.row(2, hashes.suffixes3[w]);
+    rows[3] = this.row(3, hashes.suffixes2[w]);
+    rows[4] = this.row(4, hashes.prefixes[w]);
+    rows[5] = this.row(5, hashes.shapes[w]);
+    rows[6] = this.row(6, prev);
+    rows[7] = this.row(7, prev2);
+    rows[8] = this.row(8, prev * 131L + prev2);
+    rows[9] = this.row(9, hashes.words[w] * 131L + prev);
+    rows[10] = this.row(10, hashes.words[w - 1]);
+    rows[11] = this.row(11, hashes.suffixes3[w - 1]);
+    rows[12] = this.row(12, hashes.words[w - 2]);
+    rows[13] = this.row(13, hashes.words[w + 1]);
+    rows[14] = this.row(14, hashes.suffixes3[w + 1]);
+    rows[15] = this.row(15, hashes.words[w + 2]);
+  }
+
+  /**
+   * Gets the offset of the weights of a feature.
+   * @param template The index of the feature template
+   * @param value The hash of the value of the feature
+   * @return The offset of the row of the feature
+   */
+  private int row(final int template, final long value) {
+    final long hash = mix(value * 0x9e3779b97f4a7c15L + template);
+    return (int) (hash >>> (64 - this.bits)) * this.tags.length;
+  }
+
+  /**
+   * Gets the tag with the highest score.
+   * @param rows The offsets of the weight rows of the features
+   * @param scores Array to compute the scores in
+   * @return The index of the tag
+   */
+  private int predict(final int[] rows, final float[] scores) {
+    final int numTags = this.tags.length;
+    Arrays.fill(scores, 0);
+    for (final int row : rows) {
+      for (int t = 0; t < numTags; ++t) {
+        scores[t] += this.weights[row + t];
+      }
+    }
+    int best = 0;
+    for (int t = 1; t < numTags; ++t) {
+      if (scores[t] > scores[best]) { best = t; }
+    }
+    return best;
+  }
+
+  private static void update(final float[] weights, final double[] totals,
+      final int[] stamps, final int instances, final int index,
+      final float delta) {
+    totals[index] += (double) (instances - stamps[index]) * weights[index];
+    stamps[index] = instances;
+    weights[index] += delta;
+  }
+
+  /**
+   * The finalizer of SplitMix64, which spreads the bits of a hash.
+   * @param hash The hash
+   * @return The mixed hash
+   */
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+    hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+    return hash ^ (hash >>> 31);
+  }
+
+  /**
+   * Hashes characters of a text in lower case and with all digits as 0.
+   * @param text The text
+   * @param begin The start of the characters
+   * @param end The end of the characters
+   * @return The hash, which is not 0
+   */
+  private static long hash(
+      final CharSequence text, final int begin, final int end) {
+    long hash = FNV_OFFSET;
+    for (int c = begin; c < end; ++c) {
+      char character = text.charAt(c);
+      if (Character.isDigit(character)) {
+        character = '0';
+      } else {
+        character = Character.toLowerCase(character);
+      }
+      hash = (hash ^ character) * FNV_PRIME;
+    }
+    return hash == 0 ? 1 : hash;
+  }
+
+  /**
+   * Gets the shape of a word: whether it starts with an upper case letter,
+   * is all upper case, and contains digits, hyphens, or no letters at all,
+   * and its length up to 4.
+   * @param text The text
+   * @param begin The start of the word
+   * @param end The end of the word
+   * @return The shape as bit flags
+   */
+  private static long shape(
+      final CharSequence text, final int begin, final int end) {
+    boolean upper = true;
+    boolean digit = false;
+    boolean hyphen = false;
+    boolean letter = false;
+    for (int c = begin; c < end; ++c) {
+      final char character = text.charAt(c);
+      if (Character.isLetter(character)) {
+        letter = true;
+        upper &= Character.isUpperCase(character);
+      } else if (Character.isDigit(character)) {
+        digit = true;
+      } else if (character == '-') {
+        hyphen = true;
+      }
+    }
+    final boolean first = Character.isUpperCase(text.charAt(begin));
+    return (first ? 1 : 0) | (upper && letter ? 2 : 0) | (digit ? 4 : 0)
+        | (hyphen ? 8 : 0) | (letter ? 0 : 16)
+        | (Math.min(end - begin, 4) << 5);
+  }
+
+  // -------------------------------------------------------------------------
+  // CLASSES
+  // -------------------------------------------------------------------------
+
+  /**
+   * The hashes of the tokens of a sentence, with two START tokens before
+   * and two END tokens after the sentence.
+   */
+  private static final class TokenHashes {
+
+    private final long[] words;
+
+    private final long[] suffixes3;
+
+    private final long[] suffixes2;
+
+    private final long[] prefixes;
+
+    private final long[] shapes;
+
+    private TokenHashes(final CharSequence text, final int[] begins,
+        final int[] ends, final int from, final int to) {
+      final int size = to - from + 4;
+      this.words = new long[size];
+      this.suffixes3 = new long[size];
+      this.suffixes2 = new long[size];
+      this.prefixes = new long[size];
+      this.shapes = new long[size];
+      for (int p = 0; p < 2; ++p) {
+        this.words[p] = this.suffixes3[p] = START;
+        this.words[size - 1 - p] = this.suffixes3[size - 1 - p] = END;
+      }
+      for (int t = from; t < to; ++t) {
+        final int w = t - from + 2;
+        final int begin = begins[t];
+        final int end = ends[t];
+        this.words[w] = hash(text, begin, end);
+        this.suffixes3[w] = hash(text, Math.max(begin, end - 3), end);
+        this.suffixes2[w] = hash(text, Math.max(begin, end - 2), end);
+        this.prefixes[w] = hash(text, begin, begin + 1);
+        this.shapes[w] = shape(text, begin, end);
+      }
+    }
+
+  }
+
+  /**
+   * A sentence with the tag of each token.
+   */
+  public static final class TaggedSentence {
+
+    private final String text;
+
+    private final int[] begins;
+
+    private final int[] ends;
+
+    private final String[] tags;
+
+    /**
+     * Creates a tagged sentence.
+     * @param words The tokens
+     * @param tags The tag of each token
+     */
+    public TaggedSentence(final String[] words, final String[] tags) {
+      if (words.length != tags.length) {
+        throw new IllegalArgumentException("Got " + words.length
+            + " words but " + tags.length + " tags");
+      }
+      final StringBuilder text = new StringBuilder();
+      this.begins = new int[words.length];
+      this.ends = new int[words.length];
+      for (int t = 0; t < words.length; ++t) {
+        if (t > 0) { text.append(' '); }
+        this.begins[t] = text.length();
+        text.append(words[t]);
+        this.ends[t] = text.length();
+      }
+      this.text = text.toString();
+      this.tags = tags.clone();
+    }
+
+    /**
+     * Gets the number of tokens.
+     * @return The number
+     */
+    public int size() {
+      return this.tags.length;
+    }
+
+    /**
+     * Gets a token.
+     * @param token The index of the token
+     * @return The token
+     */
+    public String getWord(final int token) {
+      return this.text.substring(this.begins[token], this.ends[token]);
+    }
+
+    /**
+     * Gets the tag of a token.
+     * @param token The index of the token
+     * @return The tag
+     */
+    public String getTag(final int token) {
+      return this.tags[token];
+    }
+
+  }
+
+}
@@ -0,0 +1,156 @@
+package de.aitools.ie.perceptron;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.uima.jcas.JCas;
+
+import de.aitools.commons.uima.core.Document;
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
+import edu.stanford.nlp.process.Morphology;
+
+/**
+ * Annotates the {@link Sentence}s and {@link Token}s of a document, with
+ * part-of-speech tags and lemmas, without the CoreNLP pipeline.
+ * <p>
+ * This is a lightweight alternative to the
+ * {@link de.aitools.ie.stanford.Tokenizer} for components that need no
+ * dependency parse: the document is tokenized and split into sentences by the
+ * {@link RuleTokenizer}, tagged by a {@link PerceptronTagger} that was trained
+ * on the tags of CoreNLP (see {@link #PROPERTY_MODEL}), and lemmatized by
+ * CoreNLP's finite-state {@link Morphology}, which needs no model.
+ * </p><p>
+ * Tagging and lemmatization are skipped if no later component needs them.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class PerceptronTokenizer extends AnalysisEngineComponent
+implements LayerComponent {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Configuration option that specifies the model file of the tagger, as
+   * created by {@link PerceptronTagger#main(String[])}.
+   */
+  public static final String PROPERTY_MODEL = "model";
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private PerceptronTagger tagger;
+
+  /**
+   * The layers later components need.
+   */
+  private Set<Layer> neededLayers;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates a new tokenizer that needs to be configured before use.
+   */
+  public PerceptronTokenizer() {
+    this.tagger = null;
+    this.neededLayers = EnumSet.allOf(Layer.class);
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the tagger.
+   * @return The tagger
+   */
+  public PerceptronTagger getTagger() {
+    return this.tagger;
+  }
+
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return Set.of();
+  }
+
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of(Layer.TOKEN, Layer.SENTENCE, Layer.POS, Layer.LEMMA);
+  }
+
+  // -------------------------------------------------------------------------
+  // CONFIGURATION
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void configure(final Properties properties) {
+    final String model = properties.getProperty(PROPERTY_MODEL);
+    if (model == null) {
+      throw new IllegalArgumentException(
+          "Missing property: " + PROPERTY_MODEL);
+    }
+    try {
+      this.tagger = PerceptronTagger.open(Paths.get(model));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void setNeededLayers(final Set<Layer> neededLayers) {
+    this.neededLayers = neededLayers;
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void accept(final JCas jCas) {
+    final String text = jCas.getDocumentText();
+    new Document(jCas, 0, text.length()).addToIndexes();
+
+    final boolean lemmatize = this.neededLayers.contains(Layer.LEMMA);
+    final boolean tag = lemmatize || this.neededLayers.contains(Layer.POS);
+    // not thread-safe, but cheap to create
+    final Morphology morphology = lemmatize ? new Morphology() : null;
+
+    final RuleTokenizer.Tokenization tokenization =
+        RuleTokenizer.tokenize(text);
+    final int[] begins = tokenization.getBegins();
+    final int[] ends = tokenization.getEnds();
+    for (int s = 0; s < tokenization.getNumSentences(); ++s) {
+      final int from = tokenization.getSentenceStart(s);
+      final int to = tokenization.getSentenceEnd(s);
+      new Sentence(jCas, begins[from], ends[to - 1]).addToIndexes();
+      final int[] tags = tag
+          ? this.tagger.tag(text, begins, ends, from, to) : null;
+      for (int t = from; t < to; ++t) {
+        final Token token = new Token(jCas, begins[t], ends[t]);
+        if (tag) {
+          final String pos = this.tagger.getTag(tags[t - from]);
+          token.setPos(pos);
+          if (lemmatize) {
+            token.setLemma(morphology.lemma(
+                text.substring(begins[t], ends[t]), pos));
+          }
+        }
+        token.addToIndexes();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,443 @@
+package de.aitools.ie.perceptron;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Rule-based tokenizer and sentence splitter for English that follows the
+ * conventions of the Penn Treebank and of Stanford CoreNLP.
+ * <p>
+ * Tokens are separated at whitespace. Opening and closing punctuation, as
+ * well as dollar and percent signs, is split off, except for the final period
+ * of abbreviations (like "Mr." or "U.S."), and clitics are split from their
+ * words ("do n't", "John 's", "can not").
+ * Sentences end after a token of periods and question or exclamation marks,
+ * including the closing quotes and brackets that follow, and at empty lines.
+ * </p><p>
+ * Unlike CoreNLP, the tokens are not normalized, so that the text of each
+ * token is the text it spans in the document.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class RuleTokenizer {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Lower-cased abbreviations (without their final period) that keep their
+   * final period, in addition to initials and words with periods.
+   * <p>
+   * Abbreviations that are also common words (like "sun" or "no") are not
+   * included, as a sentence ending with such a word would not be split.
+   * </p>
+   */
+  public static final Set<String> ABBREVIATIONS = Set.of(
+      "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "mt", "ft", "gov", "lt",
+      "col", "capt", "sgt", "cpl", "adm", "pres", "supt", "messrs", "hon",
+      "feb", "apr", "jun", "jul", "aug", "sep", "sept", "oct", "nov", "mon",
+      "tue", "wed", "thu", "fri", "inc", "ltd", "corp", "bros", "dept", "univ",
+      "assn", "ave", "blvd", "rd", "vs", "etc", "nos", "vol", "fig",
+      "approx");
+
+  /**
+   * Lower-cased abbreviations (without their final period) that keep their
+   * final period only if a number follows, like "No. 5".
+   */
+  public static final Set<String> NUMBER_ABBREVIATIONS = Set.of("no");
+
+  /**
+   * Clitics that are split from the end of a word, with an apostrophe.
+   */
+  private static final String[] CLITICS = { "'s", "'m", "'d", "'re", "'ve",
+      "'ll" };
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private RuleTokenizer() { }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Tokenizes a text and splits it into sentences.
+   * @param text The text
+   * @return The tokens and sentences
+   */
+  public static Tokenization tokenize(final CharSequence text) {
+    final Tokenization tokenization = new Tokenization(text);
+    final int length = text.length();
+    int c = 0;
+    while (c < length) {
+      int newlines = 0;
+      while (c < length && Character.isWhitespace(text.charAt(c))) {
+        if (text.charAt(c) == '\n') { ++newlines; }
+        ++c;
+      }
+      if (newlines >= 2) {
+        tokenization.endSentence();
+      }
+      int end = c;
+      while (end < length && !Character.isWhitespace(text.charAt(end))) {
+        ++end;
+      }
+      if (end > c) {
+        tokenizeChunk(text, c, end, tokenization);
+      }
+      c = end;
+    }
+    tokenization.endSentence();
+    return tokenization;
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Tokenizes a sequence of non-whitespace characters.
+   * @param text The text
+   * @param begin The start of the chunk in the text
+   * @param end The end of the chunk in the text
+   * @param tokenization The tokenization to add the tokens to
+   */
+  private static void tokenizeChunk(
+      final CharSequence text, int begin, int end,
+      final Tokenization tokenization) {
+    // opening punctuation
+    while (begin < end - 1 && isOpening(text.charAt(begin))) {
+      tokenization.add(begin, begin + 1);
+      ++begin;
+    }
+
+    // closing punctuation, added after the word
+    final int[] closing = new int[2 * (end - begin)];
+    int numClosing = 0;
+    while (end > begin + 1) {
+      final char last = text.charAt(end - 1);
+      int split = end - 1;
+      if (last == '.') {
+        while (split > begin && text.charAt(split - 1) == '.') { --split; }
+        if (split == end - 1 && isAbbreviation(text, begin, split)) {
+          break;
+        }
+      } else if (last == '!' || last == '?') {
+        while (split > begin && (text.charAt(split - 1) == '!'
+            || text.charAt(split - 1) == '?')) {
+          --split;
+        }
+      } else if (!isClosing(last) && last != ',' && last != ';'
+          && last != ':' && last != '%') {
+        break;
+      }
+      if (split == begin) { break; }
+      closing[numClosing++] = split;
+      closing[numClosing++] = end;
+      end = split;
+    }
+
+    // the word, with its clitic split off
+    final int clitic = findClitic(text, begin, end);
+    if (clitic > begin) {
+      tokenization.add(begin, clitic);
+      tokenization.add(clitic, end);
+    } else {
+      tokenization.add(begin, end);
+    }
+
+    for (int p = numClosing - 2; p >= 0; p -= 2) {
+      tokenization.add(closing[p], closing[p + 1]);
+    }
+  }
+
+  /**
+   * Finds the start of a clitic at the end of a word.
+   * @param text The text
+   * @param begin The start of the word
+   * @param end The end of the word
+   * @return The start of the clitic, or <code>begin</code> if it has none
+   */
+  private static int findClitic(
+      final CharSequence text, final int begin, final int end) {
+    final int length = end - begin;
+    if (length > 3 && endsWith(text, begin, end, "n't")
+        && Character.isLetter(text.charAt(end - 4))) {
+      // "can't" is "ca n't", like "won't" is "wo n't"
+      return end - 3;
+    }
+    if (length == 6 && endsWith(text, begin, end, "cannot")) {
+      return begin + 3;
+    }
+    for (final String clitic : CLITICS) {
+      if (length > clitic.length() && endsWith(text, begin, end, clitic)
+          && Character.isLetter(text.charAt(end - clitic.length() - 1))) {
+        return end - clitic.length();
+      }
+    }
+    return begin;
+  }
+
+  /**
+   * Checks whether a word ends with a suffix, ignoring case and treating
+   * typographic apostrophes like straight ones.
+   * @param text The text
+   * @param begin The start of the word
+   * @param end The end of the word
+   * @param suffix The lower-cased suffix
+   * @return Whether the word ends with the suffix
+   */
+  private static boolean endsWith(final CharSequence text,
+      final int begin, final int end, final String suffix) {
+    final int length = suffix.length();
+    if (end - begin < length) { return false; }
+    for (int c = 0; c < length; ++c) {
+      char character = Character.toLowerCase(text.charAt(end - length + c));
+      if (character == '\u2019') { character = '\''; }
+      if (character != suffix.charAt(c)) { return false; }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether a word followed by a period is an abbreviation.
+   * <p>
+   * A single letter is an initial only if the text continues in lower case
+   * or with a digit, as an upper-case letter may also start a new sentence
+   * after a letter like in "plan B.".
+   * </p>
+   * @param text The text
+   * @param begin The start of the word
+   * @param end The end of the word, where the period is
+   * @return Whether the period belongs to the word
+   */
+  private static boolean isAbbreviation(
+      final CharSequence text, final int begin, final int end) {
+    final int length = end - begin;
+    if (length == 0) { return false; }
+    final char next = getNextNonWhitespace(text, end + 1);
+    if (length == 1) {
+      return Character.isLetter(text.charAt(begin))
+          && (Character.isLowerCase(next) || Character.isDigit(next));
+    }
+    // letters separated by periods, like "U.S" or "e.g"
+    boolean periods = true;
+    for (int c = begin; c < end; ++c) {
+      final boolean period = text.charAt(c) == '.';
+      if (period == ((c - begin) % 2 == 0)
+          || (!period && !Character.isLetter(text.charAt(c)))) {
+        periods = false;
+        break;
+      }
+    }
+    if (periods) { return true; }
+    if (length > 7) { return false; }
+    final String word =
+        text.subSequence(begin, end).toString().toLowerCase(Locale.ROOT);
+    return ABBREVIATIONS.contains(word)
+        || (NUMBER_ABBREVIATIONS.contains(word) && Character.isDigit(next));
+  }
+
+  /**
+   * Gets the first character at or after a position that is not whitespace.
+   * @param text The text
+   * @param from The position
+   * @return The character or <code>0</code> if there is none
+   */
+  private static char getNextNonWhitespace(
+      final CharSequence text, final int from) {
+    for (int c = from; c < text.length(); ++c) {
+      if (!Character.isWhitespace(text.charAt(c))) {
+        return text.charAt(c);
+      }
+    }
+    return 0;
+  }
+
+  private static boolean isOpening(final char character) {
+    switch (character) {
+    case '(': case '[': case '{': case '"': case '\'': case '`': case '$':
+    case '\u201c': case '\u2018': case '\u00ab':
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static boolean isClosing(final char character) {
+    switch (character) {
+    case ')': case ']': case '}': case '"': case '\'':
+    case '\u201d': case '\u2019': case '\u00bb':
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // CLASSES
+  // -------------------------------------------------------------------------
+
+  /**
+   * The tokens and sentences of a text, as positions in the text.
+   */
+  public static final class Tokenization {
+
+    private int[] begins;
+
+    private int[] ends;
+
+    private int numTokens;
+
+    /**
+     * The first token of each sentence.
+     */
+    private int[] sentenceStarts;
+
+    private int numSentences;
+
+    /**
+     * Whether the last sentence can still get more tokens.
+     */
+    private boolean open;
+
+    /**
+     * Whether the last sentence ends once a token follows that does not
+     * belong to it anymore.
+     */
+    private boolean pendingEnd;
+
+    private final CharSequence text;
+
+    private Tokenization(final CharSequence text) {
+      this.begins = new int[64];
+      this.ends = new int[64];
+      this.numTokens = 0;
+      this.sentenceStarts = new int[8];
+      this.numSentences = 0;
+      this.open = false;
+      this.pendingEnd = false;
+      this.text = text;
+    }
+
+    /**
+     * Gets the number of tokens.
+     * @return The number
+     */
+    public int size() {
+      return this.numTokens;
+    }
+
+    /**
+     * Gets the start of a token.
+     * @param token The index of the token
+     * @return The position in the text
+     */
+    public int getBegin(final int token) {
+      return this.begins[token];
+    }
+
+    /**
+     * Gets the end of a token.
+     * @param token The index of the token
+     * @return The position in the text
+     */
+    public int getEnd(final int token) {
+      return this.ends[token];
+    }
+
+    /**
+     * Gets the starts of all tokens.
+     * @return The positions in the text, of which the first {@link #size()}
+     * are used
+     */
+    public int[] getBegins() {
+      return this.begins;
+    }
+
+    /**
+     * Gets the ends of all tokens.
+     * @return The positions in the text, of which the first {@link #size()}
+     * are used
+     */
+    public int[] getEnds() {
+      return this.ends;
+    }
+
+    /**
+     * Gets the number of sentences.
+     * @return The number
+     */
+    public int getNumSentences() {
+      return this.numSentences;
+    }
+
+    /**
+     * Gets the first token of a sentence.
+     * @param sentence The index of the sentence
+     * @return The index of the token
+     */
+    public int getSentenceStart(final int sentence) {
+      return this.sentenceStarts[sentence];
+    }
+
+    /**
+     * Gets the end of the tokens of a sentence.
+     * @param sentence The index of the sentence
+     * @return The index after the last token of the sentence
+     */
+    public int getSentenceEnd(final int sentence) {
+      return sentence + 1 < this.numSentences
+          ? this.sentenceStarts[sentence + 1]
+          : this.numTokens;
+    }
+
+    private void add(final int begin, final int end) {
+      if (this.pendingEnd && !this.followsBoundary(begin, end)) {
+        this.endSentence();
+      }
+      if (!this.open) {
+        if (this.numSentences == this.sentenceStarts.length) {
+          this.sentenceStarts =
+              Arrays.copyOf(this.sentenceStarts, 2 * this.numSentences);
+        }
+        this.sentenceStarts[this.numSentences++] = this.numTokens;
+        this.open = true;
+      }
+      if (this.numTokens == this.begins.length) {
+        this.begins = Arrays.copyOf(this.begins, 2 * this.numTokens);
+        this.ends = Arrays.copyOf(this.ends, 2 * this.numTokens);
+      }
+      this.begins[this.numTokens] = begin;
+      this.ends[this.numTokens] = end;
+      ++this.numTokens;
+      if (this.isBoundary(begin, end)) {
+        this.pendingEnd = true;
+      }
+    }
+
+    private void endSentence() {
+      this.open = false;
+      this.pendingEnd = false;
+    }
+
+    private boolean isBoundary(final int begin, final int end) {
+      final char first = this.text.charAt(begin);
+      if (first == '!' || first == '?') { return true; }
+      return first == '.' && end - begin == 1;
+    }
+
+    private boolean followsBoundary(final int begin, final int end) {
+      // only directly after the boundary, as in "Hello." or ("Hello!")
+      return end - begin == 1 && begin == this.ends[this.numTokens - 1]
+          && isClosing(this.text.charAt(begin));
+    }
+
+  }
+
+}
@@ -0,0 +1,524 @@
+package de.aitools.ie.stanford;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+/**
+ * A cache of the dependency parses of sentences, keyed by the texts and
+ * part-of-speech tags of their tokens.
+ * <p>
+ * Parses are kept in a least-recently-used map on the heap and appended to a
+ * memory-mapped file, so that they survive restarts. When a cache is opened,
+ * the file is scanned once to index the offsets of its parses. If the file is
+ * full, new parses are kept only on the heap.
+ * </p><p>
+ * A sentence is identified by two independent 64 bit hashes of its tokens,
+ * seeded with the parser model. The file has the format:
+ * </p>
+ * <pre>
+ * int MAGIC, int VERSION, long end (of the last complete parse),
+ * (long hash, long check, int length, byte parse * length) * parses
+ * </pre>
+ * <p>
+ * where each parse is a short number of tokens followed by a short parent
+ * (-1 for none) and a byte-prefixed UTF-8 label (if it has a parent) per
+ * token. The process that opens a file locks it; caches of other processes
+ * that open the file meanwhile keep their parses only on the heap.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class ParseCache {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(ParseCache.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The first integer of each cache file ("DEP1").
+   */
+  public static final int MAGIC = 0x44455031;
+
+  /**
+   * The version of the cache file format.
+   */
+  public static final int VERSION = 1;
+
+  /**
+   * Marks tokens without parent.
+   */
+  public static final int NO_PARENT = -1;
+
+  private static final int HEADER_BYTES = 16;
+
+  private static final int RECORD_HEADER_BYTES = 20;
+
+  /**
+   * The caches opened in this process, by their absolute path.
+   */
+  private static final Map<Path, ParseCache> CACHES =
+      new HashMap<Path, ParseCache>();
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private final Path path;
+
+  private final Map<Key, Parse> heap;
+
+  /**
+   * The offset of each parse in the {@link #disk}, by hash.
+   */
+  private final Map<Long, Integer> offsets;
+
+  /**
+   * The lock on the file, which is held while the process runs, or
+   * <code>null</code> if the file is locked by another process.
+   */
+  private final FileLock lock;
+
+  /**
+   * The mapped file, or <code>null</code> if it is locked by another process.
+   */
+  private final MappedByteBuffer disk;
+
+  private boolean diskFull;
+
+  private long heapHits;
+
+  private long diskHits;
+
+  private long misses;
+
+  private long bytesRead;
+
+  private long bytesWritten;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Opens a cache file, creating it if it does not exist.
+   * <p>
+   * If another process locked the file, the cache keeps parses only on the
+   * heap.
+   * </p>
+   * @param path The path of the file
+   * @param maxHeapParses The maximum number of parses kept on the heap
+   * @param capacity The size of a new file in bytes
+   * @throws IOException If the file could not be mapped
+   * @throws IllegalArgumentException If the file is not a cache file
+   */
+  protected ParseCache(
+      final Path path, final int maxHeapParses, final int capacity)
+  throws IOException {
+    this.path = path;
+    this.heap = new LinkedHashMap<Key, Parse>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, Parse> eldest) {
+        return this.size() > maxHeapParses;
+      }
+    };
+    this.offsets = new HashMap<Long, Integer>();
+
+    // the channel stays open while the lock is held
+    final FileChannel channel = FileChannel.open(path,
+        StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      this.lock = tryLock(channel);
+      if (this.lock == null) {
+        channel.close();
+        this.disk = null;
+        this.diskFull = true;
+        LOG.warning("Parse cache " + path + " is locked by another process, "
+            + "caching parses only on the heap");
+        return;
+      }
+      final boolean created = channel.size() == 0;
+      this.disk = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+          created ? Math.max(capacity, HEADER_BYTES) : channel.size());
+      if (created) {
+        this.disk.putInt(0, MAGIC);
+        this.disk.putInt(4, VERSION);
+        this.disk.putLong(8, HEADER_BYTES);
+      } else if (this.disk.capacity() < HEADER_BYTES
+          || this.disk.getInt(0) != MAGIC || this.disk.getInt(4) != VERSION) {
+        throw new IllegalArgumentException("Not a parse cache: " + path);
+      }
+    } catch (final IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+
+    final long end = this.disk.getLong(8);
+    int position = HEADER_BYTES;
+    while (position < end) {
+      this.offsets.put(this.disk.getLong(position), position);
+      position += RECORD_HEADER_BYTES + this.disk.getInt(position + 16);
+    }
+    this.diskFull = false;
+    LOG.info("Mapped parse cache " + path + " with " + this.offsets.size()
+        + " parses in " + end + " of " + this.disk.capacity() + " bytes");
+  }
+
+  /**
+   * Gets the cache of a file, opening it if it was not opened in this process
+   * before.
+   * @param path The path of the file
+   * @param maxHeapParses The maximum number of parses kept on the heap, if
+   * the cache is opened
+   * @param capacity The size of the file in bytes, if it is created
+   * @return The cache
+   * @throws IOException If the file could not be mapped
+   * @throws IllegalArgumentException If the file is not a cache file
+   */
+  public static ParseCache open(
+      final Path path, final int maxHeapParses, final int capacity)
+  throws IOException {
+    final Path absolutePath = path.toAbsolutePath().normalize();
+    synchronized (CACHES) {
+      ParseCache cache = CACHES.get(absolutePath);
+      if (cache == null) {
+        cache = new ParseCache(absolutePath, maxHeapParses, capacity);
+        CACHES.put(absolutePath, cache);
+      }
+      return cache;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the path of the cache file.
+   * @return The path
+   */
+  public Path getPath() {
+    return this.path;
+  }
+
+  /**
+   * Gets the number of lookups that found the parse on the heap.
+   * @return The number
+   */
+  public synchronized long getHeapHits() {
+    return this.heapHits;
+  }
+
+  /**
+   * Gets the number of lookups that found the parse only in the file.
+   * @return The number
+   */
+  public synchronized long getDiskHits() {
+    return this.diskHits;
+  }
+
+  /**
+   * Gets the number of lookups that did not find the parse.
+   * @return The number
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Gets the number of bytes of parses read from the file.
+   * @return The number
+   */
+  public synchronized long getBytesRead() {
+    return this.bytesRead;
+  }
+
+  /**
+   * Gets the number of bytes of parses written to the file.
+   * @return The number
+   */
+  public synchronized long getBytesWritten() {
+    return this.bytesWritten;
+  }
+
+  /**
+   * Gets the number of bytes used in the file, including the header.
+   * @return The number
+   */
+  public synchronized long getDiskBytes() {
+    return this.disk == null ? 0 : this.disk.getLong(8);
+  }
+
+  /**
+   * Gets the number of parses in the file.
+   * @return The number
+   */
+  public synchronized int getDiskParses() {
+    return this.offsets.size();
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Computes the key of a sentence.
+   * @param model The model of the parser, to keep parses of different models
+   * apart
+   * @param tokens The tokens of the sentence, with text and tag
+   * @return The key
+   */
+  public static Key key(final String model, final List<CoreLabel> tokens) {
+    long hash = 0xcbf29ce484222325L ^ model.hashCode();
+    long check = 0x9e3779b97f4a7c15L ^ model.hashCode();
+    for (final CoreLabel token : tokens) {
+      for (final String string : new String[] { token.word(), token.tag() }) {
+        if (string != null) {
+          for (int c = 0; c < string.length(); ++c) {
+            hash = (hash ^ string.charAt(c)) * 0x100000001b3L;
+            check = (check + string.charAt(c)) * 0xc6a4a7935bd1e995L;
+            check ^= check >>> 47;
+          }
+        }
+        // separator
+        hash = (hash ^ 0xFFFF) * 0x100000001b3L;
+        check = (check + 0xFFFF) * 0xc6a4a7935bd1e995L;
+        check ^= check >>> 47;
+      }
+    }
+    return new Key(mix(hash), check);
+  }
+
+  /**
+   * Gets the parse of a sentence.
+   * @param key The key of the sentence
+   * @return The parse or <code>null</code> if it is not cached
+   */
+  public synchronized Parse get(final Key key) {
+    final Parse cached = this.heap.get(key);
+    if (cached != null) {
+      ++this.heapHits;
+      return cached;
+    }
+
+    final Integer offset = this.offsets.get(key.hash);
+    if (offset != null && this.disk.getLong(offset + 8) == key.check) {
+      final int length = this.disk.getInt(offset + 16);
+      final Parse parse = this.read(offset + RECORD_HEADER_BYTES);
+      this.heap.put(key, parse);
+      ++this.diskHits;
+      this.bytesRead += length;
+      return parse;
+    }
+
+    ++this.misses;
+    return null;
+  }
+
+  /**
+   * Adds the parse of a sentence.
+   * @param key The key of the sentence
+   * @param parse The parse
+   */
+  public synchronized void put(final Key key, final Parse parse) {
+    this.heap.put(key, parse);
+    if (!this.diskFull && !this.offsets.containsKey(key.hash)
+        && parse.size() <= Short.MAX_VALUE) {
+      this.write(key, parse);
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Locks a file for this process.
+   * @param channel The channel of the file
+   * @return The lock, or <code>null</code> if the file is locked already
+   * @throws IOException If the file could not be locked
+   */
+  private static FileLock tryLock(final FileChannel channel)
+  throws IOException {
+    try {
+      return channel.tryLock();
+    } catch (final OverlappingFileLockException e) {
+      return null;
+    }
+  }
+
+  private static long mix(long hash) {
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  private Parse read(final int offset) {
+    int position = offset;
+    final int numTokens = this.disk.getShort(position);
+    position += 2;
+    final int[] parents = new int[numTokens];
+    final String[] labels = new String[numTokens];
+    for (int t = 0; t < numTokens; ++t) {
+      parents[t] = this.disk.getShort(position);
+      position += 2;
+      if (parents[t] != NO_PARENT) {
+        final byte[] label = new byte[this.disk.get(position) & 0xFF];
+        position += 1;
+        for (int b = 0; b < label.length; ++b) {
+          label[b] = this.disk.get(position + b);
+        }
+        position += label.length;
+        labels[t] = new String(label, StandardCharsets.UTF_8).intern();
+      }
+    }
+    return new Parse(parents, labels);
+  }
+
+  private void write(final Key key, final Parse parse) {
+    final byte[][] labels = new byte[parse.parents.length][];
+    int length = 2;
+    for (int t = 0; t < parse.parents.length; ++t) {
+      length += 2;
+      if (parse.parents[t] != NO_PARENT) {
+        labels[t] = parse.labels[t].getBytes(StandardCharsets.UTF_8);
+        if (labels[t].length > 0xFF) { return; }
+        length += 1 + labels[t].length;
+      }
+    }
+
+    final int offset = (int) this.disk.getLong(8);
+    if ((long) offset + RECORD_HEADER_BYTES + length > this.disk.capacity()) {
+      LOG.warning("Parse cache " + this.path + " is full, caching new parses "
+          + "only on the heap");
+      this.diskFull = true;
+      return;
+    }
+    this.disk.putLong(offset, key.hash);
+    this.disk.putLong(offset + 8, key.check);
+    this.disk.putInt(offset + 16, length);
+    int position = offset + RECORD_HEADER_BYTES;
+    this.disk.putShort(position, (short) parse.parents.length);
+    position += 2;
+    for (int t = 0; t < parse.parents.length; ++t) {
+      this.disk.putShort(position, (short) parse.parents[t]);
+      position += 2;
+      if (labels[t] != null) {
+        this.disk.put(position, (byte) labels[t].length);
+        position += 1;
+        for (int b = 0; b < labels[t].length; ++b) {
+          this.disk.put(position + b, labels[t][b]);
+        }
+        position += labels[t].length;
+      }
+    }
+    // commit the parse only after it is complete
+    this.disk.putLong(8, position);
+    this.offsets.put(key.hash, offset);
+    this.bytesWritten += length;
+  }
+
+  // -------------------------------------------------------------------------
+  // CLASSES
+  // -------------------------------------------------------------------------
+
+  /**
+   * The key of a sentence in the cache.
+   * @see ParseCache#key(String, List)
+   */
+  public static final class Key {
+
+    private final long hash;
+
+    private final long check;
+
+    private Key(final long hash, final long check) {
+      this.hash = hash;
+      this.check = check;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.hash);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (!(obj instanceof Key)) { return false; }
+      final Key other = (Key) obj;
+      return this.hash == other.hash && this.check == other.check;
+    }
+
+  }
+
+  /**
+   * The dependency parse of a sentence.
+   */
+  public static final class Parse {
+
+    private final int[] parents;
+
+    private final String[] labels;
+
+    /**
+     * Creates a parse.
+     * @param parents The index of the parent of each token, or
+     * {@link ParseCache#NO_PARENT}
+     * @param labels The dependency label of each token with a parent
+     */
+    public Parse(final int[] parents, final String[] labels) {
+      this.parents = parents;
+      this.labels = labels;
+    }
+
+    /**
+     * Gets the number of tokens of the sentence.
+     * @return The number
+     */
+    public int size() {
+      return this.parents.length;
+    }
+
+    /**
+     * Gets the parent of a token.
+     * @param token The index of the token in the sentence
+     * @return The index of the parent or {@link ParseCache#NO_PARENT}
+     */
+    public int getParent(final int token) {
+      return this.parents[token];
+    }
+
+    /**
+     * Gets the dependency label of a token.
+     * @param token The index of the token in the sentence
+     * @return The label or <code>null</code> if the token has no parent
+     */
+    public String getLabel(final int token) {
+      return this.labels[token];
+    }
+
+  }
+
+}
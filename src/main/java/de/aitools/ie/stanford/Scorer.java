@@ -1,160 +1,343 @@
 package de.aitools.ie.stanford;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
 
-import org.apache.uima.cas.FSIterator;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 
 import de.aitools.commons.uima.core.Token;
 import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+import de.webis.writing.ScoreBatch;
 import de.webis.writing.Scores;
+import de.webis.writing.TokenView;
+import de.webis.writing.WordTable;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
 
 
 /**
+ * Scores each token by the normalized frequency of its lemma in a frequency
+ * list.
+ * <p>
+ * The frequency list is a file with one <code>word;frequency</code> line per
+ * word (further columns are ignored). The frequencies are kept in a
+ * {@link WordTable} and a float array, and normalized once when configured:
+ * </p>
+ * <ul>
+ * <li><code>word</code> (default): divided by the frequency of the
+ * {@link #PROPERTY_NORMALIZATION_WORD}, or by the median of the distinct
+ * frequencies if that word is not in the list</li>
+ * <li><code>quantile</code>: replaced by the fraction of words in the list
+ * that are less frequent</li>
+ * </ul>
+ * <p>
+ * Only scores below 1 are added, all under the {@link #PROPERTY_SCORE_NAME}.
+ * </p>
+ *
  * @author johanna.sacher@uni-weimar.de
  */
 
-public class Scorer extends AnalysisEngineComponent{
-    
+public class Scorer extends AnalysisEngineComponent implements LayerComponent {
+
+    // -------------------------------------------------------------------------
+    // LOGGING
+    // -------------------------------------------------------------------------
+
+    private static final Logger LOG =
+        Logger.getLogger(Scorer.class.getName());
+
     // -------------------------------------------------------------------------
     // CONSTANTS
     // -------------------------------------------------------------------------
-    private final String NORM_WORD = "normalizationWord";
-    private final String FREQUENCIES_DATA = "frequencyDataPath";
-    
+
+    /**
+     * Configuration option specifying the word by whose frequency all
+     * frequencies are divided for the {@link #NORMALIZATION_WORD}
+     * normalization.
+     */
+    public static final String PROPERTY_NORMALIZATION_WORD =
+        "normalizationWord";
+
+    /**
+     * Configuration option specifying the path of the frequency list.
+     */
+    public static final String PROPERTY_FREQUENCIES_DATA = "frequencyDataPath";
+
+    /**
+     * Configuration option specifying how frequencies are normalized:
+     * {@link #NORMALIZATION_WORD} or {@link #NORMALIZATION_QUANTILE}.
+     */
+    public static final String PROPERTY_NORMALIZATION = "normalization";
+
+    /**
+     * Normalization by the frequency of the
+     * {@link #PROPERTY_NORMALIZATION_WORD}.
+     */
+    public static final String NORMALIZATION_WORD = "word";
+
+    /**
+     * Normalization to the quantile of the frequency in the list.
+     */
+    public static final String NORMALIZATION_QUANTILE = "quantile";
+
+    /**
+     * Default value for {@link #PROPERTY_NORMALIZATION}.
+     */
+    public static final String DEFAULT_NORMALIZATION = NORMALIZATION_WORD;
+
+    /**
+     * Configuration option specifying the name of the added scores.
+     */
+    public static final String PROPERTY_SCORE_NAME = "scoreName";
+
+    /**
+     * Default value for {@link #PROPERTY_SCORE_NAME}.
+     */
+    public static final String DEFAULT_SCORE_NAME = "LemmaFrequency";
+
     // -------------------------------------------------------------------------
     // MEMBERS
     // -------------------------------------------------------------------------
-    private Double defaultNorm = 1.0;
+
     private String normalizationWord;
-    private HashMap<String, Double> frequencies = new HashMap<String, Double>();
-    
+
+    private String scoreName;
+
+    /**
+     * The ids of the words of the frequency list.
+     */
+    private WordTable words = new WordTable();
+
+    /**
+     * The normalized frequency of each word of the {@link #words}, by id.
+     */
+    private float[] scores = new float[0];
+
     // -------------------------------------------------------------------------
     // HELPERS
     // -------------------------------------------------------------------------
-    private List<Double> readInFrequencies(String filename) {
-        BufferedReader br;
-        List<Double> frequs = new ArrayList<Double>();
-        try {
-            br = new BufferedReader(new FileReader(filename));
+
+    /**
+     * Reads the frequency list into the {@link #words} and {@link #scores}.
+     * <p>
+     * Lines without a numeric frequency are skipped. For words that occur more
+     * than once, the last frequency is used.
+     * </p>
+     *
+     * @param filename The path of the frequency list
+     * @throws IOException If the file could not be read
+     */
+    private void readInFrequencies(String filename) throws IOException {
+        WordTable words = new WordTable();
+        float[] frequencies = new float[1024];
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(filename))) {
             String line;
-            double total = 0;
-          
-             while ((line = br.readLine()) != null) {
-                String[] values = line.split(";");
+            while ((line = br.readLine()) != null) {
+                //this is file specific - adjust if other data is used (or adjust the data itself)
+                int wordEnd = line.indexOf(';');
+                if (wordEnd < 0) {
+                    continue;
+                }
+                int frequencyEnd = line.indexOf(';', wordEnd + 1);
+                if (frequencyEnd < 0) {
+                    frequencyEnd = line.length();
+                }
+                float frequency;
                 try {
-                    //this is file specific - adjust if other data is used (or adjust the data itself)
-                    total = Double.parseDouble(values[1]);
-                    
-                    //alternativ ohne die if Bedingung?
-                    if(!frequs.contains(total)) {
-                        frequs.add(total);
-                    }
-                    
-                }catch (NumberFormatException e) {
-                    System.out.println("numberStr " + e + " is not a number");
+                    frequency = Float.parseFloat(
+                        line.substring(wordEnd + 1, frequencyEnd));
+                } catch (NumberFormatException e) {
+                    LOG.warning("Skipping line without frequency: " + line);
+                    continue;
+                }
+                int id = words.add(line.substring(0, wordEnd));
+                if (id == frequencies.length) {
+                    frequencies = Arrays.copyOf(frequencies, id * 2);
                 }
-                frequencies.put(values[0], total);
+                frequencies[id] = frequency;
             }
-        } catch (FileNotFoundException e) {
-            System.out.println("csv file not found");
-            e.printStackTrace();
-        } catch (IOException e) {
-            System.out.println("could not read line in frequencies-csv");
-            e.printStackTrace();
         }
-        return frequs;
-        //printFrequencies();
+        this.words = words;
+        this.scores = Arrays.copyOf(frequencies, words.size());
+        LOG.info("Read " + words.size() + " frequencies from " + filename);
     }
-    
-    @SuppressWarnings("unused")
-    private void printFrequencies() {   
-        for(String word : frequencies.keySet()) {
-            System.out.println("word: " + word + ", total: " + frequencies.get(word));
-        }
-        System.out.println("Total Number of Entries: " + frequencies.size());
+
+    // -------------------------------------------------------------------------
+    // GETTERS
+    // -------------------------------------------------------------------------
+
+    @Override
+    public Set<Layer> getRequiredLayers() {
+        return Set.of(Layer.TOKEN, Layer.LEMMA);
+    }
+
+    @Override
+    public Set<Layer> getProducedLayers() {
+        return Set.of();
+    }
+
+    /**
+     * Gets the normalized frequency of a word.
+     *
+     * @param word The word, in any case
+     * @return The score, which is 0 for words not in the frequency list
+     */
+    public double getScore(CharSequence word) {
+        int id = words.indexOf(word);
+        return id == WordTable.NO_ID ? 0 : scores[id];
     }
 
     // -------------------------------------------------------------------------
     // CONFIGURATION
     // -------------------------------------------------------------------------
-    
+
     @Override
     public void configure(Properties properties) {
-        
-        normalizationWord = properties.getProperty(NORM_WORD);
-        List<Double> frequencies = readInFrequencies(properties.getProperty(FREQUENCIES_DATA));
-        
-        determineMiddleFrequency(frequencies);
-        normalizeScores();
+        normalizationWord = properties.getProperty(PROPERTY_NORMALIZATION_WORD);
+        scoreName = properties.getProperty(
+            PROPERTY_SCORE_NAME, DEFAULT_SCORE_NAME);
+        try {
+            readInFrequencies(
+                properties.getProperty(PROPERTY_FREQUENCIES_DATA));
+        } catch (IOException e) {
+            LOG.severe(e.toString());
+            throw new UncheckedIOException(e);
+        }
+
+        // sorted once, for both the median and the quantiles
+        float[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        String normalization = properties.getProperty(
+            PROPERTY_NORMALIZATION, DEFAULT_NORMALIZATION);
+        switch (normalization) {
+        case NORMALIZATION_WORD:
+            normalizeScores(determineMiddleFrequency(sorted));
+            break;
+        case NORMALIZATION_QUANTILE:
+            normalizeQuantiles(sorted);
+            break;
+        default:
+            throw new IllegalArgumentException(
+                "Unknown " + PROPERTY_NORMALIZATION + ": " + normalization);
+        }
     }
-    
-    private void determineMiddleFrequency(List<Double> frequencies) {
-        Collections.sort(frequencies);
-        defaultNorm = frequencies.get(frequencies.size()/2);
+
+    /**
+     * Gets the median of the distinct frequencies.
+     *
+     * @param sorted All frequencies in ascending order
+     * @return The median or 1 if there are none
+     */
+    private static float determineMiddleFrequency(float[] sorted) {
+        int distinct = 0;
+        for (int f = 0; f < sorted.length; ++f) {
+            if (f == 0 || sorted[f] != sorted[f - 1]) {
+                ++distinct;
+            }
+        }
+        int middle = distinct / 2;
+        for (int f = 0; f < sorted.length; ++f) {
+            if (f == 0 || sorted[f] != sorted[f - 1]) {
+                if (middle-- == 0) {
+                    return sorted[f];
+                }
+            }
+        }
+        return 1;
     }
-    
-    private void normalizeScores() {
+
+    /**
+     * Divides all frequencies by that of the normalization word.
+     *
+     * @param defaultNorm The frequency to divide by if the normalization word
+     * is not in the list
+     */
+    private void normalizeScores(float defaultNorm) {
         //TODO The scores are currently displayed in the scientific notation,
         //they need formating later IF we want to use/display them
-        
-        Double normFrequ = frequencies.get(normalizationWord);
-        if(normFrequ.equals(null)) {
-            normFrequ = defaultNorm;
+
+        float normFrequ = defaultNorm;
+        if (normalizationWord != null) {
+            int id = words.indexOf(normalizationWord);
+            if (id != WordTable.NO_ID) {
+                normFrequ = scores[id];
+            }
         }
-        
+
         //normalize all scores by the set frequency
-        for(String word : frequencies.keySet()) {
-            frequencies.put(word, frequencies.get(word)/normFrequ);
+        for (int id = 0; id < scores.length; ++id) {
+            scores[id] /= normFrequ;
+        }
+    }
+
+    /**
+     * Replaces all frequencies by the fraction of words that are less
+     * frequent.
+     *
+     * @param sorted All frequencies in ascending order, used as quantile table
+     */
+    private void normalizeQuantiles(float[] sorted) {
+        for (int id = 0; id < scores.length; ++id) {
+            scores[id] = (float) lowerBound(sorted, scores[id]) / sorted.length;
+        }
+    }
+
+    /**
+     * Gets the index of the first value that is not less than a key.
+     *
+     * @param sorted The values in ascending order
+     * @param key The key
+     * @return The index
+     */
+    private static int lowerBound(float[] sorted, float key) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
         }
-        //printFrequencies();
+        return low;
     }
-    
+
     // -------------------------------------------------------------------------
     // FUNCTIONALITY
     // -------------------------------------------------------------------------
-    
+
     @Override
     public void accept(JCas jCas) {
-        FSIterator<Annotation> tokenIter = 
-        jCas.getAnnotationIndex(Token.type).iterator();
-        
-        while (tokenIter.hasNext()){
-            Token token = (Token) tokenIter.next();
-            this.scoreToken(jCas, token);
-        }		
+        TokenView view = TokenView.of(jCas);
+
+        for (int t = 0; t < view.size(); ++t) {
+            this.scoreToken(view.getToken(t), view.getLemma(t));
+        }
     }
-    
+
     /**
      * Scores the given token with a frequency
-     * 
-     * @param jCas The JCas Object that contains the token
+     *
      * @param token Token that is supposed to be scored
+     * @param lemma The lemma of the token
      */
-    private void scoreToken(JCas jCas, Token token) {
-        
-        //String word =   token.getCoveredText();
-    	String lemma = token.getLemma();
-        double score = 0;
-        
-        if(frequencies.get(lemma) != null) {
-            score = frequencies.get(lemma);
-        }
-        
+    private void scoreToken(Token token, String lemma) {
+        double score = lemma == null ? 0 : getScore(lemma);
+
         //Do not add a score for tokens that would get a score above or equal to 1
         if(score < 1) {
-            Scores.add(token, lemma, score);
+            final ScoreBatch batch = Scores.batch(token);
+            batch.add(scoreName, score);
+            batch.commit();
         }
-        //System.out.println("lemma: " + word + ", Score: " + score);
     }
 
 }
@@ -0,0 +1,106 @@
+package de.aitools.ie.stanford;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+import org.apache.uima.jcas.JCas;
+
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+import de.webis.writing.pipeline.DocumentCaches;
+import edu.stanford.nlp.ling.CoreLabel;
+
+/**
+ * The CoreNLP tokens of the sentences of a JCas, kept outside of the CAS.
+ * <p>
+ * The {@link Tokenizer} puts the {@link CoreLabel}s it created for a
+ * document here, so that later Stanford components (like the
+ * {@link StanfordDependencyParser}) can use them directly instead of creating
+ * them anew from the {@link Token}s.
+ * </p><p>
+ * The labels of a JCas are dropped with the JCas or once it is released
+ * (see {@link DocumentCaches}), and they are not returned anymore once the
+ * document text or the number of sentences changes.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class StanfordCoreLabels {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The labels for each JCas, which are dropped with their JCas.
+   */
+  private static final Map<JCas, StanfordCoreLabels> LABELS =
+      Collections.synchronizedMap(new WeakHashMap<JCas, StanfordCoreLabels>());
+
+  static {
+    DocumentCaches.register(StanfordCoreLabels::remove);
+  }
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The document text the labels were created for.
+   */
+  private final String documentText;
+
+  private final List<List<CoreLabel>> sentences;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private StanfordCoreLabels(
+      final String documentText, final List<List<CoreLabel>> sentences) {
+    this.documentText = documentText;
+    this.sentences = sentences;
+  }
+
+  /**
+   * Sets the labels of a JCas.
+   * @param jCas The JCas
+   * @param sentences The labels of each {@link Sentence} of the JCas, in the
+   * order of the annotation index
+   */
+  public static void put(
+      final JCas jCas, final List<List<CoreLabel>> sentences) {
+    LABELS.put(Objects.requireNonNull(jCas),
+        new StanfordCoreLabels(jCas.getDocumentText(), sentences));
+  }
+
+  /**
+   * Gets the labels of a JCas.
+   * @param jCas The JCas
+   * @return The labels of each {@link Sentence} of the JCas, in the order of
+   * the annotation index, or <code>null</code> if none were put for the
+   * current document and sentences
+   */
+  public static List<List<CoreLabel>> get(final JCas jCas) {
+    final StanfordCoreLabels labels = LABELS.get(jCas);
+    if (labels == null
+        || labels.documentText != jCas.getDocumentText()
+        || labels.sentences.size()
+          != jCas.getAnnotationIndex(Sentence.type).size()) {
+      return null;
+    }
+    return labels.sentences;
+  }
+
+  /**
+   * Removes the labels of a JCas.
+   * @param jCas The JCas
+   */
+  public static void remove(final JCas jCas) {
+    LABELS.remove(jCas);
+  }
+
+}
@@ -1,18 +1,33 @@
 package de.aitools.ie.stanford;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.uima.cas.FSIterator;
-import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.tcas.Annotation;
 
 import de.aitools.commons.uima.core.Sentence;
 import de.aitools.commons.uima.core.Token;
 import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+import de.webis.writing.ParagraphChunks;
+import de.webis.writing.ParseCoverage;
+import de.webis.writing.ParseCoverage.Degradation;
+import de.webis.writing.TokenView;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.parser.nndep.DependencyParser;
 import edu.stanford.nlp.ling.CoreAnnotations.ChunkAnnotation;
@@ -32,6 +47,34 @@ import edu.stanford.nlp.trees.TypedDependency;
  * The output of the analysis are the <code>parent</code> and
  * <code>depLabel</code> features of the {@link Token}s.
  * </p><p>
+ * The sentences of a document can be parsed on several threads (see
+ * {@link #PROPERTY_PARALLELISM}). As each sentence is parsed on its own and
+ * the dependencies are added in document order afterwards, the result is the
+ * same as when parsing sequentially.
+ * </p><p>
+ * To bound the parsing time, sentences with more than
+ * {@link #PROPERTY_MAX_SENTENCE_TOKENS} tokens are split at clause
+ * punctuation (or not parsed if that does not suffice), and sentences are
+ * not parsed once the {@link #PROPERTY_TIME_BUDGET} of a document is used
+ * up. These sentences are recorded in the {@link ParseCoverage} of the
+ * document. As parsing a segment that was started is not interrupted, a time
+ * budget also limits the tokens parsed together (to
+ * {@link #BUDGET_MAX_SENTENCE_TOKENS} unless set), so that a document takes
+ * at most the parsing time of one such segment per thread longer.
+ * </p><p>
+ * Parses can be cached in a {@link ParseCache} (see {@link #PROPERTY_CACHE}),
+ * so that sentences that were parsed before, also in earlier runs, are not
+ * parsed again.
+ * </p><p>
+ * If {@link #PROPERTY_CHUNK_LENGTH} is set, the sentences of longer
+ * documents are parsed in chunks of whole paragraphs (see
+ * {@link ParagraphChunks}), so that the memory for the parses of a document
+ * stays bounded.
+ * </p><p>
+ * If the sentences were tokenized by a {@link Tokenizer}, the parser uses
+ * the CoreNLP tokens of the tokenizer (see {@link StanfordCoreLabels})
+ * instead of creating them anew from the {@link Token}s.
+ * </p><p>
  * This class is based on the wrapper for the stanford parser in
  * the <a href="https://git.webis.de/code-lib/aitools/aitools4-ie-uima/-/blob/
 master/src/main/java/de/aitools/ie/uima/analysis/parsing/
@@ -41,7 +84,8 @@ StanfordParser.java">aitools-ie-uima</a>-project.
  * @author lukas.peter.trautner@uni-weimar.de
  *
  */
-public class StanfordDependencyParser extends AnalysisEngineComponent {
+public class StanfordDependencyParser extends AnalysisEngineComponent
+implements LayerComponent, AutoCloseable {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -58,15 +102,131 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
    */
   private static final String DEFAULT_MODEL = DependencyParser.DEFAULT_MODEL;
   
+  /**
+   * Configuration option that specifies on how many threads the sentences of
+   * one document are parsed. A value of 0 or below uses one thread per
+   * available processor.
+   */
+  public static final String PROPERTY_PARALLELISM = "parallelism";
+  
+  /**
+   * Default value for {@link #PROPERTY_PARALLELISM}.
+   */
+  private static final String DEFAULT_PARALLELISM = "1";
+  
+  /**
+   * Configuration option that specifies the path of the file in which parses
+   * are cached. If not given, parses are not cached.
+   */
+  public static final String PROPERTY_CACHE = "cache";
+  
+  /**
+   * Configuration option that specifies how many parses the cache keeps on
+   * the heap.
+   */
+  public static final String PROPERTY_CACHE_HEAP_PARSES = "cacheHeapParses";
+  
+  /**
+   * Default value for {@link #PROPERTY_CACHE_HEAP_PARSES}.
+   */
+  private static final String DEFAULT_CACHE_HEAP_PARSES = "100000";
+  
+  /**
+   * Configuration option that specifies the size in bytes of the cache file,
+   * if it is created.
+   */
+  public static final String PROPERTY_CACHE_CAPACITY = "cacheCapacity";
+  
+  /**
+   * Default value for {@link #PROPERTY_CACHE_CAPACITY}.
+   */
+  private static final String DEFAULT_CACHE_CAPACITY = "268435456";
+  
+  /**
+   * Configuration option that specifies the maximum number of tokens that
+   * are parsed together. Longer sentences are split at clause punctuation.
+   * A value of 0 or below sets no limit.
+   */
+  public static final String PROPERTY_MAX_SENTENCE_TOKENS =
+      "maxSentenceTokens";
+  
+  /**
+   * Default value for {@link #PROPERTY_MAX_SENTENCE_TOKENS}.
+   */
+  private static final String DEFAULT_MAX_SENTENCE_TOKENS = "0";
+  
+  /**
+   * The maximum number of tokens that are parsed together if a
+   * {@link #PROPERTY_TIME_BUDGET} but no
+   * {@link #PROPERTY_MAX_SENTENCE_TOKENS} is set.
+   */
+  public static final int BUDGET_MAX_SENTENCE_TOKENS = 80;
+  
+  /**
+   * Configuration option that specifies the time in milliseconds after which
+   * no more sentences of a document are parsed. A value of 0 or below sets
+   * no limit. Otherwise, at most {@link #BUDGET_MAX_SENTENCE_TOKENS} tokens
+   * are parsed together unless {@link #PROPERTY_MAX_SENTENCE_TOKENS} is set.
+   */
+  public static final String PROPERTY_TIME_BUDGET = "timeBudget";
+  
+  /**
+   * Default value for {@link #PROPERTY_TIME_BUDGET}.
+   */
+  private static final String DEFAULT_TIME_BUDGET = "0";
+  
+  /**
+   * Configuration option that specifies the maximum number of characters of
+   * a document whose sentences are parsed together. The sentences of longer
+   * documents are parsed in chunks of paragraphs of at most this length, if
+   * possible. A value of 0 or below sets no limit.
+   */
+  public static final String PROPERTY_CHUNK_LENGTH = "chunkLength";
+  
+  /**
+   * Default value for {@link #PROPERTY_CHUNK_LENGTH}.
+   */
+  private static final String DEFAULT_CHUNK_LENGTH =
+      String.valueOf(ParagraphChunks.DEFAULT_MAX_LENGTH);
+  
+  /**
+   * Factory for the labels of sentences that were not tokenized by a
+   * {@link Tokenizer}, which is stateless and can thus be shared.
+   */
+  private static final CoreLabelTokenFactory TOKEN_FACTORY =
+      new CoreLabelTokenFactory();
+  
   // -------------------------------------------------------------------------
   // MEMBERS
   // -------------------------------------------------------------------------
   
   /**
-   * The dependency parser.
+   * The dependency parser acquired from the {@link StanfordModels}.
    */
   private DependencyParser parser;
   
+  /**
+   * The location of the model, from which the parser is loaded on first use.
+   */
+  private String model;
+  
+  /**
+   * The pool on which the sentences of a document are parsed in parallel, or
+   * <code>null</code> if they are parsed in the calling thread.
+   */
+  private ForkJoinPool pool;
+  
+  /**
+   * The cache of parses, or <code>null</code> if parses are not cached.
+   */
+  private ParseCache cache;
+  
+  private int maxSentenceTokens;
+  
+  private long timeBudget;
+  
+  private int chunkLength;
+  
   // -------------------------------------------------------------------------
   // CONSTRUCTORS
   // -------------------------------------------------------------------------
@@ -76,6 +236,12 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
    */
   public StanfordDependencyParser() {
     this.parser = null;
+    this.model = DEFAULT_MODEL;
+    this.pool = null;
+    this.cache = null;
+    this.maxSentenceTokens = 0;
+    this.timeBudget = 0;
+    this.chunkLength = Integer.parseInt(DEFAULT_CHUNK_LENGTH);
   }
   
   // -------------------------------------------------------------------------
@@ -83,16 +249,88 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
   // -------------------------------------------------------------------------
   
   /**
-   * Gets the internal dependency parser.
+   * Gets the internal dependency parser, loading it if needed.
+   * <p>
+   * The model is loaded on first use, so that it is not loaded if this
+   * component is skipped in a pipeline. Parsers are shared by all components
+   * with the same model, so that each is loaded only once per process.
+   * </p>
    * 
    * @return The dependency parser
    * 
    * @see #setParser(DependencyParser)
    */
-  public DependencyParser getParser() {
+  public synchronized DependencyParser getParser() {
+    if (this.parser == null) {
+      this.setParser(StanfordModels.acquireParser(this.model));
+    }
     return this.parser;
   }
   
+  /**
+   * Gets the pool on which the sentences of a document are parsed in
+   * parallel.
+   * 
+   * @return The pool or <code>null</code> if they are parsed in the calling
+   * thread
+   */
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+  
+  /**
+   * Gets the cache of parses.
+   * 
+   * @return The cache or <code>null</code> if parses are not cached
+   */
+  public ParseCache getCache() {
+    return this.cache;
+  }
+  
+  /**
+   * Gets the maximum number of tokens that are parsed together.
+   * 
+   * @return The number, or 0 or below for no limit
+   * 
+   * @see #PROPERTY_MAX_SENTENCE_TOKENS
+   */
+  public int getMaxSentenceTokens() {
+    return this.maxSentenceTokens;
+  }
+  
+  /**
+   * Gets the time after which no more sentences of a document are parsed.
+   * 
+   * @return The time in milliseconds, or 0 or below for no limit
+   * 
+   * @see #PROPERTY_TIME_BUDGET
+   */
+  public long getTimeBudget() {
+    return this.timeBudget;
+  }
+  
+  /**
+   * Gets the maximum number of characters of a document whose sentences are
+   * parsed together.
+   * 
+   * @return The number, or 0 or below for no limit
+   * 
+   * @see #PROPERTY_CHUNK_LENGTH
+   */
+  public int getChunkLength() {
+    return this.chunkLength;
+  }
+  
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return Set.of(Layer.TOKEN, Layer.SENTENCE, Layer.POS);
+  }
+  
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of(Layer.DEPENDENCY);
+  }
+  
   // -------------------------------------------------------------------------
   // GETTERS
   // -------------------------------------------------------------------------
@@ -108,15 +346,89 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
     this.parser = parser;
   }
   
+  /**
+   * Sets on how many threads the sentences of a document are parsed.
+   * 
+   * @param parallelism The number of threads, where 1 parses the sentences in
+   * the calling thread and 0 or below uses one thread per available processor
+   * 
+   * @see #PROPERTY_PARALLELISM
+   */
+  public void setParallelism(final int parallelism) {
+    if (this.pool != null) {
+      this.pool.shutdown();
+    }
+    if (parallelism == 1) {
+      this.pool = null;
+    } else if (parallelism <= 0) {
+      this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    } else {
+      this.pool = new ForkJoinPool(parallelism);
+    }
+  }
+  
   // -------------------------------------------------------------------------
   // CONFIGURATION
   // -------------------------------------------------------------------------
 
   @Override
-  public void configure(final Properties properties) {
-    final String model =
-        properties.getProperty(PROPERTY_MODEL, DEFAULT_MODEL);
-    this.setParser(DependencyParser.loadFromModelFile(model));
+  public synchronized void configure(final Properties properties) {
+    this.model = properties.getProperty(PROPERTY_MODEL, DEFAULT_MODEL);
+    this.setParallelism(Integer.parseInt(
+        properties.getProperty(PROPERTY_PARALLELISM, DEFAULT_PARALLELISM)));
+    this.maxSentenceTokens = Integer.parseInt(properties.getProperty(
+        PROPERTY_MAX_SENTENCE_TOKENS, DEFAULT_MAX_SENTENCE_TOKENS));
+    this.timeBudget = Long.parseLong(properties.getProperty(
+        PROPERTY_TIME_BUDGET, DEFAULT_TIME_BUDGET));
+    if (this.timeBudget > 0 && this.maxSentenceTokens <= 0) {
+      // the budget is checked before each segment only
+      this.maxSentenceTokens = BUDGET_MAX_SENTENCE_TOKENS;
+    }
+    this.chunkLength = Integer.parseInt(properties.getProperty(
+        PROPERTY_CHUNK_LENGTH, DEFAULT_CHUNK_LENGTH));
+    final String cachePath = properties.getProperty(PROPERTY_CACHE);
+    if (cachePath == null) {
+      this.cache = null;
+    } else {
+      try {
+        this.cache = ParseCache.open(Paths.get(cachePath),
+            Integer.parseInt(properties.getProperty(
+                PROPERTY_CACHE_HEAP_PARSES, DEFAULT_CACHE_HEAP_PARSES)),
+            Integer.parseInt(properties.getProperty(
+                PROPERTY_CACHE_CAPACITY, DEFAULT_CACHE_CAPACITY)));
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    this.releaseParser();
+  }
+
+  @Override
+  public void warmUp() {
+    StanfordModels.warmUp(this.getParser());
+  }
+
+  /**
+   * Releases the internal dependency parser, so that it is unloaded if no
+   * other component uses it, and shuts the {@link #getPool() pool} down.
+   * <p>
+   * The parser is acquired again when it is used next, and the sentences of
+   * later documents are parsed in the calling thread.
+   * </p>
+   */
+  @Override
+  public synchronized void close() {
+    this.releaseParser();
+    this.setParallelism(1);
+  }
+
+  /**
+   * Releases the internal dependency parser, so that it is unloaded if no
+   * other component uses it.
+   */
+  private synchronized void releaseParser() {
+    StanfordModels.release(this.parser);
+    this.setParser(null);
   }
   
   // -------------------------------------------------------------------------
@@ -125,16 +437,272 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
 
   @Override
   public void accept(final JCas jCas) {
+    final long start = System.nanoTime();
+    final TokenView view = TokenView.of(jCas);
+    // reuse the labels of the tokenizer where they match the tokens
+    final List<List<CoreLabel>> tokenizerLabels =
+        StanfordCoreLabels.get(jCas);
+    StanfordCoreLabels.remove(jCas);
+    final List<Sentence> sentences = new ArrayList<Sentence>();
     final FSIterator<Annotation> iterator =
         jCas.getAnnotationIndex(Sentence.type).iterator();
     while (iterator.hasNext()) {
-      final Sentence sentence = (Sentence) iterator.next();
-      final List<Token> tokens =
-          JCasUtil.selectCovered(Token.class, sentence);
-      final List<CoreLabel> coreLabels = this.tokensToCoreLabel(tokens);
-      final Collection<TypedDependency> dependencies =
-          this.getParser().predict(coreLabels).typedDependenciesCollapsed();
-      this.addDependencies(tokens, dependencies);
+      sentences.add((Sentence) iterator.next());
+    }
+
+    // parse chunk by chunk, so that the parses of only one chunk are held
+    // at once
+    ParseCoverage.remove(jCas);
+    int first = 0;
+    for (final int[] chunk
+        : ParagraphChunks.of(jCas, this.getChunkLength())) {
+      int limit = first;
+      while (limit < sentences.size()
+          && sentences.get(limit).getBegin() < chunk[1]) {
+        ++limit;
+      }
+      if (limit > first) {
+        this.accept(jCas, view, sentences.subList(first, limit),
+            tokenizerLabels == null
+              ? null : tokenizerLabels.subList(first, limit),
+            start);
+      }
+      first = limit;
+    }
+    // labels and parents changed
+    TokenView.invalidate(jCas);
+  }
+
+  /**
+   * Parses sentences of a document and records those whose parse is
+   * degraded in the {@link ParseCoverage}.
+   * 
+   * @param jCas The document
+   * @param view The token view of the document
+   * @param sentences The sentences
+   * @param tokenizerLabels The CoreLabels of the {@link Tokenizer} for each
+   * sentence, or <code>null</code> for none
+   * @param start The {@link System#nanoTime()} at which the time budget
+   * started
+   */
+  private void accept(final JCas jCas, final TokenView view,
+      final List<Sentence> sentences,
+      final List<List<CoreLabel>> tokenizerLabels, final long start) {
+    final List<List<Token>> sentenceTokens = new ArrayList<List<Token>>();
+    final List<List<CoreLabel>> sentenceLabels =
+        new ArrayList<List<CoreLabel>>();
+    for (final Sentence sentence : sentences) {
+      final List<Token> tokens = view.getTokens(sentence);
+      final List<CoreLabel> labels = tokenizerLabels == null
+          ? null : tokenizerLabels.get(sentenceTokens.size());
+      sentenceTokens.add(tokens);
+      if (labels != null && this.matches(labels, tokens)) {
+        this.resetWords(labels, tokens);
+        sentenceLabels.add(labels);
+      } else {
+        sentenceLabels.add(this.tokensToCoreLabel(tokens));
+      }
+    }
+
+    // divide sentences into the parts that are parsed: {sentence, first, limit}
+    final int numSentences = sentences.size();
+    final Degradation[] degradations = new Degradation[numSentences];
+    final List<int[]> parts = new ArrayList<int[]>(numSentences);
+    for (int s = 0; s < numSentences; ++s) {
+      final List<int[]> segments = this.segment(sentenceLabels.get(s));
+      if (segments == null) {
+        degradations[s] = Degradation.TOKEN_LIMIT;
+      } else {
+        if (segments.size() > 1) {
+          degradations[s] = Degradation.SPLIT;
+        }
+        for (final int[] segment : segments) {
+          parts.add(new int[] { s, segment[0], segment[1] });
+        }
+      }
+    }
+    final int numParts = parts.size();
+    final List<List<CoreLabel>> partLabels =
+        new ArrayList<List<CoreLabel>>(numParts);
+    for (final int[] part : parts) {
+      partLabels.add(sentenceLabels.get(part[0]).subList(part[1], part[2]));
+    }
+
+    // look up cached parses
+    final ParseCache cache = this.getCache();
+    final ParseCache.Key[] keys = new ParseCache.Key[numParts];
+    final ParseCache.Parse[] parses = new ParseCache.Parse[numParts];
+    final List<Integer> toParse = new ArrayList<Integer>(numParts);
+    for (int p = 0; p < numParts; ++p) {
+      if (cache != null) {
+        keys[p] = ParseCache.key(this.model, partLabels.get(p));
+        parses[p] = cache.get(keys[p]);
+      }
+      if (parses[p] == null) {
+        toParse.add(p);
+      }
+    }
+
+    // the CAS is only read and written in the calling thread
+    final List<List<CoreLabel>> uncachedLabels =
+        new ArrayList<List<CoreLabel>>(toParse.size());
+    for (final int p : toParse) {
+      uncachedLabels.add(partLabels.get(p));
+    }
+    final List<ParseCache.Parse> uncachedParses =
+        this.parse(uncachedLabels, start);
+    for (int u = 0; u < toParse.size(); ++u) {
+      final int p = toParse.get(u);
+      parses[p] = uncachedParses.get(u);
+      if (parses[p] == null) {
+        degradations[parts.get(p)[0]] = Degradation.TIME_BUDGET;
+      } else if (cache != null) {
+        cache.put(keys[p], parses[p]);
+      }
+    }
+
+    for (int p = 0; p < numParts; ++p) {
+      final int[] part = parts.get(p);
+      if (degradations[part[0]] != Degradation.TIME_BUDGET) {
+        this.setDependencies(
+            sentenceTokens.get(part[0]).subList(part[1], part[2]), parses[p]);
+      }
+    }
+    for (int s = 0; s < numSentences; ++s) {
+      if (degradations[s] != null) {
+        ParseCoverage.of(jCas).add(sentences.get(s).getBegin(),
+            sentences.get(s).getEnd(), degradations[s]);
+      }
+    }
+  }
+  
+  /**
+   * Divides a sentence into segments of at most
+   * {@link #getMaxSentenceTokens()} tokens.
+   * <p>
+   * Longer sentences are split after clause punctuation (tagged as
+   * <code>,</code> or <code>:</code>), where as many clauses as possible are
+   * put into each segment.
+   * </p>
+   * 
+   * @param coreLabels The CoreLabels of the sentence
+   * @return The first and limit token index of each segment, or
+   * <code>null</code> if a clause is too long
+   */
+  private List<int[]> segment(final List<CoreLabel> coreLabels) {
+    final int maxTokens = this.getMaxSentenceTokens();
+    final int numTokens = coreLabels.size();
+    if (maxTokens <= 0 || numTokens <= maxTokens) {
+      return List.of(new int[] { 0, numTokens });
+    }
+
+    final List<int[]> segments = new ArrayList<int[]>();
+    int first = 0;
+    int clauseFirst = 0;
+    for (int t = 0; t < numTokens; ++t) {
+      final String tag = coreLabels.get(t).tag();
+      if (t == numTokens - 1 || ",".equals(tag) || ":".equals(tag)) {
+        final int clauseLimit = t + 1;
+        if (clauseLimit - clauseFirst > maxTokens) {
+          return null;
+        }
+        if (clauseLimit - first > maxTokens) {
+          segments.add(new int[] { first, clauseFirst });
+          first = clauseFirst;
+        }
+        clauseFirst = clauseLimit;
+      }
+    }
+    segments.add(new int[] { first, numTokens });
+    return segments;
+  }
+  
+  /**
+   * Parses sentences, on the {@link #getPool() pool} if there is one.
+   * <p>
+   * Sentences whose parsing would start after the
+   * {@link #getTimeBudget()} is used up are not parsed. Sentences whose
+   * parsing started are parsed completely, so that the budget is exceeded
+   * by at most the parsing time of one sentence per thread.
+   * </p>
+   * 
+   * @param sentenceLabels The CoreLabels of each sentence
+   * @param start The {@link System#nanoTime()} at which the time budget
+   * started
+   * @return The parse of each sentence, in the same order, or
+   * <code>null</code> for sentences that were not parsed
+   */
+  private List<ParseCache.Parse> parse(
+      final List<List<CoreLabel>> sentenceLabels, final long start) {
+    final DependencyParser parser = this.getParser();
+    final long budget = this.getTimeBudget() * 1000000L;
+    final IntFunction<ParseCache.Parse> parseSentence = s -> {
+      if (budget > 0 && System.nanoTime() - start > budget) {
+        return null;
+      }
+      final List<CoreLabel> coreLabels = sentenceLabels.get(s);
+      return this.toParse(coreLabels.size(),
+          parser.predict(coreLabels).typedDependenciesCollapsed());
+    };
+
+    final ForkJoinPool pool = this.getPool();
+    if (pool == null || sentenceLabels.size() <= 1) {
+      final List<ParseCache.Parse> parses =
+          new ArrayList<ParseCache.Parse>(sentenceLabels.size());
+      for (int s = 0; s < sentenceLabels.size(); ++s) {
+        parses.add(parseSentence.apply(s));
+      }
+      return parses;
+    }
+    return pool.submit(() -> IntStream.range(0, sentenceLabels.size())
+        .parallel()
+        .mapToObj(parseSentence)
+        .collect(Collectors.toList())).join();
+  }
+  
+  /**
+   * Checks whether {@link CoreLabel}s of the tokenizer still correspond to
+   * the {@link Token}s, so that they can be parsed instead.
+   * 
+   * @param labels The CoreLabels
+   * @param tokens The tokens
+   * @return Whether both have the same spans and part-of-speech tags
+   */
+  private boolean matches(
+      final List<CoreLabel> labels, final List<Token> tokens) {
+    if (labels.size() != tokens.size()) { return false; }
+    for (int t = 0; t < tokens.size(); ++t) {
+      final CoreLabel label = labels.get(t);
+      final Token token = tokens.get(t);
+      if (label.beginPosition() != token.getBegin()
+          || label.endPosition() != token.getEnd()
+          || !Objects.equals(label.tag(), token.getPos())) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Sets the words of {@link CoreLabel}s of the tokenizer to the covered text
+   * of their {@link Token}s.
+   * <p>
+   * The tokenizer normalizes words (e.g., "(" to "-LRB-"), whereas labels
+   * created from tokens use the covered text. Resetting the words makes the
+   * parse and its {@link ParseCache} key independent of which labels are
+   * used.
+   * </p>
+   * 
+   * @param labels The CoreLabels, which match the tokens
+   * @param tokens The tokens
+   */
+  private void resetWords(
+      final List<CoreLabel> labels, final List<Token> tokens) {
+    for (int t = 0; t < tokens.size(); ++t) {
+      final CoreLabel label = labels.get(t);
+      final String text = tokens.get(t).getCoveredText();
+      label.setWord(text);
+      label.setValue(text);
     }
   }
   
@@ -145,13 +713,12 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
    * @return The CoreLabels
    */
   private List<CoreLabel> tokensToCoreLabel(final List<Token> tokens) {
-    final CoreLabelTokenFactory factory = new CoreLabelTokenFactory();
-    final List<CoreLabel> coreLabels = new ArrayList<CoreLabel>();
+    final List<CoreLabel> coreLabels = new ArrayList<CoreLabel>(tokens.size());
     for (final Token token : tokens) {
       final String text = token.getCoveredText();
       final int begin = token.getBegin();
       final int length = token.getEnd() - begin;
-      final CoreLabel coreLabel = factory.makeToken(text, begin, length);
+      final CoreLabel coreLabel = TOKEN_FACTORY.makeToken(text, begin, length);
       coreLabel.set(LemmaAnnotation.class, token.getLemma());
       coreLabel.set(StemAnnotation.class, token.getStem());
       coreLabel.set(PartOfSpeechAnnotation.class, token.getPos());
@@ -162,40 +729,46 @@ public class StanfordDependencyParser extends AnalysisEngineComponent {
   }
   
   /**
-   * Adds the specified dependencies to the tokens of a sentence.
+   * Converts the dependencies of a sentence to a parse.
    * <p>
    * Dependencies that have "ROOT" as its governor are not added.
    * </p>
-   * @param tokens The tokens from which the complete parse tree was created
+   * @param numTokens The number of tokens of the sentence
    * @param dependencies The dependencies created by the {@link #parser}
+   * @return The parse
    */
-
-  private void addDependencies(
-      final List<Token> tokens,
+  private ParseCache.Parse toParse(
+      final int numTokens,
       final Collection<TypedDependency> dependencies) {
+    final int[] parents = new int[numTokens];
+    final String[] labels = new String[numTokens];
+    Arrays.fill(parents, ParseCache.NO_PARENT);
     for (final TypedDependency dependency : dependencies) {
-      this.addDependency(tokens, dependency);
+      if (dependency.gov().index() == 0)
+        continue;
+      final int dependent = dependency.dep().index() - 1;
+      parents[dependent] = dependency.gov().index() - 1;
+      labels[dependent] = dependency.reln().getShortName();
     }
+    return new ParseCache.Parse(parents, labels);
   }
   
   /**
-   * Adds the specified dependency to the tokens of a sentence.
-   * <p>
-   * If the dependency has "ROOT" as its governor it is not added.
-   * </p>
+   * Sets the parents and dependency labels of the tokens of a sentence.
    * @param tokens The tokens from which the complete parse tree was created
-   * @param dependency A dependency created by the {@link #parser}
+   * @param parse The parse of the tokens
    */
-
-  private void addDependency(
+  private void setDependencies(
       final List<Token> tokens,
-      final TypedDependency dependency) {
-    if (dependency.gov().index() == 0)
-      return;
-    final Token dependent = tokens.get(dependency.dep().index() - 1);
-    final Token governor = tokens.get(dependency.gov().index() - 1);
-    dependent.setParent(governor);
-    dependent.setDepLabel(dependency.reln().getShortName());
+      final ParseCache.Parse parse) {
+    for (int t = 0; t < tokens.size(); ++t) {
+      final int parent = parse.getParent(t);
+      if (parent != ParseCache.NO_PARENT) {
+        final Token dependent = tokens.get(t);
+        dependent.setParent(tokens.get(parent));
+        dependent.setDepLabel(parse.getLabel(t));
+      }
+    }
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,259 @@
+package de.aitools.ie.stanford;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
+import edu.stanford.nlp.ling.CoreAnnotations.TokensAnnotation;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.parser.nndep.DependencyParser;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * Process-wide registry of Stanford models, so that each model is loaded once
+ * per JVM and shared by all components that use it.
+ * <p>
+ * Components {@link #acquirePipeline(String)} or
+ * {@link #acquireParser(String)} a model when they first need it and
+ * {@link #release(Object)} it when they no longer do. A model is loaded by the
+ * first thread that acquires it, while other threads that acquire the same
+ * model wait for it, and it is unloaded when the last reference is released.
+ * Both CoreNLP pipelines and dependency parsers can be used by several threads
+ * at once.
+ * </p><p>
+ * A model can be {@link #warmUp(Object)}ed by annotating a short text, so
+ * that the first document does not pay for class loading and compilation.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class StanfordModels {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(StanfordModels.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The text that is annotated to warm up a model.
+   */
+  public static final String WARM_UP_TEXT =
+      "The quick brown fox jumps over the lazy dog. "
+      + "When the committee met on Tuesday, it did not approve the budget, "
+      + "although several members had argued for it. "
+      + "Prices rose by 3.5 percent in March, according to the report.";
+
+  /**
+   * The number of times the {@link #WARM_UP_TEXT} is annotated.
+   */
+  public static final int WARM_UP_ROUNDS = 5;
+
+  /**
+   * The loaded models by their key.
+   */
+  private static final Map<String, Model> MODELS =
+      new HashMap<String, Model>();
+
+  /**
+   * The loaded models by their instance.
+   */
+  private static final Map<Object, Model> INSTANCES =
+      new IdentityHashMap<Object, Model>();
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private StanfordModels() { }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets a CoreNLP pipeline with the given annotators, loading it if no
+   * component holds it.
+   * @param annotators The annotators, separated by commas
+   * @return The pipeline, which must be {@link #release(Object)}d when no
+   * longer needed
+   */
+  public static StanfordCoreNLP acquirePipeline(final String annotators) {
+    return acquirePipeline(annotators, 1);
+  }
+
+  /**
+   * Gets a CoreNLP pipeline with the given annotators whose part-of-speech
+   * tagger tags the sentences of a document on several threads, loading it if
+   * no component holds it.
+   * @param annotators The annotators, separated by commas
+   * @param threads The number of threads for tagging
+   * @return The pipeline, which must be {@link #release(Object)}d when no
+   * longer needed
+   */
+  public static StanfordCoreNLP acquirePipeline(
+      final String annotators, final int threads) {
+    final String normalized = annotators.replaceAll("\\s+", "");
+    return acquire("pipeline:" + normalized + ":" + threads, () -> {
+      final Properties properties = new Properties();
+      properties.setProperty("annotators", normalized);
+      properties.setProperty("pos.nthreads", String.valueOf(threads));
+      return new StanfordCoreNLP(properties);
+    });
+  }
+
+  /**
+   * Gets a dependency parser with the given model, loading it if no component
+   * holds it.
+   * @param model The location of the model
+   * @return The parser, which must be {@link #release(Object)}d when no
+   * longer needed
+   */
+  public static DependencyParser acquireParser(final String model) {
+    return acquire("parser:" + model,
+        () -> DependencyParser.loadFromModelFile(model));
+  }
+
+  /**
+   * Releases a model that was acquired from this registry, unloading it if it
+   * is not held anymore.
+   * @param instance The model, or <code>null</code> to do nothing
+   * @throws IllegalArgumentException If the model was not acquired from this
+   * registry or already released by all holders
+   */
+  public static void release(final Object instance) {
+    if (instance == null) { return; }
+    synchronized (MODELS) {
+      final Model model = INSTANCES.get(instance);
+      if (model == null) {
+        throw new IllegalArgumentException("Not an acquired model");
+      }
+      if (--model.references == 0) {
+        MODELS.remove(model.key);
+        INSTANCES.remove(instance);
+        LOG.info("Unloaded " + model.key);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of holders of a model.
+   * @param instance The model
+   * @return The number, which is 0 if the model is not in this registry
+   */
+  public static int getReferences(final Object instance) {
+    synchronized (MODELS) {
+      final Model model = INSTANCES.get(instance);
+      return model == null ? 0 : model.references;
+    }
+  }
+
+  /**
+   * Runs a model on the {@link #WARM_UP_TEXT} for {@link #WARM_UP_ROUNDS}
+   * times.
+   * @param instance A pipeline or parser
+   * @throws IllegalArgumentException If the instance is neither
+   */
+  public static void warmUp(final Object instance) {
+    final long start = System.currentTimeMillis();
+    if (instance instanceof StanfordCoreNLP) {
+      for (int r = 0; r < WARM_UP_ROUNDS; ++r) {
+        ((StanfordCoreNLP) instance).annotate(new Annotation(WARM_UP_TEXT));
+      }
+    } else if (instance instanceof DependencyParser) {
+      // tagged tokens for the parser, without needing a tagger model
+      final Annotation annotation = new Annotation(WARM_UP_TEXT);
+      final StanfordCoreNLP tagger = acquirePipeline("tokenize,ssplit,pos");
+      try {
+        tagger.annotate(annotation);
+      } finally {
+        release(tagger);
+      }
+      for (int r = 0; r < WARM_UP_ROUNDS; ++r) {
+        for (final CoreMap sentence
+            : annotation.get(SentencesAnnotation.class)) {
+          final List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
+          ((DependencyParser) instance).predict(tokens);
+        }
+      }
+    } else {
+      throw new IllegalArgumentException(
+          "Can not warm up " + instance.getClass());
+    }
+    LOG.info("Warmed up " + instance.getClass().getSimpleName() + " in "
+        + (System.currentTimeMillis() - start) + " ms");
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  @SuppressWarnings("unchecked")
+  private static <T> T acquire(final String key, final Supplier<T> loader) {
+    final Model model;
+    synchronized (MODELS) {
+      Model existing = MODELS.get(key);
+      if (existing == null) {
+        existing = new Model(key);
+        MODELS.put(key, existing);
+      }
+      ++existing.references;
+      model = existing;
+    }
+
+    // load outside the registry lock, so that other models can be acquired
+    synchronized (model) {
+      if (model.instance == null) {
+        final long start = System.currentTimeMillis();
+        try {
+          model.instance = loader.get();
+        } catch (final RuntimeException e) {
+          synchronized (MODELS) {
+            if (--model.references == 0) {
+              MODELS.remove(key);
+            }
+          }
+          throw e;
+        }
+        synchronized (MODELS) {
+          INSTANCES.put(model.instance, model);
+        }
+        LOG.info("Loaded " + key + " in "
+            + (System.currentTimeMillis() - start) + " ms");
+      }
+      return (T) model.instance;
+    }
+  }
+
+  /**
+   * A model with the number of its holders.
+   */
+  private static final class Model {
+
+    private final String key;
+
+    private Object instance;
+
+    private int references;
+
+    private Model(final String key) {
+      this.key = key;
+      this.instance = null;
+      this.references = 0;
+    }
+
+  }
+
+}
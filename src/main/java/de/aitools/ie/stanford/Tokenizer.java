@@ -2,8 +2,14 @@ package de.aitools.ie.stanford;
 
 //import java.util.regex.Matcher;
 //import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Properties;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.uima.jcas.JCas;
 
@@ -11,6 +17,10 @@ import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
 import de.aitools.commons.uima.core.Token;
 import de.aitools.commons.uima.core.Document;
 import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Paragraph;
+import de.webis.writing.ParagraphChunks;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
 
 import edu.stanford.nlp.ling.CoreAnnotations.*;
 import edu.stanford.nlp.ling.CoreLabel;
@@ -18,21 +28,106 @@ import edu.stanford.nlp.util.CoreMap;
 import edu.stanford.nlp.pipeline.*;
 
 /**
- * TODO
+ * Annotates the {@link Sentence}s and {@link Token}s of a document, with
+ * part-of-speech tags and lemmas, using Stanford CoreNLP.
+ * <p>
+ * The CoreNLP annotators are configured with {@link #PROPERTY_ANNOTATORS},
+ * but annotators whose layers no later component needs are not run. The
+ * sentences of a document are tagged on several threads (see
+ * {@link #PROPERTY_THREADS}).
+ * </p><p>
+ * If {@link #PROPERTY_CHUNK_LENGTH} is set, documents with more characters are
+ * annotated in chunks of whole {@link Paragraph}s (see
+ * {@link ParagraphChunks}), one after the other, so that the memory CoreNLP
+ * needs for a document stays bounded. Sentences then do not cross
+ * paragraphs.
+ * </p>
  * 
  * @author johanna.sacher@uni-weimar.de
  *
  */
-public class Tokenizer extends AnalysisEngineComponent {
+public class Tokenizer extends AnalysisEngineComponent
+implements LayerComponent, AutoCloseable {
 
     // -------------------------------------------------------------------------
     // CONSTANTS
     // -------------------------------------------------------------------------
     
+    /**
+     * Configuration option that specifies the CoreNLP annotators to run, in
+     * order and separated by commas. Supported are <code>tokenize</code>,
+     * <code>ssplit</code>, <code>pos</code>, and <code>lemma</code>, of which
+     * the first two are required.
+     */
+    public static final String PROPERTY_ANNOTATORS = "annotators";
+    
+    /**
+     * Default value for {@link #PROPERTY_ANNOTATORS}.
+     */
+    private static final String DEFAULT_ANNOTATORS = "tokenize,ssplit,pos,lemma";
+    
+    /**
+     * Configuration option that specifies the number of threads on which the
+     * sentences of a document are tagged, or 0 for one thread per processor.
+     */
+    public static final String PROPERTY_THREADS = "threads";
+    
+    /**
+     * Default value for {@link #PROPERTY_THREADS}.
+     */
+    private static final String DEFAULT_THREADS = "0";
+    
+    /**
+     * Configuration option that specifies the maximum number of characters
+     * that are annotated at once, or 0 for no maximum. Longer documents are
+     * annotated in chunks of paragraphs of at most this length, if possible.
+     */
+    public static final String PROPERTY_CHUNK_LENGTH = "chunkLength";
+    
+    /**
+     * Default value for {@link #PROPERTY_CHUNK_LENGTH}.
+     */
+    private static final String DEFAULT_CHUNK_LENGTH =
+            String.valueOf(ParagraphChunks.DEFAULT_MAX_LENGTH);
+    
+    /**
+     * The layer that each supported annotator produces.
+     */
+    private static final Map<String, Layer> ANNOTATOR_LAYERS = Map.of(
+            "tokenize", Layer.TOKEN,
+            "ssplit", Layer.SENTENCE,
+            "pos", Layer.POS,
+            "lemma", Layer.LEMMA);
+    
     // -------------------------------------------------------------------------
     // MEMBERS
     // -------------------------------------------------------------------------
+    
+    /**
+     * The configured annotators, in order.
+     */
+    private List<String> annotators = parseAnnotators(DEFAULT_ANNOTATORS);
+    
+    /**
+     * The number of threads for tagging the sentences of a document.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * The maximum number of characters that are annotated at once.
+     */
+    private int chunkLength = Integer.parseInt(DEFAULT_CHUNK_LENGTH);
+    
+    /**
+     * The pipeline acquired from the {@link StanfordModels}, or
+     * <code>null</code> if not yet used.
+     */
     private StanfordCoreNLP pipeline;
+    
+    /**
+     * The layers later components need, which determine the annotators.
+     */
+    private Set<Layer> neededLayers = EnumSet.allOf(Layer.class);
     // -------------------------------------------------------------------------
     // CONSTRUCTORS
     // -------------------------------------------------------------------------
@@ -41,17 +136,132 @@ public class Tokenizer extends AnalysisEngineComponent {
     // GETTERS
     // -------------------------------------------------------------------------
     
+    @Override
+    public Set<Layer> getRequiredLayers() {
+        return Set.of();
+    }
+    
+    @Override
+    public Set<Layer> getProducedLayers() {
+        final Set<Layer> producedLayers = EnumSet.noneOf(Layer.class);
+        for (final String annotator : annotators) {
+            producedLayers.add(ANNOTATOR_LAYERS.get(annotator));
+        }
+        return Collections.unmodifiableSet(producedLayers);
+    }
+    
+    /**
+     * Gets the CoreNLP annotators for the needed layers.
+     * <p>
+     * The configured annotators are run up to the last one whose layer is
+     * needed, as each annotator depends on those before it. Tokenization and
+     * sentence splitting are always run, as the annotation of sentences and
+     * tokens is the purpose of this component.
+     * </p>
+     * 
+     * @return The annotators, separated by commas
+     */
+    public String getAnnotators() {
+        int limit = 0;
+        for (int a = 0; a < annotators.size(); ++a) {
+            final Layer layer = ANNOTATOR_LAYERS.get(annotators.get(a));
+            if (layer == Layer.TOKEN || layer == Layer.SENTENCE
+                    || neededLayers.contains(layer)) {
+                limit = a + 1;
+            }
+        }
+        return String.join(", ", annotators.subList(0, limit));
+    }
+    
+    /**
+     * Gets the number of threads on which the sentences of a document are
+     * tagged.
+     * 
+     * @return The number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+    
+    /**
+     * Gets the maximum number of characters that are annotated at once.
+     * 
+     * @return The number, or 0 or below for no maximum
+     */
+    public int getChunkLength() {
+        return chunkLength;
+    }
+    
     // -------------------------------------------------------------------------
     // CONFIGURATION
     // -------------------------------------------------------------------------
     
     @Override
     public void configure(final Properties properties) {
+        annotators = parseAnnotators(
+                properties.getProperty(PROPERTY_ANNOTATORS, DEFAULT_ANNOTATORS));
+        final int configuredThreads = Integer.parseInt(
+                properties.getProperty(PROPERTY_THREADS, DEFAULT_THREADS));
+        threads = configuredThreads > 0
+                ? configuredThreads
+                : Runtime.getRuntime().availableProcessors();
+        chunkLength = Integer.parseInt(properties.getProperty(
+                PROPERTY_CHUNK_LENGTH, DEFAULT_CHUNK_LENGTH));
         
-        //TODO get the annotation types from properties!
-        
-        //creates a StanfordCoreNLP object, with POS tagging, lemmatization
-        pipeline = createStanfordPipeline("annotators", "tokenize, ssplit, pos, lemma");
+        // the pipeline is acquired on first use, as the annotators depend on
+        // the layers needed by later components
+        releasePipeline();
+    }
+    
+    @Override
+    public synchronized void setNeededLayers(final Set<Layer> neededLayers) {
+        final String annotators = getAnnotators();
+        this.neededLayers = neededLayers;
+        if (!getAnnotators().equals(annotators)) {
+            releasePipeline();
+        }
+    }
+    
+    @Override
+    public void warmUp() {
+        StanfordModels.warmUp(getPipeline());
+    }
+    
+    /**
+     * Gets the CoreNLP pipeline, acquiring it if needed.
+     * <p>
+     * Pipelines are shared by all tokenizers with the same annotators and
+     * threads, so that each is loaded only once per process.
+     * </p>
+     * 
+     * @return The pipeline
+     */
+    private synchronized StanfordCoreNLP getPipeline() {
+        if (pipeline == null) {
+            pipeline =
+                    StanfordModels.acquirePipeline(getAnnotators(), threads);
+        }
+        return pipeline;
+    }
+    
+    /**
+     * Releases the CoreNLP pipeline, if it was acquired.
+     */
+    private synchronized void releasePipeline() {
+        StanfordModels.release(pipeline);
+        pipeline = null;
+    }
+    
+    /**
+     * Releases the CoreNLP pipeline, so that it is unloaded if no other
+     * component uses it.
+     * <p>
+     * The tokenizer acquires the pipeline again when it is used next.
+     * </p>
+     */
+    @Override
+    public void close() {
+        releasePipeline();
     }
     
     // -------------------------------------------------------------------------
@@ -60,42 +270,138 @@ public class Tokenizer extends AnalysisEngineComponent {
     
     @Override
     public void accept(final JCas jCas) {
-
+        final List<int[]> chunks = ParagraphChunks.of(jCas, chunkLength);
+        if (chunks.size() > 1) {
+            acceptChunks(jCas, chunks);
+            return;
+        }
+        
+        // create an empty Annotation just with the given text
+        final Annotation doc = new Annotation(jCas.getDocumentText());
+        
+        // run all Annotators on this text
+        getPipeline().annotate(doc);
+        
+        addAnnotations(jCas, doc);
+    }
+    
+    /**
+     * Annotates a document in chunks, one after the other.
+     * 
+     * @param jCas The document
+     * @param chunks The begin and end of each chunk in the document text
+     */
+    private void acceptChunks(final JCas jCas, final List<int[]> chunks) {
         final String text = jCas.getDocumentText();
+        final Document document = new Document(jCas, 0, text.length());
+        document.addToIndexes();
+        
+        final List<List<CoreLabel>> sentenceLabels =
+                new ArrayList<List<CoreLabel>>();
+        for (final int[] chunk : chunks) {
+            final Annotation doc =
+                    new Annotation(text.substring(chunk[0], chunk[1]));
+            getPipeline().annotate(doc);
+            addSentences(jCas, doc, chunk[0], sentenceLabels);
+        }
+        
+        keepLabels(jCas, sentenceLabels);
+    }
+    
+    /**
+     * Adds the document, sentences and tokens of an annotated CoreNLP
+     * document to the CAS.
+     * 
+     * @param jCas The CAS of the document
+     * @param doc The annotated document
+     */
+    private void addAnnotations(final JCas jCas, final Annotation doc) {
         
         // add document annotation, which is later used during
         // the feature computation
-        final Document document = new Document(jCas, 0, text.length());
+        final Document document =
+                new Document(jCas, 0, jCas.getDocumentText().length());
         document.addToIndexes();
-          
-        // create an empty Annotation just with the given text
-        Annotation doc = new Annotation(text);
         
-        // run all Annotators on this text
-        pipeline.annotate(doc);
+        final List<List<CoreLabel>> sentenceLabels =
+                new ArrayList<List<CoreLabel>>();
+        addSentences(jCas, doc, 0, sentenceLabels);
         
+        keepLabels(jCas, sentenceLabels);
+    }
+    
+    /**
+     * Keeps the CoreLabels of a document for the
+     * {@link StanfordDependencyParser} if a later component needs the
+     * {@link Layer#DEPENDENCY}.
+     * 
+     * @param jCas The CAS of the document
+     * @param sentenceLabels The CoreLabels of each sentence
+     */
+    private void keepLabels(
+            final JCas jCas, final List<List<CoreLabel>> sentenceLabels) {
+        if (neededLayers.contains(Layer.DEPENDENCY)) {
+            StanfordCoreLabels.put(jCas, sentenceLabels);
+        }
+    }
+    
+    /**
+     * Adds the sentences and tokens of an annotated CoreNLP document or
+     * chunk of a document to the CAS.
+     * 
+     * @param jCas The CAS of the document
+     * @param doc The annotated document or chunk
+     * @param offset The position of the chunk in the document text
+     * @param sentenceLabels The list to add the CoreLabels of each sentence
+     * to, which are moved to the positions in the document text
+     */
+    private void addSentences(final JCas jCas, final Annotation doc,
+            final int offset, final List<List<CoreLabel>> sentenceLabels) {
         List<CoreMap> sentences = doc.get(SentencesAnnotation.class);
         
         for(CoreMap sentence: sentences) {
         	
             //create a UIMA Sentence from this information
-             createSentence(jCas, sentence);
+             createSentence(jCas, sentence, offset);
             
             // traversing the words in the current sentence
             // a CoreLabel is a CoreMap with additional token-specific methods
-            for (CoreLabel token: sentence.get(TokensAnnotation.class)) {
+            final List<CoreLabel> tokens = sentence.get(TokensAnnotation.class);
+            for (CoreLabel token: tokens) {
+                if (offset != 0) {
+                    token.setBeginPosition(token.beginPosition() + offset);
+                    token.setEndPosition(token.endPosition() + offset);
+                }
             
                 //create a UIMA Token from the stanford annotations
                 createToken(jCas, token);
             }
+            sentenceLabels.add(tokens);
         }
     }
       
-    private static StanfordCoreNLP createStanfordPipeline(String annotator, String annotators) {
-        //creates a StanfordCoreNLP object, with POS tagging, lemmatization, NER, parsing, and coreference resolution
-        Properties props = new Properties();
-        props.setProperty(annotator, annotators);
-        return new StanfordCoreNLP(props);
+    /**
+     * Parses configured annotators.
+     * 
+     * @param annotators The annotators, separated by commas
+     * @return The annotators, in order
+     * @throws IllegalArgumentException If an annotator is not supported or
+     * tokenization or sentence splitting is missing
+     */
+    private static List<String> parseAnnotators(final String annotators) {
+        final List<String> parsed =
+                Arrays.asList(annotators.trim().split("\\s*,\\s*"));
+        for (final String annotator : parsed) {
+            if (!ANNOTATOR_LAYERS.containsKey(annotator)) {
+                throw new IllegalArgumentException(
+                        "Unsupported annotator: " + annotator);
+            }
+        }
+        if (!parsed.contains("tokenize") || !parsed.contains("ssplit")) {
+            throw new IllegalArgumentException(
+                    "Annotators must include tokenize and ssplit: " + annotators);
+        }
+        return parsed;
     }
       
     private void createToken(JCas jCas, CoreLabel token) {
@@ -122,11 +428,11 @@ public class Tokenizer extends AnalysisEngineComponent {
         resultToken.addToIndexes();
     }
     
-    private void createSentence(JCas jCas, CoreMap sentence) {
+    private void createSentence(JCas jCas, CoreMap sentence, int offset) {
     
         //get the necessary information from the CoreMap that contains the sentence annotations
-        int begin = sentence.get(CharacterOffsetBeginAnnotation.class);
-        int end = sentence.get(CharacterOffsetEndAnnotation.class);
+        int begin = sentence.get(CharacterOffsetBeginAnnotation.class) + offset;
+        int end = sentence.get(CharacterOffsetEndAnnotation.class) + offset;
         //	int index = sentence.get(SentenceIndexAnnotation.class);
         
         //	System.out.println("Sentence: " + sentence.toShorterString());
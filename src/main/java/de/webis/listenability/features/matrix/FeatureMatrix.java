@@ -0,0 +1,237 @@
+package de.webis.listenability.features.matrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+import org.apache.uima.jcas.JCas;
+
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.unit.UnitLevel;
+
+/**
+ * Feature values of the units of one JCas, kept outside of the CAS.
+ * <p>
+ * Analysis engines that are configured to do so put their values into the
+ * matrix of the JCas (see {@link #of(JCas)}) instead of adding scores, and the
+ * {@link FeatureMatrixWriter} writes and {@link #remove(JCas)}s it. This way,
+ * no feature structures are created for the values.
+ * </p><p>
+ * Each row of the matrix is one unit at one level. The columns are the
+ * feature names, which are mapped to column indices once per process (see
+ * {@link #getColumn(String)}), so that each row is a dense array of values
+ * where missing values are {@link Double#NaN}.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class FeatureMatrix {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The matrix for each JCas, which is dropped with its JCas as the rows do
+   * not refer to the units.
+   */
+  private static final Map<JCas, FeatureMatrix> MATRICES =
+      Collections.synchronizedMap(new WeakHashMap<JCas, FeatureMatrix>());
+
+  /**
+   * The column index of each feature name in this process.
+   */
+  private static final Map<String, Integer> COLUMNS =
+      new HashMap<String, Integer>();
+
+  /**
+   * Orders rows by level, then like the annotation index.
+   */
+  private static final Comparator<Row> ROW_ORDER =
+      Comparator.comparing(Row::getLevel)
+        .thenComparingInt(Row::getBegin)
+        .thenComparing(Comparator.comparingInt(Row::getEnd).reversed());
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The rows of each level by the begin (high bits) and end (low bits) of
+   * their unit.
+   */
+  private final Map<UnitLevel, Map<Long, Row>> rows;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private FeatureMatrix() {
+    this.rows = new HashMap<UnitLevel, Map<Long, Row>>();
+  }
+
+  /**
+   * Gets the matrix of a JCas, creating an empty one if needed.
+   * @param jCas The JCas
+   * @return The matrix
+   */
+  public static FeatureMatrix of(final JCas jCas) {
+    return MATRICES.computeIfAbsent(
+        Objects.requireNonNull(jCas), key -> new FeatureMatrix());
+  }
+
+  /**
+   * Removes the matrix of a JCas.
+   * @param jCas The JCas
+   * @return The matrix, which is empty if none was created for the JCas
+   */
+  public static FeatureMatrix remove(final JCas jCas) {
+    final FeatureMatrix matrix = MATRICES.remove(jCas);
+    return matrix == null ? new FeatureMatrix() : matrix;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the column index of a feature name.
+   * <p>
+   * Indices are assigned on first request, in ascending order, and are the
+   * same for all matrices of this process.
+   * </p>
+   * @param name The feature name
+   * @return The index
+   */
+  public static int getColumn(final String name) {
+    Objects.requireNonNull(name);
+    synchronized (COLUMNS) {
+      return COLUMNS.computeIfAbsent(name, key -> COLUMNS.size());
+    }
+  }
+
+  /**
+   * Gets the rows of this matrix, ordered by level (documents first) and then
+   * like the annotation index.
+   * @return The rows
+   */
+  public synchronized List<Row> getRows() {
+    final List<Row> rows = new ArrayList<Row>();
+    for (final Map<Long, Row> levelRows : this.rows.values()) {
+      rows.addAll(levelRows.values());
+    }
+    rows.sort(ROW_ORDER);
+    return rows;
+  }
+
+  /**
+   * Checks whether no value was put into this matrix.
+   * @return Whether the matrix is empty
+   */
+  public synchronized boolean isEmpty() {
+    return this.rows.isEmpty();
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Sets the value of a feature for a unit at a level, replacing a previous
+   * value.
+   * <p>
+   * Units of the same level are identified by their begin and end.
+   * </p>
+   * @param level The level of the unit
+   * @param unit The unit
+   * @param name The feature name
+   * @param value The value
+   */
+  public synchronized void put(
+      final UnitLevel level, final Unit unit,
+      final String name, final double value) {
+    final int column = FeatureMatrix.getColumn(name);
+    final long span = ((long) unit.getBegin() << 32) | unit.getEnd();
+    this.rows.computeIfAbsent(level, key -> new HashMap<Long, Row>())
+      .computeIfAbsent(span, key -> new Row(level, unit))
+      .set(column, value);
+  }
+
+  // -------------------------------------------------------------------------
+  // ROWS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The values of one unit at one level.
+   *
+   * @author johannes.kiesel@uni-weimar.de
+   */
+  public static final class Row {
+
+    private final UnitLevel level;
+
+    private final int begin;
+
+    private final int end;
+
+    private double[] values;
+
+    private Row(final UnitLevel level, final Unit unit) {
+      this.level = Objects.requireNonNull(level);
+      this.begin = unit.getBegin();
+      this.end = unit.getEnd();
+      this.values = new double[0];
+    }
+
+    /**
+     * Gets the level of the unit.
+     * @return The level
+     */
+    public UnitLevel getLevel() {
+      return this.level;
+    }
+
+    /**
+     * Gets the begin offset of the unit.
+     * @return The offset
+     */
+    public int getBegin() {
+      return this.begin;
+    }
+
+    /**
+     * Gets the end offset of the unit.
+     * @return The offset
+     */
+    public int getEnd() {
+      return this.end;
+    }
+
+    /**
+     * Gets the value in a column.
+     * @param column The column index
+     * @return The value or {@link Double#NaN} if none was set
+     * @see FeatureMatrix#getColumn(String)
+     */
+    public double get(final int column) {
+      return column < this.values.length ? this.values[column] : Double.NaN;
+    }
+
+    private void set(final int column, final double value) {
+      if (column >= this.values.length) {
+        final int length = this.values.length;
+        this.values = Arrays.copyOf(this.values, column + 1);
+        Arrays.fill(this.values, length, this.values.length, Double.NaN);
+      }
+      this.values[column] = value;
+    }
+
+  }
+
+}
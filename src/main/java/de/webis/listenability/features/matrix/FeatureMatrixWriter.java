@@ -0,0 +1,391 @@
+package de.webis.listenability.features.matrix;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.TOP;
+
+import de.aitools.commons.uima.core.SourceDocumentInformation;
+import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
+
+/**
+ * Writes the {@link FeatureMatrix} of each JCas as dense rows to files.
+ * <p>
+ * Each instance of this component writes to its own file (partition) in the
+ * {@link #PROPERTY_OUTPUT} directory, so that parallel pipelines do not share
+ * a file. Partitions are numbered in the order they are created, skipping
+ * files that exist already, like those of other processes. The file is
+ * complete once the component is {@link #close()}d. Each row holds the
+ * document id (the URI or name of the {@link SourceDocumentInformation}), the
+ * level, begin and end of the unit, and the values of the
+ * {@link #PROPERTY_COLUMNS}, where {@link Double#NaN} marks missing values.
+ * </p><p>
+ * The binary format (<code>part-NNNNN.bin</code>) is written with a
+ * {@link DataOutputStream}:
+ * </p>
+ * <pre>
+ * file     := int MAGIC, int numColumns, UTF column * numColumns, document*
+ * document := UTF id, int numRows, row * numRows
+ * row      := byte level (UnitLevel ordinal), int begin, int end,
+ *             double value * numColumns
+ * </pre>
+ * <p>
+ * The CSV format (<code>part-NNNNN.csv</code>) has a header line and one line
+ * per row, with missing values left empty.
+ * </p><p>
+ * Since the values are already written, this component can also remove all
+ * other feature structures from the JCas (see {@link #PROPERTY_STRIP}), so
+ * that only the text and the source document information remain to be
+ * serialized.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class FeatureMatrixWriter extends AnalysisEngineComponent
+implements LayerComponent, AutoCloseable {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(FeatureMatrixWriter.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The first integer of each binary file ("FTM1").
+   */
+  public static final int MAGIC = 0x46544d31;
+
+  /**
+   * Configuration option specifying the directory to which the files are
+   * written.
+   */
+  public static final String PROPERTY_OUTPUT = "output";
+
+  /**
+   * Configuration option specifying the feature names of the columns,
+   * separated by spaces.
+   */
+  public static final String PROPERTY_COLUMNS = "columns";
+
+  /**
+   * Configuration option specifying the file format: <code>binary</code> or
+   * <code>csv</code>.
+   */
+  public static final String PROPERTY_FORMAT = "format";
+
+  /**
+   * Default value for {@link #PROPERTY_FORMAT}.
+   */
+  private static final String DEFAULT_FORMAT = "binary";
+
+  /**
+   * Configuration option specifying whether all feature structures except for
+   * the source document information are removed from the JCas after writing.
+   */
+  public static final String PROPERTY_STRIP = "strip";
+
+  /**
+   * Default value for {@link #PROPERTY_STRIP}.
+   */
+  private static final String DEFAULT_STRIP = "false";
+
+  /**
+   * The number of the next partition to try in this process.
+   */
+  private static final AtomicInteger NEXT_PARTITION = new AtomicInteger();
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private Path output;
+
+  private List<String> columns;
+
+  private int[] columnIndices;
+
+  private boolean csv;
+
+  private boolean strip;
+
+  /**
+   * The binary output or <code>null</code> if not opened yet or CSV is
+   * written.
+   */
+  private DataOutputStream binaryOutput;
+
+  /**
+   * The CSV output or <code>null</code> if not opened yet or binary is
+   * written.
+   */
+  private Writer csvOutput;
+
+  private int numDocuments;
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the feature names of the columns.
+   * @return The names
+   */
+  public List<String> getColumns() {
+    return this.columns;
+  }
+
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return Set.of();
+  }
+
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of();
+  }
+
+  // -------------------------------------------------------------------------
+  // CONFIGURATION
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void configure(final Properties properties) {
+    this.output = Paths.get(Objects.requireNonNull(
+        properties.getProperty(PROPERTY_OUTPUT), PROPERTY_OUTPUT));
+    final String columns = Objects.requireNonNull(
+        properties.getProperty(PROPERTY_COLUMNS), PROPERTY_COLUMNS).trim();
+    this.columns = List.of(columns.split("\\s+"));
+    this.columnIndices = new int[this.columns.size()];
+    for (int c = 0; c < this.columnIndices.length; ++c) {
+      this.columnIndices[c] = FeatureMatrix.getColumn(this.columns.get(c));
+    }
+
+    final String format =
+        properties.getProperty(PROPERTY_FORMAT, DEFAULT_FORMAT);
+    if (format.equals("csv")) {
+      this.csv = true;
+    } else if (format.equals("binary")) {
+      this.csv = false;
+    } else {
+      throw new IllegalArgumentException("Unknown format: " + format);
+    }
+    this.strip = Boolean.parseBoolean(
+        properties.getProperty(PROPERTY_STRIP, DEFAULT_STRIP));
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  @Override
+  public synchronized void accept(final JCas jCas) {
+    final List<FeatureMatrix.Row> rows = FeatureMatrix.remove(jCas).getRows();
+    final String id = this.getDocumentId(jCas);
+    try {
+      if (this.csv) {
+        this.writeCsv(id, rows);
+      } else {
+        this.writeBinary(id, rows);
+      }
+    } catch (final IOException e) {
+      LOG.severe(e.toString());
+      throw new UncheckedIOException(e);
+    }
+    ++this.numDocuments;
+
+    if (this.strip) {
+      FeatureMatrixWriter.strip(jCas);
+    }
+  }
+
+  /**
+   * Closes the partition, if one was opened.
+   * <p>
+   * The next document is written to a new partition.
+   * </p>
+   * @throws IOException If the partition could not be closed
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    final DataOutputStream binaryOutput = this.binaryOutput;
+    final Writer csvOutput = this.csvOutput;
+    this.binaryOutput = null;
+    this.csvOutput = null;
+    try {
+      if (binaryOutput != null) {
+        binaryOutput.close();
+      }
+    } finally {
+      if (csvOutput != null) {
+        csvOutput.close();
+      }
+    }
+  }
+
+  private void writeBinary(final String id, final List<FeatureMatrix.Row> rows)
+  throws IOException {
+    if (this.binaryOutput == null) {
+      this.binaryOutput = new DataOutputStream(this.openPartition("bin"));
+      this.binaryOutput.writeInt(MAGIC);
+      this.binaryOutput.writeInt(this.columns.size());
+      for (final String column : this.columns) {
+        this.binaryOutput.writeUTF(column);
+      }
+    }
+    final DataOutputStream output = this.binaryOutput;
+    output.writeUTF(id);
+    output.writeInt(rows.size());
+    for (final FeatureMatrix.Row row : rows) {
+      output.writeByte(row.getLevel().ordinal());
+      output.writeInt(row.getBegin());
+      output.writeInt(row.getEnd());
+      for (final int column : this.columnIndices) {
+        output.writeDouble(row.get(column));
+      }
+    }
+    output.flush();
+  }
+
+  private void writeCsv(final String id, final List<FeatureMatrix.Row> rows)
+  throws IOException {
+    if (this.csvOutput == null) {
+      this.csvOutput = new OutputStreamWriter(
+          this.openPartition("csv"), StandardCharsets.UTF_8);
+      final List<String> header = new ArrayList<String>();
+      header.add("document");
+      header.add("level");
+      header.add("begin");
+      header.add("end");
+      header.addAll(this.columns);
+      this.writeCsvLine(header);
+    }
+    final List<String> line = new ArrayList<String>();
+    for (final FeatureMatrix.Row row : rows) {
+      line.clear();
+      line.add(id);
+      line.add(row.getLevel().name().toLowerCase());
+      line.add(String.valueOf(row.getBegin()));
+      line.add(String.valueOf(row.getEnd()));
+      for (final int column : this.columnIndices) {
+        final double value = row.get(column);
+        line.add(Double.isNaN(value) ? "" : String.valueOf(value));
+      }
+      this.writeCsvLine(line);
+    }
+    this.csvOutput.flush();
+  }
+
+  private void writeCsvLine(final List<String> fields) throws IOException {
+    for (int f = 0; f < fields.size(); ++f) {
+      if (f > 0) {
+        this.csvOutput.write(',');
+      }
+      final String field = fields.get(f);
+      if (field.contains(",") || field.contains("\"")
+          || field.contains("\n")) {
+        this.csvOutput.write('"');
+        this.csvOutput.write(field.replace("\"", "\"\""));
+        this.csvOutput.write('"');
+      } else {
+        this.csvOutput.write(field);
+      }
+    }
+    this.csvOutput.write('\n');
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates the output directory if needed and creates the next partition
+   * that does not exist yet.
+   * @param extension The file extension
+   * @return The stream to the partition
+   * @throws IOException If the partition could not be created
+   */
+  private OutputStream openPartition(final String extension)
+  throws IOException {
+    Files.createDirectories(this.output);
+    while (true) {
+      final Path partition = this.output.resolve(String.format(
+          "part-%05d.%s", NEXT_PARTITION.getAndIncrement(), extension));
+      try {
+        final OutputStream stream = Files.newOutputStream(
+            partition, StandardOpenOption.CREATE_NEW);
+        LOG.info("Writing feature matrix to " + partition);
+        return new BufferedOutputStream(stream);
+      } catch (final FileAlreadyExistsException e) {
+        // created by another process or run, try the next number
+      }
+    }
+  }
+
+  /**
+   * Gets the id of the JCas's document.
+   * @param jCas The JCas
+   * @return The URI or name of the source document, or the number of the
+   * document for this component if there is no source document information
+   */
+  private String getDocumentId(final JCas jCas) {
+    for (final SourceDocumentInformation information
+        : JCasUtil.select(jCas, SourceDocumentInformation.class)) {
+      if (information.getUri() != null) {
+        return information.getUri();
+      } else if (information.getName() != null) {
+        return information.getName();
+      }
+    }
+    return String.valueOf(this.numDocuments);
+  }
+
+  /**
+   * Removes all feature structures except for the source document
+   * information and the document annotation from the indexes.
+   * @param jCas The JCas
+   */
+  private static void strip(final JCas jCas) {
+    final List<TOP> remove = new ArrayList<TOP>();
+    final FSIterator<TOP> iterator = jCas.getIndexRepository()
+        .getAllIndexedFS(jCas.getCasType(TOP.type));
+    while (iterator.hasNext()) {
+      final TOP featureStructure = iterator.next();
+      if (!(featureStructure instanceof SourceDocumentInformation)
+          && featureStructure != jCas.getDocumentAnnotationFs()) {
+        remove.add(featureStructure);
+      }
+    }
+    for (final TOP featureStructure : remove) {
+      featureStructure.removeFromIndexes();
+    }
+  }
+
+}
@@ -1,11 +1,19 @@
 package de.webis.listenability.features.unit;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.apache.uima.cas.FSIterator;
 import org.apache.uima.jcas.JCas;
@@ -16,16 +24,52 @@ import de.aitools.commons.uima.core.Sentence;
 import de.aitools.commons.uima.core.Token;
 import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
 import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.matrix.FeatureMatrix;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.listenability.features.unit.features.MergeableStatistics;
+import de.webis.listenability.features.unit.features.StatisticsFeature;
+import de.webis.writing.ScoreBatch;
+import de.webis.writing.Scores;
+import de.webis.writing.TokenView;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
+import de.webis.writing.types.Score;
 
 /**
  * TODO documentation
+ * <p>
+ * Unless {@link #PROPERTY_FUSED} is set to <code>false</code>, the
+ * {@link StatisticsFeature}s are evaluated in a fused way: the statistics of
+ * each unit are collected once by
+ * {@link #computeStatistics(TokenView, Unit)} and all
+ * features of the unit's level compute their value from these statistics.
+ * </p><p>
+ * Moreover, unless {@link #PROPERTY_ROLL_UP} is set to <code>false</code>,
+ * the statistics are collected only for sentences in fused evaluation, and
+ * the statistics of paragraphs and documents are obtained by merging the
+ * statistics of the sentences they cover. Units whose tokens are not exactly
+ * the tokens of the sentences they cover, like paragraphs that a sentence
+ * crosses, still have their statistics collected from their tokens.
+ * </p><p>
+ * For long documents, {@link #PROPERTY_PARALLELISM} can be set to collect
+ * the statistics and compute the feature values of the units on several
+ * threads. The values are then added to the CAS in the calling thread.
+ * </p><p>
+ * If {@link #PROPERTY_MATRIX} is set to <code>true</code>, the values of
+ * {@link StatisticsFeature}s in fused evaluation are put into the
+ * {@link FeatureMatrix} of the JCas instead of being added as scores. This
+ * requires fused evaluation.
+ * </p>
  * 
+ * @param STATISTICS The class of the statistics that are collected for each
+ * unit in fused evaluation
  * @author lukas.peter.trautner@uni-weimar.de
  *
  */
-public abstract class AbstractUnitFeatureAnalysisEngine
-  extends AnalysisEngineComponent {
+public abstract class AbstractUnitFeatureAnalysisEngine<
+  STATISTICS extends MergeableStatistics<STATISTICS>>
+  extends AnalysisEngineComponent
+  implements LayerComponent, AutoCloseable {
   
   // -------------------------------------------------------------------------
   // LOGGING
@@ -53,6 +97,59 @@ public abstract class AbstractUnitFeatureAnalysisEngine
    */
   private static final String DEFAULT_FEATURE_LEVEL = "document";
   
+  /**
+   * Configuration option specifying whether the statistics of each unit are
+   * collected once and shared by all features (<code>true</code>) or whether
+   * each feature scans the unit on its own (<code>false</code>).
+   */
+  public static final String PROPERTY_FUSED = "fused";
+  
+  /**
+   * Default value for {@link #PROPERTY_FUSED}.
+   */
+  private static final String DEFAULT_FUSED = "true";
+  
+  /**
+   * Configuration option specifying whether, in fused evaluation, the
+   * statistics of paragraphs and documents are merged from the statistics of
+   * their sentences (<code>true</code>) or collected from their tokens
+   * (<code>false</code>).
+   */
+  public static final String PROPERTY_ROLL_UP = "rollUp";
+  
+  /**
+   * Default value for {@link #PROPERTY_ROLL_UP}.
+   */
+  private static final String DEFAULT_ROLL_UP = "true";
+  
+  /**
+   * Configuration option specifying on how many threads the statistics and
+   * values of the units of one document are computed in fused evaluation.
+   * A value of 0 or below uses one thread per available processor.
+   */
+  public static final String PROPERTY_PARALLELISM = "parallelism";
+  
+  /**
+   * Default value for {@link #PROPERTY_PARALLELISM}.
+   */
+  private static final String DEFAULT_PARALLELISM = "1";
+  
+  /**
+   * Configuration option specifying whether, in fused evaluation, the values
+   * of {@link StatisticsFeature}s are put into the {@link FeatureMatrix} of
+   * the JCas (<code>true</code>) or added as scores (<code>false</code>).
+   * <p>
+   * Setting this to <code>true</code> while {@link #PROPERTY_FUSED} is
+   * <code>false</code> is rejected.
+   * </p>
+   */
+  public static final String PROPERTY_MATRIX = "matrix";
+  
+  /**
+   * Default value for {@link #PROPERTY_MATRIX}.
+   */
+  private static final String DEFAULT_MATRIX = "false";
+  
 
   // -------------------------------------------------------------------------
   // MEMBERS
@@ -63,6 +160,28 @@ public abstract class AbstractUnitFeatureAnalysisEngine
    */
   private final Map<Feature, Set<UnitLevel>> features;
   
+  /**
+   * Whether the features are evaluated in a fused way.
+   */
+  private boolean fused;
+  
+  /**
+   * Whether the statistics of sentences are rolled up to paragraphs and
+   * documents.
+   */
+  private boolean rollUp;
+  
+  /**
+   * The pool on which the units of a document are processed in parallel, or
+   * <code>null</code> to process them in the calling thread.
+   */
+  private ForkJoinPool pool;
+  
+  /**
+   * Whether values are put into the feature matrix instead of the CAS.
+   */
+  private boolean matrix;
+  
   // -------------------------------------------------------------------------
   // CONSTRUCTORS
   // -------------------------------------------------------------------------
@@ -72,6 +191,185 @@ public abstract class AbstractUnitFeatureAnalysisEngine
    */
   public AbstractUnitFeatureAnalysisEngine() {
     this.features = new HashMap<Feature, Set<UnitLevel>>();
+    this.fused = Boolean.parseBoolean(DEFAULT_FUSED);
+    this.rollUp = Boolean.parseBoolean(DEFAULT_ROLL_UP);
+    this.pool = null;
+    this.matrix = Boolean.parseBoolean(DEFAULT_MATRIX);
+  }
+  
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+  
+  /**
+   * Gets whether the features are evaluated in a fused way.
+   * 
+   * @return Whether the statistics of each unit are collected only once
+   * 
+   * @see #PROPERTY_FUSED
+   */
+  public boolean isFused() {
+    return this.fused;
+  }
+  
+  /**
+   * Gets whether the statistics of sentences are rolled up to paragraphs and
+   * documents in fused evaluation.
+   * 
+   * @return Whether the statistics are rolled up
+   * 
+   * @see #PROPERTY_ROLL_UP
+   */
+  public boolean isRollUp() {
+    return this.rollUp;
+  }
+  
+  /**
+   * Gets the pool on which the units of a document are processed in parallel
+   * in fused evaluation.
+   * 
+   * @return The pool or <code>null</code> if they are processed in the
+   * calling thread
+   * 
+   * @see #PROPERTY_PARALLELISM
+   */
+  public ForkJoinPool getPool() {
+    return this.pool;
+  }
+  
+  /**
+   * Gets whether the values of {@link StatisticsFeature}s are put into the
+   * {@link FeatureMatrix} of the JCas in fused evaluation.
+   * 
+   * @return Whether the values are put into the matrix instead of the CAS
+   * 
+   * @see #PROPERTY_MATRIX
+   */
+  public boolean isMatrix() {
+    return this.matrix;
+  }
+  
+  /**
+   * Gets the annotation layers required by the added features.
+   * 
+   * @return The layers
+   */
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    final Set<Layer> layers = EnumSet.noneOf(Layer.class);
+    for (final Feature feature : this.features.keySet()) {
+      layers.addAll(feature.getRequiredLayers());
+      if (this.isFused() && this.isRollUp()
+          && (this.features.get(feature).contains(UnitLevel.PARAGRAPH)
+            || this.features.get(feature).contains(UnitLevel.DOCUMENT))) {
+        layers.add(Layer.SENTENCE); // statistics are rolled up from these
+      }
+    }
+    return layers;
+  }
+  
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of();
+  }
+  
+  // -------------------------------------------------------------------------
+  // SETTERS
+  // -------------------------------------------------------------------------
+  
+  /**
+   * Sets whether the features are evaluated in a fused way.
+   * 
+   * @param fused Whether the statistics of each unit are collected only once
+   * 
+   * @see #PROPERTY_FUSED
+   */
+  public void setFused(final boolean fused) {
+    this.fused = fused;
+  }
+  
+  /**
+   * Sets whether the statistics of sentences are rolled up to paragraphs and
+   * documents in fused evaluation.
+   * 
+   * @param rollUp Whether the statistics are rolled up
+   * 
+   * @see #PROPERTY_ROLL_UP
+   */
+  public void setRollUp(final boolean rollUp) {
+    this.rollUp = rollUp;
+  }
+  
+  /**
+   * Sets on how many threads the units of a document are processed in fused
+   * evaluation.
+   * 
+   * @param parallelism The number of threads, where 1 processes the units in
+   * the calling thread and 0 or below uses one thread per available processor
+   * 
+   * @see #PROPERTY_PARALLELISM
+   */
+  public void setParallelism(final int parallelism) {
+    if (this.pool != null) {
+      this.pool.shutdown();
+    }
+    if (parallelism == 1) {
+      this.pool = null;
+    } else if (parallelism <= 0) {
+      this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    } else {
+      this.pool = new ForkJoinPool(parallelism);
+    }
+  }
+  
+  /**
+   * Sets whether the values of {@link StatisticsFeature}s are put into the
+   * {@link FeatureMatrix} of the JCas in fused evaluation.
+   * 
+   * @param matrix Whether the values are put into the matrix instead of the
+   * CAS
+   * 
+   * @see #PROPERTY_MATRIX
+   */
+  public void setMatrix(final boolean matrix) {
+    this.matrix = matrix;
+  }
+  
+  // -------------------------------------------------------------------------
+  // CONFIGURATION
+  // -------------------------------------------------------------------------
+  
+  /**
+   * Configures whether the features are evaluated in a fused way, whether
+   * statistics are rolled up, on how many threads, and where the values are
+   * put.
+   * <p>
+   * Subclasses add their features in this method and have to call it.
+   * </p>
+   */
+  @Override
+  public void configure(final Properties properties) {
+    this.setFused(Boolean.parseBoolean(
+        properties.getProperty(PROPERTY_FUSED, DEFAULT_FUSED)));
+    this.setRollUp(Boolean.parseBoolean(
+        properties.getProperty(PROPERTY_ROLL_UP, DEFAULT_ROLL_UP)));
+    this.setParallelism(Integer.parseInt(
+        properties.getProperty(PROPERTY_PARALLELISM, DEFAULT_PARALLELISM)));
+    this.setMatrix(Boolean.parseBoolean(
+        properties.getProperty(PROPERTY_MATRIX, DEFAULT_MATRIX)));
+    if (this.isMatrix() && !this.isFused()) {
+      throw new IllegalArgumentException("Property " + PROPERTY_MATRIX
+          + " requires " + PROPERTY_FUSED + " evaluation");
+    }
+  }
+  
+  /**
+   * Shuts the {@link #getPool() pool} down, so that the units of later
+   * documents are processed in the calling thread.
+   */
+  @Override
+  public void close() {
+    this.setParallelism(1);
   }
   
   // -------------------------------------------------------------------------
@@ -81,6 +379,16 @@ public abstract class AbstractUnitFeatureAnalysisEngine
   
   @Override
   public final void accept(final JCas jCas) {
+    if (this.isFused() && this.getPool() != null) {
+      this.acceptParallel(jCas);
+      return;
+    } else if (this.isFused() && this.isRollUp()) {
+      this.acceptRolledUp(jCas);
+      return;
+    } else if (this.isFused()) {
+      this.acceptFused(jCas);
+      return;
+    }
     for (final Feature feature : this.features.keySet()) {
       for (final UnitLevel level : this.features.get(feature)) {
         if (level == UnitLevel.DOCUMENT) {
@@ -100,6 +408,306 @@ public abstract class AbstractUnitFeatureAnalysisEngine
     }
   }
   
+  /**
+   * Computes the values of all features, collecting the statistics of each
+   * unit only once.
+   * 
+   * @param jCas The JCas
+   */
+  private void acceptFused(final JCas jCas) {
+    final TokenView view = TokenView.of(jCas);
+    final Map<UnitLevel, List<Feature>> featuresByLevel =
+        this.getFeaturesByLevel();
+    for (final UnitLevel level : featuresByLevel.keySet()) {
+      final List<Feature> levelFeatures = featuresByLevel.get(level);
+      for (final Unit unit : this.getUnits(jCas, level)) {
+        this.computeFeatureValues(view, level, unit, levelFeatures, null);
+      }
+    }
+  }
+  
+  /**
+   * Computes the values of all features, collecting the statistics only for
+   * each sentence and merging them for paragraphs and documents.
+   * 
+   * @param jCas The JCas
+   */
+  private void acceptRolledUp(final JCas jCas) {
+    final TokenView view = TokenView.of(jCas);
+    final Map<UnitLevel, List<Feature>> featuresByLevel =
+        this.getFeaturesByLevel();
+    final List<Feature> tokenFeatures = featuresByLevel.get(UnitLevel.TOKEN);
+    if (tokenFeatures != null) {
+      for (final Unit unit : this.getUnits(jCas, UnitLevel.TOKEN)) {
+        this.computeFeatureValues(
+            view, UnitLevel.TOKEN, unit, tokenFeatures, null);
+      }
+    }
+    if (featuresByLevel.keySet().equals(Set.of(UnitLevel.TOKEN))) {
+      return;
+    }
+
+    final List<Feature> sentenceFeatures =
+        featuresByLevel.getOrDefault(UnitLevel.SENTENCE, List.of());
+    final List<STATISTICS> sentenceStatistics = new ArrayList<STATISTICS>();
+    for (final Unit sentence : this.getUnits(jCas, UnitLevel.SENTENCE)) {
+      final STATISTICS statistics = this.computeStatistics(view, sentence);
+      sentenceStatistics.add(statistics);
+      this.computeFeatureValues(view, UnitLevel.SENTENCE, sentence,
+          sentenceFeatures, statistics);
+    }
+
+    for (final UnitLevel level
+        : List.of(UnitLevel.PARAGRAPH, UnitLevel.DOCUMENT)) {
+      final List<Feature> levelFeatures = featuresByLevel.get(level);
+      if (levelFeatures == null) {
+        continue;
+      }
+      for (final Unit unit : this.getUnits(jCas, level)) {
+        final STATISTICS statistics =
+            this.rollUp(view, unit, sentenceStatistics);
+        this.computeFeatureValues(
+            view, level, unit, levelFeatures, statistics);
+      }
+    }
+  }
+  
+  /**
+   * Computes the values of all features like {@link #acceptFused(JCas)} or
+   * {@link #acceptRolledUp(JCas)}, but collects the statistics and computes
+   * the values of the {@link StatisticsFeature}s in parallel on the
+   * {@link #getPool() pool}.
+   * <p>
+   * The parallel tasks only read from the {@link TokenView} of the JCas and
+   * the statistics. All values are then added to the JCas in this thread,
+   * where also the values of other features are computed.
+   * </p>
+   * 
+   * @param jCas The JCas
+   */
+  private void acceptParallel(final JCas jCas) {
+    final TokenView view = TokenView.of(jCas);
+    final Map<UnitLevel, List<Feature>> featuresByLevel =
+        this.getFeaturesByLevel();
+
+    List<STATISTICS> sentenceStatistics = null;
+    if (this.isRollUp() && (featuresByLevel.containsKey(UnitLevel.PARAGRAPH)
+        || featuresByLevel.containsKey(UnitLevel.DOCUMENT))) {
+      final List<Unit> sentences = this.getUnits(jCas, UnitLevel.SENTENCE);
+      sentenceStatistics = this.inParallel(sentences.size(),
+          s -> this.computeStatistics(view, sentences.get(s)));
+    }
+
+    for (final UnitLevel level : featuresByLevel.keySet()) {
+      final List<Feature> levelFeatures = featuresByLevel.get(level);
+      final List<StatisticsFeature<STATISTICS>> statisticsFeatures =
+          this.getStatisticsFeatures(levelFeatures);
+      final List<Unit> units = this.getUnits(jCas, level);
+
+      // compute
+      final List<double[]> values;
+      if (statisticsFeatures.isEmpty()) {
+        values = null;
+      } else {
+        final List<STATISTICS> rolledUpStatistics = sentenceStatistics;
+        values = this.inParallel(units.size(), u -> {
+          final Unit unit = units.get(u);
+          final STATISTICS statistics;
+          if (level == UnitLevel.SENTENCE && rolledUpStatistics != null) {
+            statistics = rolledUpStatistics.get(u);
+          } else if (level != UnitLevel.TOKEN && rolledUpStatistics != null) {
+            statistics = this.rollUp(view, unit, rolledUpStatistics);
+          } else {
+            statistics = this.computeStatistics(view, unit);
+          }
+          // the values, followed by their coverages
+          final int numFeatures = statisticsFeatures.size();
+          final double[] unitValues = new double[2 * numFeatures];
+          for (int f = 0; f < numFeatures; ++f) {
+            unitValues[f] = statisticsFeatures.get(f).evaluate(statistics);
+            unitValues[numFeatures + f] =
+                statisticsFeatures.get(f).evaluateCoverage(statistics);
+          }
+          return unitValues;
+        });
+      }
+
+      // commit
+      for (int u = 0; u < units.size(); ++u) {
+        final Unit unit = units.get(u);
+        final ScoreBatch batch = this.createBatch(unit);
+        int f = 0;
+        for (final Feature feature : levelFeatures) {
+          if (feature instanceof StatisticsFeature) {
+            this.addValue(batch, level, unit,
+                statisticsFeatures.get(f).getScoreName(), values.get(u)[f],
+                values.get(u)[statisticsFeatures.size() + f]);
+            ++f;
+          } else {
+            feature.compute(unit);
+          }
+        }
+        this.commit(batch);
+      }
+    }
+  }
+  
+  /**
+   * Merges the statistics of all sentences covered by a unit.
+   * <p>
+   * If the unit's tokens are not exactly the tokens of the sentences it
+   * covers, as when a sentence crosses the unit's boundaries or a token is
+   * outside of all sentences, the statistics are instead collected from the
+   * unit's tokens by {@link #computeStatistics(TokenView, Unit)}.
+   * </p>
+   * 
+   * @param view The view of the unit's JCas
+   * @param unit The unit
+   * @param sentenceStatistics The statistics of all sentences, in the order
+   * of the sentence index
+   * @return The statistics of the unit
+   */
+  private STATISTICS rollUp(
+      final TokenView view, final Unit unit,
+      final List<STATISTICS> sentenceStatistics) {
+    final STATISTICS statistics = this.createStatistics();
+    int numTokens = 0;
+    for (int s = view.getFirstSentenceFrom(unit.getBegin());
+        s < view.getNumSentences() && view.getSentenceBegin(s) < unit.getEnd();
+        ++s) {
+      if (view.getSentenceEnd(s) > unit.getEnd()) {
+        return this.computeStatistics(view, unit);
+      }
+      statistics.merge(sentenceStatistics.get(s));
+      numTokens +=
+          view.getSentenceTokenLimit(s) - view.getSentenceFirstToken(s);
+    }
+    if (numTokens != view.getFirstTokenFrom(unit.getEnd())
+        - view.getFirstTokenFrom(unit.getBegin())) {
+      return this.computeStatistics(view, unit);
+    }
+    return statistics;
+  }
+  
+  /**
+   * Computes the values of features for one unit.
+   * <p>
+   * If no statistics are given, the statistics of the unit are collected at
+   * most once, and only if one of the features is a
+   * {@link StatisticsFeature}. The values of these features are added to the
+   * unit in one {@link ScoreBatch}, or put into the {@link FeatureMatrix} if
+   * {@link #isMatrix()}.
+   * </p>
+   * 
+   * @param view The view of the unit's JCas
+   * @param level The level of the unit
+   * @param unit The unit
+   * @param levelFeatures The features to compute
+   * @param unitStatistics The statistics of the unit or <code>null</code> to
+   * collect them when needed
+   */
+  @SuppressWarnings("unchecked")
+  private void computeFeatureValues(
+      final TokenView view, final UnitLevel level, final Unit unit,
+      final List<Feature> levelFeatures, final STATISTICS unitStatistics) {
+    STATISTICS statistics = unitStatistics;
+    final ScoreBatch batch = this.createBatch(unit);
+    for (final Feature feature : levelFeatures) {
+      if (feature instanceof StatisticsFeature) {
+        if (statistics == null) {
+          statistics = this.computeStatistics(view, unit);
+        }
+        final StatisticsFeature<STATISTICS> statisticsFeature =
+            (StatisticsFeature<STATISTICS>) feature;
+        this.addValue(batch, level, unit, statisticsFeature.getScoreName(),
+            statisticsFeature.evaluate(statistics),
+            statisticsFeature.evaluateCoverage(statistics));
+      } else {
+        feature.compute(unit);
+      }
+    }
+    this.commit(batch);
+  }
+  
+  /**
+   * Creates the batch to which the values of a unit are added.
+   * 
+   * @param unit The unit
+   * @return The batch or <code>null</code> if {@link #isMatrix()}
+   */
+  private ScoreBatch createBatch(final Unit unit) {
+    return this.isMatrix() ? null : Scores.batch(unit);
+  }
+  
+  /**
+   * Adds a value of a unit to the batch or, if there is none, to the
+   * {@link FeatureMatrix} of the unit's JCas.
+   * <p>
+   * A coverage below 1 is added as explanation of the score or, in the
+   * matrix, as value of the feature name suffixed by
+   * <code>:</code>{@link StatisticsFeature#COVERAGE}.
+   * </p>
+   * 
+   * @param batch The batch from {@link #createBatch(Unit)}
+   * @param level The level of the unit
+   * @param unit The unit
+   * @param name The name of the feature
+   * @param value The value
+   * @param coverage The fraction of the unit the value is based on
+   */
+  private void addValue(
+      final ScoreBatch batch, final UnitLevel level, final Unit unit,
+      final String name, final double value, final double coverage) {
+    if (batch == null) {
+      final FeatureMatrix matrix = FeatureMatrix.of(unit.getJCas());
+      matrix.put(level, unit, name, value);
+      if (coverage < 1.0) {
+        matrix.put(level, unit,
+            name + ":" + StatisticsFeature.COVERAGE, coverage);
+      }
+    } else {
+      final Score score = batch.add(name, value);
+      if (coverage < 1.0) {
+        batch.explain(score, StatisticsFeature.COVERAGE,
+            String.valueOf(coverage));
+      }
+    }
+  }
+  
+  /**
+   * Commits a batch from {@link #createBatch(Unit)}, if any.
+   * 
+   * @param batch The batch or <code>null</code>
+   */
+  private void commit(final ScoreBatch batch) {
+    if (batch != null) {
+      batch.commit();
+    }
+  }
+  
+  /**
+   * Collects the statistics of a unit, from which the values of all
+   * {@link StatisticsFeature}s of this engine can be computed.
+   * <p>
+   * Implementations must only read from the view and the unit, as this
+   * method is called for several units in parallel if a
+   * {@link #PROPERTY_PARALLELISM} above 1 is configured.
+   * </p>
+   * 
+   * @param view The view of the unit's JCas
+   * @param unit The unit
+   * @return The statistics
+   */
+  protected abstract STATISTICS computeStatistics(
+      final TokenView view, final Unit unit);
+  
+  /**
+   * Creates empty statistics, to which the statistics of units can be merged.
+   * 
+   * @return The statistics
+   */
+  protected abstract STATISTICS createStatistics();
+  
   /**
    * 
    * @param jCas
@@ -122,6 +730,95 @@ public abstract class AbstractUnitFeatureAnalysisEngine
   // HELPERS
   // -------------------------------------------------------------------------
   
+  /**
+   * Groups the features by the levels at which they are computed.
+   * 
+   * @return The features for each level
+   */
+  private Map<UnitLevel, List<Feature>> getFeaturesByLevel() {
+    final Map<UnitLevel, List<Feature>> featuresByLevel =
+        new EnumMap<UnitLevel, List<Feature>>(UnitLevel.class);
+    for (final Feature feature : this.features.keySet()) {
+      for (final UnitLevel level : this.features.get(feature)) {
+        featuresByLevel.computeIfAbsent(
+            level, key -> new ArrayList<Feature>()).add(feature);
+      }
+    }
+    return featuresByLevel;
+  }
+  
+  /**
+   * Gets the {@link StatisticsFeature}s among features, in the same order.
+   * 
+   * @param levelFeatures The features
+   * @return The statistics features
+   */
+  @SuppressWarnings("unchecked")
+  private List<StatisticsFeature<STATISTICS>> getStatisticsFeatures(
+      final List<Feature> levelFeatures) {
+    final List<StatisticsFeature<STATISTICS>> statisticsFeatures =
+        new ArrayList<StatisticsFeature<STATISTICS>>();
+    for (final Feature feature : levelFeatures) {
+      if (feature instanceof StatisticsFeature) {
+        statisticsFeatures.add((StatisticsFeature<STATISTICS>) feature);
+      }
+    }
+    return statisticsFeatures;
+  }
+  
+  /**
+   * Gets all units of a level in the order of their index.
+   * 
+   * @param jCas The JCas
+   * @param level The level
+   * @return The units
+   */
+  private List<Unit> getUnits(final JCas jCas, final UnitLevel level) {
+    final List<Unit> units = new ArrayList<Unit>();
+    final FSIterator<Annotation> iterator =
+        jCas.getAnnotationIndex(this.getType(level)).iterator();
+    while (iterator.hasNext()) {
+      units.add((Unit) iterator.next());
+    }
+    return units;
+  }
+  
+  /**
+   * Computes a result for each index on the {@link #getPool() pool}.
+   * 
+   * @param size The number of indices
+   * @param function The function computing the result for an index
+   * @return The results in the order of the indices
+   */
+  private <RESULT> List<RESULT> inParallel(
+      final int size, final IntFunction<RESULT> function) {
+    return this.getPool().submit(() -> IntStream.range(0, size)
+        .parallel()
+        .mapToObj(function)
+        .collect(Collectors.toList())).join();
+  }
+  
+  /**
+   * Gets the annotation type of the units of a level.
+   * 
+   * @param level The level
+   * @return The type
+   */
+  private int getType(final UnitLevel level) {
+    switch (level) {
+    case DOCUMENT:
+      return Document.type;
+    case PARAGRAPH:
+      return Paragraph.type;
+    case SENTENCE:
+      return Sentence.type;
+    case TOKEN:
+      return Token.type;
+    default:
+      throw new IllegalArgumentException("Unknown level: " + level);
+    }
+  }
+  
   /**
    * 
    * @param properties
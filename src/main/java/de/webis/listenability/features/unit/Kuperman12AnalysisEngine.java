@@ -4,20 +4,42 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.uima.cas.FSIterator;
+import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
-import org.apache.uima.jcas.tcas.Annotation;
 
+import de.aitools.commons.uima.core.Document;
+import de.aitools.commons.uima.core.Paragraph;
+import de.aitools.commons.uima.core.Sentence;
 import de.aitools.commons.uima.core.Token;
 import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.matrix.FeatureMatrix;
+import de.webis.listenability.features.unit.lexicon.CompiledLexicon;
+import de.webis.listenability.features.unit.lexicon.LexiconAccumulator;
+import de.webis.listenability.features.unit.lexicon.OrthographicNeighborhood;
+import de.webis.writing.ScoreBatch;
 import de.webis.writing.Scores;
+import de.webis.writing.TextSpan;
+import de.webis.writing.TokenView;
+import de.webis.writing.WordTable;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
 import de.webis.writing.types.Score;
 import de.webis.writing.types.ScoredUnit;
 
@@ -27,7 +49,8 @@ import de.webis.writing.types.ScoredUnit;
  * @author lukas.peter.trautner@uni-weimar.de
  *
  */
-public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
+public class Kuperman12AnalysisEngine extends AnalysisEngineComponent
+implements LayerComponent {
   
   // -------------------------------------------------------------------------
   // LOGGING
@@ -44,7 +67,10 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
    * Configuration option specifying the path to the lexicon.
    * <p>
    * The lexicon must be a csv file, where each row represents a word and each
-   * column a different feature of that word.
+   * column a different feature of that word, or such a file compiled by
+   * {@link CompiledLexicon#main(String[])}. A compiled lexicon is
+   * memory-mapped instead of read, which is much faster and shares the
+   * lexicon between all threads and processes.
    * </p>
    */
   private static final String PROPERTY_LEXICON_PATH = "lexicon";
@@ -109,14 +135,177 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
       "NMorph"      + ":" +   "MorphemeCount,"                    +
       "NPhon"       + ":" +   "PhonemesCount";
   
+  /**
+   * Configuration option specifying whether the features of each token are
+   * put into the {@link FeatureMatrix} of the JCas (<code>true</code>) or
+   * added as scores (<code>false</code>).
+   */
+  public static final String PROPERTY_MATRIX = "matrix";
+  
+  /**
+   * Default value for {@link #PROPERTY_MATRIX}.
+   */
+  private static final String DEFAULT_MATRIX = "false";
+  
+  /**
+   * Configuration option specifying the levels, separated by commas, of the
+   * units for which the features of their tokens are aggregated:
+   * <code>sentence</code>, <code>paragraph</code>, and
+   * <code>document</code>.
+   * <p>
+   * For each unit, the mean, median, minimum, and maximum of each feature are
+   * added with the suffixes {@link #SUFFIX_MEAN}, {@link #SUFFIX_MEDIAN},
+   * {@link #SUFFIX_MINIMUM}, and {@link #SUFFIX_MAXIMUM}, as well as the rate
+   * of tokens that are not in the lexicon ({@link #OUT_OF_VOCABULARY_RATE}).
+   * Tokens without letters or digits (punctuation) are ignored.
+   * </p>
+   */
+  public static final String PROPERTY_AGGREGATION_LEVELS = "levels";
+  
+  /**
+   * Default value for {@link #PROPERTY_AGGREGATION_LEVELS}: none.
+   */
+  private static final String DEFAULT_AGGREGATION_LEVELS = "";
+  
+  /**
+   * Configuration option specifying whether the features of each token are
+   * added (<code>true</code>) or only aggregated (<code>false</code>).
+   */
+  public static final String PROPERTY_TOKEN_SCORES = "tokenScores";
+  
+  /**
+   * Default value for {@link #PROPERTY_TOKEN_SCORES}.
+   */
+  private static final String DEFAULT_TOKEN_SCORES = "true";
+  
+  /**
+   * Configuration option specifying whether the features of the
+   * {@link #COLUMN_OLD20} and {@link #COLUMN_ORTHOGRAPHIC_NEIGHBORS} of words
+   * that are not in the lexicon are computed from the lexicon's vocabulary.
+   * <p>
+   * Only tokens with letters and without digits are considered words. They
+   * still count as not in the lexicon for the
+   * {@link #OUT_OF_VOCABULARY_RATE}. The computed values are not normalized,
+   * so only enable this option for lexicons that are not normalized. The
+   * index of the vocabulary is built when it is needed first.
+   * </p>
+   * @see OrthographicNeighborhood
+   */
+  public static final String PROPERTY_NEIGHBORHOOD = "neighborhood";
+  
+  /**
+   * Default value for {@link #PROPERTY_NEIGHBORHOOD}.
+   */
+  private static final String DEFAULT_NEIGHBORHOOD = "false";
+  
+  /**
+   * Name of the lexicon column of the mean orthographic Levenshtein distance
+   * to the 20 closest words.
+   */
+  public static final String COLUMN_OLD20 = "OLD";
+  
+  /**
+   * Name of the lexicon column of the number of words that differ by one
+   * letter.
+   */
+  public static final String COLUMN_ORTHOGRAPHIC_NEIGHBORS = "Ortho_N";
+  
+  /**
+   * Suffix of the aggregated mean of a feature.
+   */
+  public static final String SUFFIX_MEAN = "Mean";
+  
+  /**
+   * Suffix of the aggregated median of a feature.
+   */
+  public static final String SUFFIX_MEDIAN = "Median";
+  
+  /**
+   * Suffix of the aggregated minimum of a feature.
+   */
+  public static final String SUFFIX_MINIMUM = "Min";
+  
+  /**
+   * Suffix of the aggregated maximum of a feature.
+   */
+  public static final String SUFFIX_MAXIMUM = "Max";
+  
+  /**
+   * Name of the aggregated rate of tokens that are not in the lexicon.
+   */
+  public static final String OUT_OF_VOCABULARY_RATE = "OutOfVocabularyRate";
+  
   // -------------------------------------------------------------------------
   // MEMBERS
   // -------------------------------------------------------------------------
   
-  /**
-   * 
-   */
-   private final Map<String, Map<String, Double>> lexicon;
+   /**
+    * The ids of the words of the lexicon, for looking up token texts without
+    * creating strings.
+    */
+   private WordTable lexiconIndex;
+   
+   /**
+    * The values of the {@link #featureNames} for each word of the
+    * {@link #lexiconIndex}, row-major.
+    */
+   private double[] lexiconValues;
+   
+   /**
+    * Whether features are put into the feature matrix instead of the CAS.
+    */
+   private boolean matrix;
+   
+   /**
+    * The compiled lexicon or <code>null</code> if the {@link #lexiconIndex}
+    * is used.
+    */
+   private CompiledLexicon compiledLexicon;
+   
+   /**
+    * The indices of the columns of the {@link #compiledLexicon} for the
+    * {@link #featureNames}.
+    */
+   private int[] compiledColumns;
+   
+   /**
+    * The names of the features to add.
+    */
+   private String[] featureNames;
+   
+   /**
+    * Whether the neighborhood features of words not in the lexicon are
+    * computed.
+    */
+   private boolean computeNeighborhood;
+   
+   /**
+    * The index of the lexicon's vocabulary for words not in the lexicon, or
+    * <code>null</code> if not built yet.
+    */
+   private volatile OrthographicNeighborhood neighborhood;
+   
+   /**
+    * The index of the feature of the {@link #COLUMN_OLD20} in the
+    * {@link #featureNames} or -1.
+    */
+   private int old20Feature;
+   
+   /**
+    * The index of the feature of the {@link #COLUMN_ORTHOGRAPHIC_NEIGHBORS}
+    * in the {@link #featureNames} or -1.
+    */
+   private int orthographicNeighborsFeature;
+   
+   /**
+    * The levels of the units for which features are aggregated.
+    */
+   private Set<UnitLevel> aggregationLevels;
+   
+   /**
+    * Whether the features of each token are added.
+    */
+   private boolean tokenScores;
   
   // -------------------------------------------------------------------------
   // CONSTRUCTORS
@@ -126,7 +315,15 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
     * Creates a new analysis engine.
     */
    public Kuperman12AnalysisEngine() {
-     this.lexicon = new HashMap<String, Map<String, Double>>();
+     this.lexiconIndex = new WordTable();
+     this.lexiconValues = new double[0];
+     this.featureNames = new String[0];
+     this.computeNeighborhood = false;
+     this.neighborhood = null;
+     this.old20Feature = -1;
+     this.orthographicNeighborsFeature = -1;
+     this.aggregationLevels = Set.of();
+     this.tokenScores = Boolean.parseBoolean(DEFAULT_TOKEN_SCORES);
    }
   
   // -------------------------------------------------------------------------
@@ -134,16 +331,42 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
   // -------------------------------------------------------------------------
    
    /**
-    * Gets the current lexicon.
-    * 
-    * @return the lexicon
+    * Gets a copy of the current lexicon.
     * 
-    * @see #lexicon
+    * @return the features of each lower-cased word, which is empty if a
+    * compiled lexicon is used
     */
    public Map<String, Map<String, Double>> getLexicon() {
-     return this.lexicon;
+     final Map<String, Map<String, Double>> lexicon =
+         new HashMap<String, Map<String, Double>>();
+     final List<String> words = this.lexiconIndex.getWords();
+     final int numFeatures = this.featureNames.length;
+     for (int id = 0; id < words.size(); ++id) {
+       final Map<String, Double> entry = new HashMap<String, Double>();
+       for (int f = 0; f < numFeatures; ++f) {
+         final double value = this.lexiconValues[id * numFeatures + f];
+         if (!Double.isNaN(value)) {
+           entry.put(this.featureNames[f], value);
+         }
+       }
+       lexicon.put(words.get(id), entry);
+     }
+     return lexicon;
    }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    if (this.aggregationLevels.contains(UnitLevel.SENTENCE)) {
+      return Set.of(Layer.TOKEN, Layer.SENTENCE);
+    }
+    return Set.of(Layer.TOKEN);
+  }
+  
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of();
+  }
+  
   // -------------------------------------------------------------------------
   // CONFIGURATION
   // -------------------------------------------------------------------------
@@ -162,8 +385,27 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
               PROPERTY_WORD_COLUMN_NAME, DEFAULT_WORD_COLUMN_NAME);
       final Map<String, String> featureMappings =
           this.parseFeatureMappings(featureMappingsString);
-      this.buildLexiconFromFile(
-          lexiconPath, wordColumnName, featureMappings);
+      if (CompiledLexicon.isCompiled(Paths.get(lexiconPath))) {
+        this.openCompiledLexicon(Paths.get(lexiconPath), featureMappings);
+      } else {
+        this.featureNames = new LinkedHashSet<String>(
+            featureMappings.values()).toArray(new String[0]);
+        this.buildLexiconFromFile(
+            lexiconPath, wordColumnName, featureMappings);
+      }
+      this.computeNeighborhood = false;
+      this.neighborhood = null;
+      if (Boolean.parseBoolean(properties.getProperty(
+          PROPERTY_NEIGHBORHOOD, DEFAULT_NEIGHBORHOOD))) {
+        this.selectNeighborhoodFeatures(featureMappings);
+      }
+      this.matrix = Boolean.parseBoolean(
+          properties.getProperty(PROPERTY_MATRIX, DEFAULT_MATRIX));
+      this.aggregationLevels = this.parseAggregationLevels(
+          properties.getProperty(
+              PROPERTY_AGGREGATION_LEVELS, DEFAULT_AGGREGATION_LEVELS));
+      this.tokenScores = Boolean.parseBoolean(
+          properties.getProperty(PROPERTY_TOKEN_SCORES, DEFAULT_TOKEN_SCORES));
     } catch (IOException e) {
       LOG.severe(e.toString());
       throw new UncheckedIOException(e);
@@ -176,43 +418,351 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
 
   @Override
   public void accept(final JCas jCas) {
-    final FSIterator<Annotation> iterator = 
-        jCas.getAnnotationIndex(Token.type).iterator();
-    while (iterator.hasNext()) {
-      final Token token = (Token) iterator.next();
-      final String text = token.getCoveredText().toLowerCase();
-      final Map<String, Double> features =
-          this.getLexicon().getOrDefault(text, null);
-      if (features == null)
-        continue;
-      this.addFeatures(token, features);
+    final TokenView view = TokenView.of(jCas);
+    final List<Aggregation> aggregations = new ArrayList<Aggregation>();
+    for (final UnitLevel level : this.aggregationLevels) {
+      aggregations.add(new Aggregation(level, this.getUnits(jCas, level)));
+    }
+
+    final double[] values = new double[this.featureNames.length];
+    final TextSpan text = new TextSpan();
+    for (int t = 0; t < view.size(); ++t) {
+      view.getText(t, text);
+      final boolean known = this.lookUp(text, values);
+      final boolean computed = !known && this.computeNeighborhood(text, values);
+      if ((known || computed) && this.tokenScores) {
+        this.addFeatures(view.getToken(t), values);
+      }
+      if (!aggregations.isEmpty() && !isPunctuation(text)) {
+        for (final Aggregation aggregation : aggregations) {
+          aggregation.add(view.getBegin(t), view.getEnd(t),
+              known || computed ? values : null, known);
+        }
+      }
+    }
+    for (final Aggregation aggregation : aggregations) {
+      aggregation.finish();
     }
   }
   
+  /**
+   * Gets the features of a word from the lexicon.
+   * 
+   * @param word The word, in any case
+   * @param values The array to put the value of each feature in, where
+   * {@link Double#NaN} marks missing values
+   * @return Whether the word is in the lexicon
+   */
+  private boolean lookUp(final CharSequence word, final double[] values) {
+    if (this.compiledLexicon != null) {
+      final int index = this.compiledLexicon.indexOf(word);
+      if (index < 0) {
+        return false;
+      }
+      for (int f = 0; f < values.length; ++f) {
+        values[f] =
+            this.compiledLexicon.getValue(index, this.compiledColumns[f]);
+      }
+      return true;
+    }
+    final int id = this.lexiconIndex.indexOf(word);
+    if (id == WordTable.NO_ID) {
+      return false;
+    }
+    System.arraycopy(this.lexiconValues, id * values.length,
+        values, 0, values.length);
+    return true;
+  }
+  
+  /**
+   * Computes the orthographic neighborhood features of a word that is not in
+   * the lexicon.
+   * 
+   * @param word The word, in any case
+   * @param values The array to put the value of each feature in, where
+   * all features but the neighborhood ones are set to {@link Double#NaN}
+   * @return Whether the features were computed, which requires the
+   * {@link #PROPERTY_NEIGHBORHOOD} and the text to be a word
+   */
+  private boolean computeNeighborhood(
+      final CharSequence word, final double[] values) {
+    if (!this.computeNeighborhood || !isWord(word)) {
+      return false;
+    }
+    final double[] measures = this.getNeighborhood().getMeasures(word);
+    Arrays.fill(values, Double.NaN);
+    if (this.old20Feature >= 0) {
+      values[this.old20Feature] = measures[0];
+    }
+    if (this.orthographicNeighborsFeature >= 0) {
+      values[this.orthographicNeighborsFeature] = measures[1];
+    }
+    return true;
+  }
+  
   /**
    * Adds all features for a {@link Token}, present in the lexicon, as
    * a {@link Score} to the JCas, by calling
    * {@link Scores#add(Unit, String, double)}.
+   * <p>
+   * If {@link #PROPERTY_MATRIX} is set, the features are put into the
+   * {@link FeatureMatrix} of the JCas instead.
+   * </p>
    * 
    * @param token     The token for which the features are added  
-   * @param features  The features to add
+   * @param values    The value of each feature, {@link Double#NaN} for
+   *                  missing ones
    * 
    * @see Score
    * @see ScoredUnit
    * @see Scores
    */
-  private void addFeatures(
-      final Token token,
-      final Map<String, Double> features) {
-    for (final String feature : features.keySet()) {
-      Scores.add(token, feature, features.get(feature));
+  private void addFeatures(final Token token, final double[] values) {
+    final FeatureMatrix matrix =
+        this.matrix ? FeatureMatrix.of(token.getJCas()) : null;
+    final ScoreBatch batch = this.matrix ? null : Scores.batch(token);
+    for (int f = 0; f < values.length; ++f) {
+      if (Double.isNaN(values[f])) {
+        continue;
+      }
+      if (matrix != null) {
+        matrix.put(UnitLevel.TOKEN, token, this.featureNames[f], values[f]);
+      } else {
+        batch.add(this.featureNames[f], values[f]);
+      }
+    }
+    if (batch != null) {
+      batch.commit();
+    }
+  }
+  
+  /**
+   * Adds the aggregated features of a unit like
+   * {@link #addFeatures(Token, double[])}.
+   * 
+   * @param level The level of the unit
+   * @param unit The unit
+   * @param accumulator The accumulated features of the unit's tokens
+   */
+  private void addAggregatedFeatures(
+      final UnitLevel level, final Unit unit,
+      final LexiconAccumulator accumulator) {
+    final FeatureMatrix matrix =
+        this.matrix ? FeatureMatrix.of(unit.getJCas()) : null;
+    final ScoreBatch batch = this.matrix ? null : Scores.batch(unit);
+    final List<String> names = new ArrayList<String>();
+    final List<Double> values = new ArrayList<Double>();
+    names.add(OUT_OF_VOCABULARY_RATE);
+    values.add(accumulator.getOutOfVocabularyRate());
+    for (int f = 0; f < this.featureNames.length; ++f) {
+      if (accumulator.getCount(f) > 0) {
+        final String name = this.featureNames[f];
+        names.add(name + SUFFIX_MEAN);
+        values.add(accumulator.getMean(f));
+        names.add(name + SUFFIX_MEDIAN);
+        values.add(accumulator.getMedian(f));
+        names.add(name + SUFFIX_MINIMUM);
+        values.add(accumulator.getMinimum(f));
+        names.add(name + SUFFIX_MAXIMUM);
+        values.add(accumulator.getMaximum(f));
+      }
+    }
+    for (int v = 0; v < names.size(); ++v) {
+      if (matrix != null) {
+        matrix.put(level, unit, names.get(v), values.get(v));
+      } else {
+        batch.add(names.get(v), values.get(v));
+      }
+    }
+    if (batch != null) {
+      batch.commit();
+    }
+  }
+  
+  // -------------------------------------------------------------------------
+  // AGGREGATION
+  // -------------------------------------------------------------------------
+  
+  /**
+   * Aggregates the features of the tokens of each unit of one level while
+   * the tokens are processed in order.
+   */
+  private final class Aggregation {
+    
+    private final UnitLevel level;
+    
+    private final List<Unit> units;
+    
+    private final LexiconAccumulator accumulator;
+    
+    /**
+     * The index of the unit that is currently accumulated.
+     */
+    private int current;
+    
+    private Aggregation(final UnitLevel level, final List<Unit> units) {
+      this.level = level;
+      this.units = units;
+      this.accumulator = new LexiconAccumulator(featureNames.length);
+      this.current = 0;
+    }
+    
+    /**
+     * Adds a token to the unit that covers it, finishing units before it.
+     * 
+     * @param begin The begin of the token
+     * @param end The end of the token
+     * @param values The features of the token or <code>null</code> if it has
+     * none
+     * @param known Whether the token is in the lexicon
+     */
+    private void add(final int begin, final int end, final double[] values,
+        final boolean known) {
+      while (this.current < this.units.size()
+          && this.units.get(this.current).getEnd() <= begin) {
+        this.finishCurrent();
+      }
+      if (this.current < this.units.size()
+          && this.units.get(this.current).getBegin() <= begin
+          && end <= this.units.get(this.current).getEnd()) {
+        if (values == null) {
+          this.accumulator.addOutOfVocabulary();
+        } else if (!known) {
+          this.accumulator.addOutOfVocabulary(values);
+        } else {
+          this.accumulator.add(values);
+        }
+      }
     }
+    
+    /**
+     * Finishes all remaining units.
+     */
+    private void finish() {
+      while (this.current < this.units.size()) {
+        this.finishCurrent();
+      }
+    }
+    
+    private void finishCurrent() {
+      if (this.accumulator.getNumTokens() > 0) {
+        addAggregatedFeatures(
+            this.level, this.units.get(this.current), this.accumulator);
+      }
+      this.accumulator.clear();
+      ++this.current;
+    }
+    
   }
 
   // -------------------------------------------------------------------------
   // HELPERS
   // -------------------------------------------------------------------------
   
+  /**
+   * Checks whether a token text has no letters or digits.
+   * 
+   * @param text The text
+   * @return Whether the text is punctuation
+   */
+  private static boolean isPunctuation(final CharSequence text) {
+    for (int c = 0; c < text.length(); ++c) {
+      if (Character.isLetterOrDigit(text.charAt(c))) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  /**
+   * Checks whether a token text is a word, which has letters but no digits.
+   * 
+   * @param text The text
+   * @return Whether the text is a word
+   */
+  private static boolean isWord(final CharSequence text) {
+    boolean hasLetter = false;
+    for (int c = 0; c < text.length(); ++c) {
+      final char character = text.charAt(c);
+      if (Character.isDigit(character)) {
+        return false;
+      }
+      hasLetter |= Character.isLetter(character);
+    }
+    return hasLetter;
+  }
+  
+  /**
+   * Gets the units of a level in the order of their index.
+   * 
+   * @param jCas The JCas
+   * @param level The level
+   * @return The units
+   */
+  private List<Unit> getUnits(final JCas jCas, final UnitLevel level) {
+    switch (level) {
+    case DOCUMENT:
+      return new ArrayList<Unit>(JCasUtil.select(jCas, Document.class));
+    case PARAGRAPH:
+      return new ArrayList<Unit>(JCasUtil.select(jCas, Paragraph.class));
+    case SENTENCE:
+      return new ArrayList<Unit>(JCasUtil.select(jCas, Sentence.class));
+    default:
+      throw new IllegalArgumentException("Can not aggregate for " + level);
+    }
+  }
+  
+  /**
+   * Parses the levels for which features are aggregated.
+   * 
+   * @param levels The levels, separated by commas
+   * @return The parsed levels
+   * 
+   * @see #PROPERTY_AGGREGATION_LEVELS
+   */
+  private Set<UnitLevel> parseAggregationLevels(final String levels) {
+    final Set<UnitLevel> parsed = EnumSet.noneOf(UnitLevel.class);
+    for (final String level : levels.split(",")) {
+      if (level.trim().isEmpty()) {
+        continue;
+      }
+      final UnitLevel unitLevel =
+          UnitLevel.valueOf(level.trim().toUpperCase());
+      if (unitLevel == UnitLevel.TOKEN) {
+        throw new IllegalArgumentException("Can not aggregate for " + level);
+      }
+      parsed.add(unitLevel);
+    }
+    return parsed;
+  }
+  
+  /**
+   * Maps the compiled lexicon and selects its columns to add.
+   * 
+   * @param lexiconPath The path of the compiled lexicon
+   * @param featureMappings The mapping from column names to the feature names
+   *                        as they will appear in CAS
+   * @throws IOException If the lexicon could not be mapped
+   */
+  private void openCompiledLexicon(
+      final Path lexiconPath,
+      final Map<String, String> featureMappings) throws IOException {
+    this.compiledLexicon = CompiledLexicon.open(lexiconPath);
+    final List<String> columns = this.compiledLexicon.getColumns();
+    final List<Integer> compiledColumns = new ArrayList<Integer>();
+    final List<String> featureNames = new ArrayList<String>();
+    for (int c = 0; c < columns.size(); ++c) {
+      final String featureName = featureMappings.get(columns.get(c));
+      if (featureName != null) {
+        compiledColumns.add(c);
+        featureNames.add(featureName);
+      }
+    }
+    this.compiledColumns =
+        compiledColumns.stream().mapToInt(Integer::intValue).toArray();
+    this.featureNames = featureNames.toArray(new String[0]);
+  }
+  
   /**
    * 
    * 
@@ -223,7 +773,7 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
    * @see #DEFAULT_FEATURE_MAPPING
    */
   private Map<String, String> parseFeatureMappings(final String mappings) {
-    Map<String, String> parsed = new HashMap<String, String>();
+    Map<String, String> parsed = new LinkedHashMap<String, String>();
     for (final String mapping : mappings.split(",")) {
       if (mapping.contains(":") && mapping.split(":").length == 2) {
         parsed.put(mapping.split(":")[0], mapping.split(":")[1]);
@@ -236,7 +786,9 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
   
   /**
    * Reads the lexicon containing the feature values from a csv file, specified
-   * by <code>lexiconPath</code>.
+   * by <code>lexiconPath</code>, into the {@link #lexiconIndex} and the
+   * {@link #lexiconValues} of the {@link #featureNames}, so that
+   * {@link #lookUp(CharSequence, double[])} needs no string keys.
    * 
    * @param lexiconPath The path to the csv containing the lexicon
    * @param featureMappings The mapping from feature names in the csv file
@@ -244,12 +796,13 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
    * @throws IOException If the lexicon could not be read
    * 
    * @see #addEntryToLexicon(CSVRecord, String, Map)
-   * @see #addFeatureToEntry(CSVRecord, Map, String, String)
    */
   private void buildLexiconFromFile(
       final String lexiconPath,
       final String wordColumnName,
       final Map<String, String> featureMappings) throws IOException {
+    this.lexiconIndex = new WordTable();
+    this.lexiconValues = new double[0];
     final BufferedReader reader =
         new BufferedReader(new FileReader(lexiconPath));
     final Iterable<CSVRecord> records =
@@ -257,42 +810,82 @@ public class Kuperman12AnalysisEngine extends AnalysisEngineComponent {
     for (final CSVRecord record : records) {
       this.addEntryToLexicon(record, wordColumnName, featureMappings);
     }
+    this.lexiconValues = Arrays.copyOf(this.lexiconValues,
+        this.lexiconIndex.size() * this.featureNames.length);
   }
   
   /**
+   * Selects the neighborhood features to compute for words not in the
+   * lexicon, if any of them is added.
    * 
-   * @param record
-   * @param featureMappings
+   * @param featureMappings The mapping from column names to the feature names
+   *                        as they will appear in CAS
    */
-  private void addEntryToLexicon(
-      final CSVRecord record,
-      final String wordColumnName,
+  private void selectNeighborhoodFeatures(
       final Map<String, String> featureMappings) {
-    final String word = record.get(wordColumnName).toLowerCase();
-    final Map<String, Double> lexiconEntry = new HashMap<String, Double>();
-    for (final String columnName : featureMappings.keySet()) {
-      final String featureName = featureMappings.get(columnName);
-      this.addFeatureToEntry(record, lexiconEntry, columnName, featureName);
+    final List<String> names = Arrays.asList(this.featureNames);
+    this.old20Feature = names.indexOf(featureMappings.get(COLUMN_OLD20));
+    this.orthographicNeighborsFeature =
+        names.indexOf(featureMappings.get(COLUMN_ORTHOGRAPHIC_NEIGHBORS));
+    this.computeNeighborhood =
+        this.old20Feature >= 0 || this.orthographicNeighborsFeature >= 0;
+  }
+  
+  /**
+   * Gets the index of the lexicon's vocabulary, building it on first use.
+   * 
+   * @return The index
+   */
+  private OrthographicNeighborhood getNeighborhood() {
+    OrthographicNeighborhood neighborhood = this.neighborhood;
+    if (neighborhood == null) {
+      synchronized (this) {
+        neighborhood = this.neighborhood;
+        if (neighborhood == null) {
+          if (this.compiledLexicon != null) {
+            neighborhood = OrthographicNeighborhood.of(this.compiledLexicon);
+          } else {
+            neighborhood =
+                new OrthographicNeighborhood(this.lexiconIndex.getWords());
+          }
+          this.neighborhood = neighborhood;
+        }
+      }
     }
-    this.getLexicon().put(word, lexiconEntry);
+    return neighborhood;
   }
   
   /**
+   * Adds the word of a record to the {@link #lexiconIndex} and its values to
+   * the {@link #lexiconValues}, replacing those of an earlier record for the
+   * same word.
    * 
-   * @param record
-   * @param lexiconEntry
-   * @param columnName
-   * @param featureName
+   * @param record The record
+   * @param wordColumnName The name of the column of the word
+   * @param featureMappings The mapping from column names to the feature names
+   *                        as they will appear in CAS
    */
-  private void addFeatureToEntry(
+  private void addEntryToLexicon(
       final CSVRecord record,
-      final Map<String, Double> lexiconEntry,
-      final String columnName,
-      final String featureName) {
-    final String value = record.get(columnName);
-    if (value.equals("") || value == null)
-      return;
-    lexiconEntry.put(featureName, Double.parseDouble(value));
+      final String wordColumnName,
+      final Map<String, String> featureMappings) {
+    final int id = this.lexiconIndex.add(record.get(wordColumnName));
+    final int numFeatures = this.featureNames.length;
+    final int offset = id * numFeatures;
+    if (offset + numFeatures > this.lexiconValues.length) {
+      this.lexiconValues = Arrays.copyOf(this.lexiconValues,
+          Math.max(offset + numFeatures, 2 * this.lexiconValues.length));
+    }
+    Arrays.fill(this.lexiconValues, offset, offset + numFeatures, Double.NaN);
+    final List<String> names = Arrays.asList(this.featureNames);
+    for (final Map.Entry<String, String> mapping
+        : featureMappings.entrySet()) {
+      final String value = record.get(mapping.getKey());
+      if (value != null && !value.equals("")) {
+        this.lexiconValues[offset + names.indexOf(mapping.getValue())] =
+            Double.parseDouble(value);
+      }
+    }
   }
   
 }
@@ -2,6 +2,7 @@ package de.webis.listenability.features.unit;
 
 import java.util.Properties;
 
+import de.aitools.commons.uima.supertype.Unit;
 import de.aitools.ie.stanford.StanfordDependencyParser;
 import de.aitools.ie.stanford.Tokenizer;
 import de.webis.listenability.features.unit.features.AbstractFeature;
@@ -18,11 +19,13 @@ import de.webis.listenability.features.unit.features.ortmann19.MeanWordLength;
 import de.webis.listenability.features.unit.features.ortmann19.MedianSentenceLength;
 import de.webis.listenability.features.unit.features.ortmann19.MedianWordLength;
 import de.webis.listenability.features.unit.features.ortmann19.NomCmplx;
+import de.webis.listenability.features.unit.features.ortmann19.Ortmann19Statistics;
 import de.webis.listenability.features.unit.features.ortmann19.PronounFirst;
 import de.webis.listenability.features.unit.features.ortmann19.PronounSubject;
 import de.webis.listenability.features.unit.features.ortmann19.Question;
 import de.webis.listenability.features.unit.features.ortmann19.Subord;
 import de.webis.listenability.features.unit.features.ortmann19.VerbsToNouns;
+import de.webis.writing.TokenView;
 
 /**
  * Analysis engine that adds the features described in
@@ -35,7 +38,8 @@ listenability-tools/-/blob/master/material/ortmann19-variation-between
  * {@link StanfordDependencyParser}.
  * </p><p>
  * For the configuration options of this analysis engine, see
- * {@link AbstractUnitFeatureAnalysisEngine}.
+ * {@link AbstractUnitFeatureAnalysisEngine}. In fused evaluation, the
+ * features are computed from {@link Ortmann19Statistics}.
  * </p><p>
  * For information regarding the individual features check the documentation
  * of the features.  
@@ -49,7 +53,7 @@ listenability-tools/-/blob/master/material/ortmann19-variation-between
  * 
  */
 public class Ortmann19AnalysisEngine
-  extends AbstractUnitFeatureAnalysisEngine {
+  extends AbstractUnitFeatureAnalysisEngine<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONFIGURATION
@@ -57,6 +61,7 @@ public class Ortmann19AnalysisEngine
 
   @Override
   public void configure(final Properties properties) {
+    super.configure(properties);
     this.addFeature(properties, MeanWordLength.class);
     this.addFeature(properties, MedianWordLength.class);
     this.addFeature(properties, MeanSentenceLength.class);
@@ -76,4 +81,19 @@ public class Ortmann19AnalysisEngine
     this.addFeature(properties, Interjections.class);
   }
   
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  @Override
+  protected Ortmann19Statistics computeStatistics(
+      final TokenView view, final Unit unit) {
+    return Ortmann19Statistics.of(view, unit);
+  }
+
+  @Override
+  protected Ortmann19Statistics createStatistics() {
+    return new Ortmann19Statistics();
+  }
+  
 }
@@ -5,14 +5,25 @@ import java.util.Set;
 import de.aitools.commons.uima.supertype.Unit;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.writing.Scores;
+import de.webis.writing.types.Score;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * TODO documentation
  * 
+ * @param STATISTICS The class of the statistics from which the feature value
+ * can be computed
  * @author lukas.peter.trautner@uni-weimar.de
  *
  */
-public abstract class AbstractFeature implements Feature {
+public abstract class AbstractFeature<STATISTICS>
+implements StatisticsFeature<STATISTICS> {
+  
+  /**
+   * The layers most features need: tokens and their part-of-speech tags.
+   */
+  protected static final Set<Layer> TOKEN_AND_POS_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS);
   
   /**
    * 
@@ -33,17 +44,118 @@ public abstract class AbstractFeature implements Feature {
    */
   protected abstract double computeValue(final Unit span);
   
+  /**
+   * Computes the value of this feature from previously collected statistics.
+   * 
+   * @param statistics The statistics of the span
+   * @return The value
+   */
+  protected abstract double computeValue(final STATISTICS statistics);
+  
+  /**
+   * Computes which fraction of a span the value of this feature is based on.
+   * <p>
+   * By default, this is 1.
+   * </p>
+   * 
+   * @param span The span
+   * @return The fraction
+   * @see StatisticsFeature#evaluateCoverage(Object)
+   */
+  protected double computeCoverage(final Unit span) {
+    return 1.0;
+  }
+  
+  /**
+   * Computes the value of this feature for a span and which fraction of the
+   * span the value is based on.
+   * <p>
+   * By default, this calls {@link #computeValue(Unit)} and
+   * {@link #computeCoverage(Unit)}. Features whose coverage needs a pass over
+   * the span override this method to compute both in the same pass.
+   * </p>
+   * 
+   * @param span The span
+   * @return The value and the coverage
+   */
+  protected double[] computeValueAndCoverage(final Unit span) {
+    return new double[] {
+        this.computeValue(span), this.computeCoverage(span) };
+  }
+  
+  /**
+   * Computes which fraction of a span the value of this feature is based on,
+   * from previously collected statistics.
+   * <p>
+   * By default, this is 1.
+   * </p>
+   * 
+   * @param statistics The statistics of the span
+   * @return The fraction
+   * @see StatisticsFeature#evaluateCoverage(Object)
+   */
+  protected double computeCoverage(final STATISTICS statistics) {
+    return 1.0;
+  }
+  
   /**
    * 
    */
   public final void compute(final Unit span) {
-    Scores.add(span, this.getName(), this.computeValue(span));
+    final double[] valueAndCoverage = this.computeValueAndCoverage(span);
+    final Score score =
+        Scores.add(span, this.getName(), valueAndCoverage[0]);
+    this.explainCoverage(score, valueAndCoverage[1]);
   }
   
   /**
    * 
    */
+  public final void compute(final Unit span, final STATISTICS statistics) {
+    final Score score =
+        Scores.add(span, this.getName(), this.computeValue(statistics));
+    this.explainCoverage(score, this.computeCoverage(statistics));
+  }
+  
+  @Override
+  public final double evaluate(final STATISTICS statistics) {
+    return this.computeValue(statistics);
+  }
+  
+  @Override
+  public final double evaluateCoverage(final STATISTICS statistics) {
+    return this.computeCoverage(statistics);
+  }
+  
+  /**
+   * Adds the coverage of a value to its score, if it is below 1.
+   * 
+   * @param score The score
+   * @param coverage The coverage
+   */
+  private void explainCoverage(final Score score, final double coverage) {
+    if (coverage < 1.0) {
+      Scores.explain(score, COVERAGE, String.valueOf(coverage));
+    }
+  }
+  
+  @Override
+  public final String getScoreName() {
+    return this.getName();
+  }
+  
+  /**
+   * Gets the annotation layers this feature needs to compute its value.
+   * <p>
+   * By default, these are {@link #TOKEN_AND_POS_LAYERS}.
+   * </p>
+   */
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return TOKEN_AND_POS_LAYERS;
+  }
+  
   public final boolean check(final Set<UnitLevel> levels) {
     return this.getConstraints().containsAll(levels);
   }
-}
\ No newline at end of file
+}
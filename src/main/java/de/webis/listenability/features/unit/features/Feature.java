@@ -4,6 +4,7 @@ import java.util.Set;
 
 import de.aitools.commons.uima.supertype.Unit;
 import de.webis.listenability.features.unit.UnitLevel;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * TODO documentation
@@ -26,4 +27,11 @@ public interface Feature {
    */
   public void compute(final Unit span);
   
+  /**
+   * Gets the annotation layers this feature needs to compute its value.
+   * 
+   * @return The layers
+   */
+  public Set<Layer> getRequiredLayers();
+  
 }
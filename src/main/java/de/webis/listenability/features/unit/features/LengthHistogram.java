@@ -0,0 +1,161 @@
+package de.webis.listenability.features.unit.features;
+
+import java.util.Arrays;
+
+/**
+ * Counting histogram over non-negative lengths (e.g., of words or sentences).
+ * <p>
+ * As lengths are small integers, the histogram keeps one counter per length
+ * instead of the lengths themselves. Adding a length thus does not allocate
+ * (unless a length is larger than all lengths before), and the median is
+ * computed by one pass over the counters instead of sorting. Histograms can be
+ * merged, so that the median of a paragraph or document can be computed from
+ * the histograms of its sentences.
+ * </p>
+ *
+ * @author lukas.peter.trautner@uni-weimar.de
+ *
+ * @see MergeableStatistics
+ *
+ */
+public class LengthHistogram
+  implements MergeableStatistics<LengthHistogram> {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The initial number of counters.
+   */
+  private static final int INITIAL_CAPACITY = 32;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The number of times each length was added.
+   */
+  private int[] counts;
+
+  /**
+   * The number of lengths that were added.
+   */
+  private int size;
+
+  /**
+   * One more than the largest length that was added.
+   */
+  private int limit;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTION
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates an empty histogram.
+   */
+  public LengthHistogram() {
+    this.counts = new int[INITIAL_CAPACITY];
+    this.size = 0;
+    this.limit = 0;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of lengths that were added.
+   *
+   * @return The number
+   */
+  public int getSize() {
+    return this.size;
+  }
+
+  /**
+   * Gets the number of times a length was added.
+   *
+   * @param length The length
+   * @return The number
+   */
+  public int getCount(final int length) {
+    if (length < 0 || length >= this.limit)
+      return 0;
+    return this.counts[length];
+  }
+
+  /**
+   * Gets the median of all lengths that were added.
+   * <p>
+   * For an even number of lengths, this is the mean of the two middle
+   * lengths.
+   * </p>
+   *
+   * @return The median or 0 if no length was added
+   */
+  public double getMedian() {
+    if (this.size == 0)
+      return 0.0;
+    // the median is between the lengths at these (zero-based) ranks
+    final int lowerRank = (this.size - 1) / 2;
+    final int upperRank = this.size / 2;
+
+    int lower = -1;
+    int seen = 0;
+    for (int length = 0; length < this.limit; ++length) {
+      seen += this.counts[length];
+      if (lower < 0 && seen > lowerRank)
+        lower = length;
+      if (seen > upperRank)
+        return (lower + length) / 2.0;
+    }
+    throw new IllegalStateException("Inconsistent histogram");
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds one length to the histogram.
+   *
+   * @param length The length
+   * @throws IllegalArgumentException If the length is negative
+   */
+  public void add(final int length) {
+    if (length < 0)
+      throw new IllegalArgumentException("Negative length: " + length);
+    if (length >= this.counts.length)
+      this.counts = Arrays.copyOf(
+          this.counts, Math.max(this.counts.length * 2, length + 1));
+    this.counts[length]++;
+    this.size++;
+    if (length >= this.limit)
+      this.limit = length + 1;
+  }
+
+  @Override
+  public void merge(final LengthHistogram other) {
+    if (other.limit > this.counts.length)
+      this.counts = Arrays.copyOf(
+          this.counts, Math.max(this.counts.length * 2, other.limit));
+    for (int length = 0; length < other.limit; ++length) {
+      this.counts[length] += other.counts[length];
+    }
+    this.size += other.size;
+    this.limit = Math.max(this.limit, other.limit);
+  }
+
+  /**
+   * Removes all lengths from the histogram, keeping its counters for reuse.
+   */
+  public void clear() {
+    Arrays.fill(this.counts, 0, this.limit, 0);
+    this.size = 0;
+    this.limit = 0;
+  }
+
+}
@@ -0,0 +1,29 @@
+package de.webis.listenability.features.unit.features;
+
+/**
+ * Statistics of a unit that can be summed up with the statistics of other
+ * units.
+ * <p>
+ * If the statistics consist only of counts (e.g., numerators and
+ * denominators of ratios) or histograms, the statistics of a larger unit are
+ * the merged statistics of the units it consists of. This allows to collect
+ * statistics once per sentence and roll them up to paragraphs and documents.
+ * </p>
+ * 
+ * @param STATISTICS The class of the statistics
+ * @author lukas.peter.trautner@uni-weimar.de
+ *
+ * @see StatisticsFeature
+ *
+ */
+public interface MergeableStatistics<
+  STATISTICS extends MergeableStatistics<STATISTICS>> {
+  
+  /**
+   * Adds the statistics of another unit to these statistics.
+   * 
+   * @param other The statistics of the other unit, which are not changed
+   */
+  public void merge(final STATISTICS other);
+
+}
@@ -0,0 +1,71 @@
+package de.webis.listenability.features.unit.features;
+
+import de.aitools.commons.uima.supertype.Unit;
+
+/**
+ * A {@link Feature} that can compute its value from statistics of a unit
+ * that were collected beforehand, instead of scanning the unit itself.
+ * <p>
+ * This allows to collect the statistics of a unit in a single pass over its
+ * tokens and share them between all features.
+ * </p>
+ * 
+ * @param STATISTICS The class of the statistics
+ * @author lukas.peter.trautner@uni-weimar.de
+ *
+ */
+public interface StatisticsFeature<STATISTICS> extends Feature {
+  
+  /**
+   * The key of the explanation of a score, and the suffix of the column in a
+   * feature matrix, that holds the coverage of a value if it is below 1.
+   * 
+   * @see #evaluateCoverage(Object)
+   */
+  public static final String COVERAGE = "coverage";
+  
+  /**
+   * Computes the value of this feature from the statistics of a span.
+   * 
+   * @param span The span for which the value is computed
+   * @param statistics The statistics of the span
+   */
+  public void compute(final Unit span, final STATISTICS statistics);
+  
+  /**
+   * Computes the value of this feature from the statistics of a span, but
+   * does not add it to the span.
+   * <p>
+   * Unlike {@link #compute(Unit, Object)}, this method does not modify the
+   * CAS and may thus be called from several threads at once.
+   * </p>
+   * 
+   * @param statistics The statistics of the span
+   * @return The value
+   */
+  public double evaluate(final STATISTICS statistics);
+  
+  /**
+   * Computes which fraction of a span the value of this feature is based on,
+   * for example if parts of it lack annotations the feature needs.
+   * <p>
+   * Like {@link #evaluate(Object)}, this method may be called from several
+   * threads at once. The default implementation returns 1.
+   * </p>
+   * 
+   * @param statistics The statistics of the span
+   * @return The fraction between 0 and 1
+   */
+  public default double evaluateCoverage(final STATISTICS statistics) {
+    return 1.0;
+  }
+  
+  /**
+   * Gets the name of the score under which the value of this feature is added
+   * to a span.
+   * 
+   * @return The name
+   */
+  public String getScoreName();
+
+}
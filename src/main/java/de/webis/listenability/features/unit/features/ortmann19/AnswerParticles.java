@@ -13,6 +13,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.TextSpan;
 
 /**
  * This class implements the feature called "PTC" in Ortmann19.
@@ -35,7 +36,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class AnswerParticles extends AbstractFeature {
+public class AnswerParticles
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -58,8 +60,14 @@ public class AnswerParticles extends AbstractFeature {
   /**
    * The list of answer particles.
    */
-  private static final List<String> ANSWER_PARTICLES =
+  static final List<String> ANSWER_PARTICLES =
       List.of("yes", "no", "please", "thanks");
+  
+  /**
+   * The length of the longest answer particle.
+   */
+  static final int MAX_LENGTH =
+      ANSWER_PARTICLES.stream().mapToInt(String::length).max().getAsInt();
 
   // -------------------------------------------------------------------------
   // GETTERS
@@ -83,16 +91,38 @@ public class AnswerParticles extends AbstractFeature {
   protected double computeValue(Unit span) {
     double tokenCount = 0.0;
     double particleCount = 0.0;
+    final TextSpan text = new TextSpan();
     for (final Token token : JCasUtil.selectCovered(Token.class, span)) {
-      final String text = token.getCoveredText().toLowerCase();
+      text.set(token);
       final String pos = token.getPos();
       if (pos.equals(".")) // exclude punctuation
         continue;
-      if (ANSWER_PARTICLES.contains(text))
+      if (isAnswerParticle(text))
         particleCount++;
       tokenCount++;
     }
     return tokenCount == 0.0 ? 0.0 : particleCount / tokenCount;
   }
+  
+  /**
+   * Checks whether a text is one of the {@link #ANSWER_PARTICLES}, ignoring
+   * case.
+   * 
+   * @param text The text
+   * @return Whether the text is an answer particle
+   */
+  static boolean isAnswerParticle(final CharSequence text) {
+    for (final String particle : ANSWER_PARTICLES) {
+      if (TextSpan.contentEqualsIgnoreCase(particle, text))
+        return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getWords() == 0 ? 0.0
+        : (double) statistics.getAnswerParticles() / statistics.getWords();
+  }
 
 }
@@ -14,6 +14,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called " coordInit" in Ortmann19.
@@ -35,7 +36,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class CoordInit extends AbstractFeature {
+public class CoordInit
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -54,6 +56,12 @@ public class CoordInit extends AbstractFeature {
           UnitLevel.DOCUMENT,
           UnitLevel.PARAGRAPH);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.SENTENCE);
+  
   // -------------------------------------------------------------------------
   // GETTERS
   // -------------------------------------------------------------------------
@@ -68,6 +76,11 @@ public class CoordInit extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
@@ -89,4 +102,11 @@ public class CoordInit extends AbstractFeature {
       return sentenceCount == 0.0 ? 0.0 : coordInitCount / sentenceCount;
   }
 
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getSentences() == 0 ? 0.0
+        : (double) statistics.getCoordInitSentences()
+          / statistics.getSentences();
+  }
+
 }
@@ -14,6 +14,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "DEM" in Ortmann19.
@@ -49,7 +50,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class DemonstrativePronouns extends AbstractFeature {
+public class DemonstrativePronouns
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -69,10 +71,16 @@ public class DemonstrativePronouns extends AbstractFeature {
           UnitLevel.PARAGRAPH,
           UnitLevel.SENTENCE);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.LEMMA);
+  
   /**
    * The lemmas of demonstrative pronouns.
    */
-  private static final List<String> PRONOUNS =
+  static final List<String> PRONOUNS =
       List.of("this", "that", "those", "these", "the");
   
   // -------------------------------------------------------------------------
@@ -89,6 +97,11 @@ public class DemonstrativePronouns extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
@@ -109,4 +122,11 @@ public class DemonstrativePronouns extends AbstractFeature {
     return tokenCount == 0.0 ? 0.0 : pronounCount / tokenCount;
   }
 
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getWords() == 0 ? 0.0
+        : (double) statistics.getDemonstrativePronouns()
+          / statistics.getWords();
+  }
+
 }
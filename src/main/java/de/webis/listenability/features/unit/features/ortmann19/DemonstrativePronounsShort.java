@@ -14,6 +14,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "DEMshort" in Ortmann19.
@@ -46,7 +47,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class DemonstrativePronounsShort extends AbstractFeature {
+public class DemonstrativePronounsShort
+  extends AbstractFeature<Ortmann19Statistics> {
 
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -66,10 +68,16 @@ public class DemonstrativePronounsShort extends AbstractFeature {
           UnitLevel.PARAGRAPH,
           UnitLevel.SENTENCE);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.LEMMA);
+  
   /**
    * The lemmas of demonstrative pronouns considered by this feature.
    */
-  private static final List<String> LEMMAS =
+  static final List<String> LEMMAS =
       List.of("the", "this", "that");
 
   // -------------------------------------------------------------------------
@@ -86,6 +94,11 @@ public class DemonstrativePronounsShort extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
@@ -106,5 +119,12 @@ public class DemonstrativePronounsShort extends AbstractFeature {
     }
     return pronounCount == 0.0 ? 0.0 : shortFormCount / pronounCount;
   }
-  
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getDemonstrativePronounsLong() == 0 ? 0.0
+        : (double) statistics.getDemonstrativePronounsShort()
+          / statistics.getDemonstrativePronounsLong();
+  }
+
 }
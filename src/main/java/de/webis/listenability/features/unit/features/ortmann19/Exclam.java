@@ -14,6 +14,8 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.TextSpan;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "exclam" in Ortmann19.
@@ -36,7 +38,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class Exclam extends AbstractFeature {
+public class Exclam
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -54,6 +57,12 @@ public class Exclam extends AbstractFeature {
       Set.of(
           UnitLevel.DOCUMENT,
           UnitLevel.PARAGRAPH);
+  
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.SENTENCE);
 
   // -------------------------------------------------------------------------
   // GETTERS
@@ -69,6 +78,11 @@ public class Exclam extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
@@ -77,13 +91,14 @@ public class Exclam extends AbstractFeature {
   protected double computeValue(Unit span) {
     double sentenceCount = 0.0;
     double exclamCount = 0.0;
+    final TextSpan text = new TextSpan();
     for (final Sentence sentence : JCasUtil.selectCovered(Sentence.class, span)) {
       final List<Token> tokens = 
           JCasUtil.selectCovered(Token.class, sentence);
       if (tokens.size() != 0) {
         final Token token = tokens.get(tokens.size() - 1);
         if (token.getPos().equals(".")
-            && token.getCoveredText().contains("!"))
+            && text.set(token).contains('!'))
           exclamCount++;
       }
       sentenceCount++;
@@ -91,4 +106,10 @@ public class Exclam extends AbstractFeature {
       return sentenceCount == 0.0 ? 0.0 : exclamCount / sentenceCount;
   }
 
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getSentences() == 0 ? 0.0
+        : (double) statistics.getExclamSentences() / statistics.getSentences();
+  }
+
 }
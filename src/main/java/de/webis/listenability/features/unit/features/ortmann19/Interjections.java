@@ -42,7 +42,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class Interjections extends AbstractFeature {
+public class Interjections
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -95,4 +96,10 @@ public class Interjections extends AbstractFeature {
     return tokenCount == 0.0 ? 0.0 : interjectionCount / tokenCount;
   }
 
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getWords() == 0 ? 0.0
+        : (double) statistics.getInterjections() / statistics.getWords();
+  }
+
 }
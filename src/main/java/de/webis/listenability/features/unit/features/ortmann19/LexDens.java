@@ -44,7 +44,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class LexDens extends AbstractFeature {
+public class LexDens
+  extends AbstractFeature<Ortmann19Statistics> {
 
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -67,7 +68,7 @@ public class LexDens extends AbstractFeature {
   /**
    * The pos-tags indicating lexical items. 
    */
-  private static final List<String> LEXICAL_ITEMS =
+  static final List<String> LEXICAL_ITEMS =
       List.of("NN", "NNS", "NNP", "NNPS",
               "JJ", "JJR", "JJS",
               "RB", "RBR", "RBS", "WRB",
@@ -105,5 +106,11 @@ public class LexDens extends AbstractFeature {
     }
     return tokenCount == 0.0 ? 0.0 : lexicalCount / tokenCount;
   }
-  
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getWords() == 0 ? 0.0
+        : (double) statistics.getLexicalItems() / statistics.getWords();
+  }
+
 }
@@ -12,6 +12,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "mean_sent" in Ortmann19.
@@ -33,7 +34,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class MeanSentenceLength extends AbstractFeature {
+public class MeanSentenceLength
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -52,6 +54,12 @@ public class MeanSentenceLength extends AbstractFeature {
           UnitLevel.DOCUMENT,
           UnitLevel.PARAGRAPH);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.SENTENCE);
+  
   // -------------------------------------------------------------------------
   // GETTERS
   // -------------------------------------------------------------------------
@@ -66,6 +74,11 @@ public class MeanSentenceLength extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
@@ -85,4 +98,11 @@ public class MeanSentenceLength extends AbstractFeature {
     return sentenceCount == 0.0 ? 0.0 : tokenCount / sentenceCount;
   }
 
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getSentences() == 0 ? 0.0
+        : (double) statistics.getSentenceLengthSum()
+          / statistics.getSentences();
+  }
+
 }
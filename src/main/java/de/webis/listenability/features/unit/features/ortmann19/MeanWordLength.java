@@ -33,7 +33,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class MeanWordLength extends AbstractFeature {
+public class MeanWordLength
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -75,14 +76,19 @@ public class MeanWordLength extends AbstractFeature {
     double sum = 0.0;
     double numTokens = 0.0;
     for (final Token token : JCasUtil.selectCovered(Token.class, span)) {
-      final String text = token.getCoveredText();
       final String pos = token.getPos();
       if (pos.equals(".")) // exclude punctuation
         continue;
-      sum += text.length();
+      sum += token.getEnd() - token.getBegin();
       numTokens++;
     }
     return numTokens == 0.0 ? 0.0 : sum / numTokens;
   }
 
-}
\ No newline at end of file
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getWords() == 0 ? 0.0
+        : (double) statistics.getWordLengthSum() / statistics.getWords();
+  }
+
+}
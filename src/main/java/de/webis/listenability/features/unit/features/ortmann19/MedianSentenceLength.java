@@ -1,8 +1,5 @@
 package de.webis.listenability.features.unit.features.ortmann19;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Set;
 import org.apache.uima.fit.util.JCasUtil;
 
@@ -15,6 +12,8 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.pipeline.Layer;
+import de.webis.listenability.features.unit.features.LengthHistogram;
 
 /**
  * This class implements the feature called "med_sent" in Ortmann19.
@@ -36,7 +35,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class MedianSentenceLength extends AbstractFeature {
+public class MedianSentenceLength
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -55,6 +55,12 @@ public class MedianSentenceLength extends AbstractFeature {
           UnitLevel.DOCUMENT,
           UnitLevel.PARAGRAPH);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.SENTENCE);
+  
   // -------------------------------------------------------------------------
   // GETTERS
   // -------------------------------------------------------------------------
@@ -69,34 +75,33 @@ public class MedianSentenceLength extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
 
   @Override
   protected double computeValue(Unit span) {
-    final List<Double> sentences = new ArrayList<Double>();
+    final LengthHistogram lengths = new LengthHistogram();
     for (final Sentence sentence : JCasUtil.selectCovered(Sentence.class, span)) {
-      double tokenCount = 0.0;
+      int tokenCount = 0;
       for (final Token token : JCasUtil.selectCovered(Token.class, sentence)) {
         if (token.getPos().equals(".")) // exclude punctuation
           continue;
         tokenCount++;
       }
-      sentences.add(tokenCount);
-    }
-    Collections.sort(sentences); // compute median
-    if (sentences.size() != 0 && sentences.size() % 2 == 0) {
-      return (sentences.get(sentences.size() / 2) + sentences.get(sentences.size() / 2 - 1)) / 2.0;
-    } else if (sentences.size() != 0 && sentences.size() % 2 == 1) {
-      return sentences.get(sentences.size() / 2);
-    } else {
-      return 0.0;
+      lengths.add(tokenCount);
     }
+    return lengths.getMedian();
   }
 
-
-
-
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getMedianSentenceLength();
+  }
 
 }
@@ -1,8 +1,5 @@
 package de.webis.listenability.features.unit.features.ortmann19;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Set;
 import org.apache.uima.fit.util.JCasUtil;
 
@@ -15,6 +12,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.listenability.features.unit.features.LengthHistogram;
 
 /**
  * This class implements the feature called "med_word" in Ortmann19.
@@ -36,7 +34,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class MedianWordLength extends AbstractFeature {
+public class MedianWordLength
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -76,21 +75,18 @@ public class MedianWordLength extends AbstractFeature {
 
   @Override
   protected double computeValue(final Unit span) {
-    final List<Double> tokens = new ArrayList<Double>();
+    final LengthHistogram lengths = new LengthHistogram();
     for (final Token token : JCasUtil.selectCovered(Token.class, span)) {
-      final String text = token.getCoveredText();
       if (token.getPos().equals(".")) // exclude punctuation
         continue;
-      tokens.add((double) text.length());
-    }
-    Collections.sort(tokens); // compute median
-    if (tokens.size() != 0 && tokens.size() % 2 == 0) {
-      return (tokens.get(tokens.size() / 2) + tokens.get(tokens.size() / 2 - 1)) / 2.0;
-    } else if (tokens.size() != 0 && tokens.size() % 2 == 1) {
-      return tokens.get(tokens.size() / 2);
-    } else {
-      return 0.0;
+      lengths.add(token.getEnd() - token.getBegin());
     }
+    return lengths.getMedian();
+  }
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getMedianWordLength();
   }
 
 }
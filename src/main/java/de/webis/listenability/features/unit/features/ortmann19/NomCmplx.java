@@ -1,6 +1,5 @@
 package de.webis.listenability.features.unit.features.ortmann19;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -15,6 +14,8 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.TokenView;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "nomCmplx" in Ortmann19.
@@ -24,6 +25,9 @@ import de.webis.listenability.features.unit.features.Feature;
  * prepositions and articles, for each noun in the dependency tree, for a span
  *  of text captured by a {@link Unit}-annotation.
  * <p>
+ * Nouns in sentences that the dependency parser did not parse are not
+ * counted, and the fraction of parsed tokens is reported as coverage.
+ * <p>
  * This feature can be computed for following {@link Unit}s:
  * <ul>
  *  <li>{@link Document}</li>
@@ -38,7 +42,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class NomCmplx extends AbstractFeature {
+public class NomCmplx
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -58,16 +63,22 @@ public class NomCmplx extends AbstractFeature {
           UnitLevel.PARAGRAPH,
           UnitLevel.SENTENCE);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.DEPENDENCY);
+  
   /**
    * The tags indicating nouns.
    */
-  private static final List<String> NOUNS =
+  static final List<String> NOUNS =
       List.of("NN", "NNS", "NNP", "NNPS");
   
   /**
    * The tags indicating prenomials.
    */
-  private static final List<String> PRENOMIALS =
+  static final List<String> PRENOMIALS =
       List.of("DT", "PDT");
   
   // -------------------------------------------------------------------------
@@ -84,20 +95,34 @@ public class NomCmplx extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
 
   @Override
   protected double computeValue(Unit span) {
-    final List<Token> nouns = new ArrayList<Token>();
-    for (final Token token : JCasUtil.selectCovered(Token.class, span)) {
-     if (NOUNS.contains(token.getPos()))
-       nouns.add(token);
-    }
-    double nounCount = nouns.size();
+    return this.computeValueAndCoverage(span)[0];
+  }
+
+  @Override
+  protected double[] computeValueAndCoverage(final Unit span) {
+    final TokenView view = TokenView.of(span.getJCas());
+    double tokenCount = 0.0;
+    double parsedCount = 0.0;
+    double nounCount = 0.0;
     double prenominalDepCount = 0.0;
     for (final Token token : JCasUtil.selectCovered(Token.class, span)) {
+      final boolean parsed = view.isParsed(view.indexOf(token));
+      tokenCount++;
+      if (parsed)
+        parsedCount++;
+      if (NOUNS.contains(token.getPos()) && parsed)
+        nounCount++;
       if (PRENOMIALS.contains(token.getPos())) {
         final Token parent = token.getParent();
         if (parent != null && NOUNS.contains(parent.getPos())) {
@@ -105,7 +130,26 @@ public class NomCmplx extends AbstractFeature {
         }
       }
     }
-    return nounCount == 0.0 ? 0.0 : prenominalDepCount / nounCount;
+    return new double[] {
+        nounCount == 0.0 ? 0.0 : prenominalDepCount / nounCount,
+        tokenCount == 0.0 ? 1.0 : parsedCount / tokenCount };
   }
-  
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getParsedNouns() == 0 ? 0.0
+        : (double) statistics.getPrenominalDependents()
+          / statistics.getParsedNouns();
+  }
+
+  @Override
+  protected double computeCoverage(final Unit span) {
+    return this.computeValueAndCoverage(span)[1];
+  }
+
+  @Override
+  protected double computeCoverage(final Ortmann19Statistics statistics) {
+    return statistics.getParseCoverage();
+  }
+
 }
@@ -0,0 +1,683 @@
+package de.webis.listenability.features.unit.features.ortmann19;
+
+import java.util.BitSet;
+import java.util.List;
+
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.listenability.features.unit.features.LengthHistogram;
+import de.webis.listenability.features.unit.features.MergeableStatistics;
+import de.webis.listenability.features.unit.features.StatisticsFeature;
+import de.webis.writing.TextSpan;
+import de.webis.writing.TokenView;
+
+/**
+ * Counts of a span of text captured by a {@link Unit}-annotation, from which
+ * the values of all Ortmann19 features can be computed.
+ * <p>
+ * The counts are collected in a single pass over the tokens of the span (see
+ * {@link #of(Unit)}), so that the features do not need to scan the span
+ * individually.
+ * </p><p>
+ * As all statistics are counts, the statistics of a paragraph or document can
+ * also be obtained by merging the statistics of its sentences (see
+ * {@link #merge(Ortmann19Statistics)}).
+ * </p>
+ *
+ * @author lukas.peter.trautner@uni-weimar.de
+ *
+ * @see StatisticsFeature
+ *
+ */
+public class Ortmann19Statistics
+  implements MergeableStatistics<Ortmann19Statistics> {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The pos-tag of punctuation.
+   */
+  private static final int PUNCTUATION = TokenView.getCode(".");
+
+  private static final int DT = TokenView.getCode("DT");
+
+  private static final int IN = TokenView.getCode("IN");
+
+  private static final int PRP = TokenView.getCode("PRP");
+
+  private static final int UH = TokenView.getCode("UH");
+
+  private static final int CC = TokenView.getCode("CC");
+
+  /**
+   * The (Penn Treebank) verb tags.
+   */
+  private static final BitSet VERBS = TokenView.getCodes(
+      List.of("VB", "VBD", "VBG", "VBN", "VBP", "VBZ"));
+
+  /**
+   * The (Penn Treebank) noun tags.
+   */
+  private static final BitSet NOUN_TAGS = TokenView.getCodes(
+      List.of("NN", "NNS", "NNP", "NNPS"));
+
+  private static final BitSet NOUNS = TokenView.getCodes(NomCmplx.NOUNS);
+
+  private static final BitSet PRENOMIALS =
+      TokenView.getCodes(NomCmplx.PRENOMIALS);
+
+  private static final BitSet SUBJECTS =
+      TokenView.getCodes(PronounSubject.SUBJECTS);
+
+  private static final BitSet LEXICAL_ITEMS =
+      TokenView.getCodes(LexDens.LEXICAL_ITEMS);
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The number of words, i.e. tokens that are not punctuation.
+   */
+  private int words;
+
+  /**
+   * The summed up length of all words.
+   */
+  private long wordLengthSum;
+
+  /**
+   * The histogram of the lengths of all words.
+   */
+  private final LengthHistogram wordLengths;
+
+  /**
+   * The number of answer particles.
+   */
+  private int answerParticles;
+
+  /**
+   * The number of demonstrative pronouns.
+   */
+  private int demonstrativePronouns;
+
+  /**
+   * The number of demonstrative pronouns with one of the lemmas considered by
+   * {@link DemonstrativePronounsShort}.
+   */
+  private int demonstrativePronounsLong;
+
+  /**
+   * The number of demonstrative pronouns realized as the short form "the".
+   */
+  private int demonstrativePronounsShort;
+
+  /**
+   * The number of interjections.
+   */
+  private int interjections;
+
+  /**
+   * The number of lexical items.
+   */
+  private int lexicalItems;
+
+  /**
+   * The number of tokens tagged as nouns.
+   */
+  private int nouns;
+
+  /**
+   * The number of tokens tagged as nouns that the dependency parser
+   * considered.
+   */
+  private int parsedNouns;
+
+  /**
+   * The number of tokens, including punctuation.
+   */
+  private int tokens;
+
+  /**
+   * The number of tokens that the dependency parser considered.
+   */
+  private int parsedTokens;
+
+  /**
+   * The number of tokens with a pos-tag starting with "NN".
+   */
+  private int nounTags;
+
+  /**
+   * The number of prenominal dependents of nouns.
+   */
+  private int prenominalDependents;
+
+  /**
+   * The number of tokens with a pos-tag starting with "VB".
+   */
+  private int verbs;
+
+  /**
+   * The number of tokens tagged as "IN".
+   */
+  private int subordinatingConjunctions;
+
+  /**
+   * The number of first person personal pronouns.
+   */
+  private int firstPersonPronouns;
+
+  /**
+   * The number of subjects in the dependency tree.
+   */
+  private int subjects;
+
+  /**
+   * The number of subjects that are realized as personal pronouns.
+   */
+  private int pronounSubjects;
+
+  /**
+   * The number of sentences.
+   */
+  private int sentences;
+
+  /**
+   * The number of sentences that start with a coordinating conjunction.
+   */
+  private int coordInitSentences;
+
+  /**
+   * The number of interrogative sentences.
+   */
+  private int questionSentences;
+
+  /**
+   * The number of exclamative sentences.
+   */
+  private int exclamSentences;
+
+  /**
+   * The summed up length of all sentences, in words.
+   */
+  private long sentenceLengthSum;
+
+  /**
+   * The histogram of the lengths of all sentences, in words.
+   */
+  private final LengthHistogram sentenceLengths;
+
+  /**
+   * The reused view of the text of the current token.
+   */
+  private final TextSpan text;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates empty statistics.
+   */
+  public Ortmann19Statistics() {
+    this.wordLengths = new LengthHistogram();
+    this.sentenceLengths = new LengthHistogram();
+    this.text = new TextSpan();
+  }
+
+  /**
+   * Collects the statistics of a span in one pass over its tokens.
+   * <p>
+   * If the span is a {@link Sentence}, it is counted as one sentence.
+   * </p>
+   *
+   * @param span The span
+   * @return The statistics
+   * @see TokenView
+   */
+  public static Ortmann19Statistics of(final Unit span) {
+    return Ortmann19Statistics.of(TokenView.of(span.getJCas()), span);
+  }
+
+  /**
+   * Collects the statistics of a span in one pass over its tokens in a view.
+   * <p>
+   * This method only reads from the view, so it can be called for several
+   * spans in parallel.
+   * </p>
+   *
+   * @param view The view of the span's JCas
+   * @param span The span
+   * @return The statistics
+   * @see #of(Unit)
+   */
+  public static Ortmann19Statistics of(
+      final TokenView view, final Unit span) {
+    final Ortmann19Statistics statistics = new Ortmann19Statistics();
+    final int first = view.getFirstTokenFrom(span.getBegin());
+    int limit = first;
+    for (; limit < view.size() && view.getEnd(limit) <= span.getEnd();
+        ++limit) {
+      statistics.addToken(view, limit);
+    }
+
+    if (span instanceof Sentence) {
+      statistics.addSentence(view, first, limit);
+      return statistics;
+    }
+    for (int s = view.getFirstSentenceFrom(span.getBegin());
+        s < view.getNumSentences() && view.getSentenceBegin(s) < span.getEnd();
+        ++s) {
+      if (view.getSentenceEnd(s) <= span.getEnd()) {
+        statistics.addSentence(view,
+            view.getSentenceFirstToken(s), view.getSentenceTokenLimit(s));
+      }
+    }
+    return statistics;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of words, i.e. tokens that are not punctuation.
+   *
+   * @return The number
+   */
+  public int getWords() {
+    return this.words;
+  }
+
+  /**
+   * Gets the summed up length of all words.
+   *
+   * @return The length in characters
+   */
+  public long getWordLengthSum() {
+    return this.wordLengthSum;
+  }
+
+  /**
+   * Gets the median length of all words.
+   *
+   * @return The median or 0 if there are no words
+   */
+  public double getMedianWordLength() {
+    return this.wordLengths.getMedian();
+  }
+
+  /**
+   * Gets the number of answer particles.
+   *
+   * @return The number
+   *
+   * @see AnswerParticles
+   */
+  public int getAnswerParticles() {
+    return this.answerParticles;
+  }
+
+  /**
+   * Gets the number of demonstrative pronouns.
+   *
+   * @return The number
+   *
+   * @see DemonstrativePronouns
+   */
+  public int getDemonstrativePronouns() {
+    return this.demonstrativePronouns;
+  }
+
+  /**
+   * Gets the number of demonstrative pronouns with one of the lemmas
+   * considered by {@link DemonstrativePronounsShort}.
+   *
+   * @return The number
+   */
+  public int getDemonstrativePronounsLong() {
+    return this.demonstrativePronounsLong;
+  }
+
+  /**
+   * Gets the number of demonstrative pronouns realized as the short form
+   * "the".
+   *
+   * @return The number
+   *
+   * @see DemonstrativePronounsShort
+   */
+  public int getDemonstrativePronounsShort() {
+    return this.demonstrativePronounsShort;
+  }
+
+  /**
+   * Gets the number of interjections.
+   *
+   * @return The number
+   *
+   * @see Interjections
+   */
+  public int getInterjections() {
+    return this.interjections;
+  }
+
+  /**
+   * Gets the number of lexical items.
+   *
+   * @return The number
+   *
+   * @see LexDens
+   */
+  public int getLexicalItems() {
+    return this.lexicalItems;
+  }
+
+  /**
+   * Gets the number of tokens tagged as nouns.
+   *
+   * @return The number
+   *
+   * @see NomCmplx
+   */
+  public int getNouns() {
+    return this.nouns;
+  }
+
+  /**
+   * Gets the number of tokens tagged as nouns that the dependency parser
+   * considered.
+   *
+   * @return The number
+   *
+   * @see NomCmplx
+   * @see TokenView#isParsed(int)
+   */
+  public int getParsedNouns() {
+    return this.parsedNouns;
+  }
+
+  /**
+   * Gets the fraction of tokens that the dependency parser considered.
+   *
+   * @return The fraction, which is 1 if there are no tokens
+   *
+   * @see TokenView#isParsed(int)
+   */
+  public double getParseCoverage() {
+    return this.tokens == 0 ? 1.0 : (double) this.parsedTokens / this.tokens;
+  }
+
+  /**
+   * Gets the number of tokens with a pos-tag starting with "NN".
+   *
+   * @return The number
+   *
+   * @see VerbsToNouns
+   */
+  public int getNounTags() {
+    return this.nounTags;
+  }
+
+  /**
+   * Gets the number of prenominal dependents of nouns.
+   *
+   * @return The number
+   *
+   * @see NomCmplx
+   */
+  public int getPrenominalDependents() {
+    return this.prenominalDependents;
+  }
+
+  /**
+   * Gets the number of tokens with a pos-tag starting with "VB".
+   *
+   * @return The number
+   *
+   * @see Subord
+   * @see VerbsToNouns
+   */
+  public int getVerbs() {
+    return this.verbs;
+  }
+
+  /**
+   * Gets the number of tokens tagged as "IN".
+   *
+   * @return The number
+   *
+   * @see Subord
+   */
+  public int getSubordinatingConjunctions() {
+    return this.subordinatingConjunctions;
+  }
+
+  /**
+   * Gets the number of first person personal pronouns.
+   *
+   * @return The number
+   *
+   * @see PronounFirst
+   */
+  public int getFirstPersonPronouns() {
+    return this.firstPersonPronouns;
+  }
+
+  /**
+   * Gets the number of subjects in the dependency tree.
+   *
+   * @return The number
+   *
+   * @see PronounSubject
+   */
+  public int getSubjects() {
+    return this.subjects;
+  }
+
+  /**
+   * Gets the number of subjects that are realized as personal pronouns.
+   *
+   * @return The number
+   *
+   * @see PronounSubject
+   */
+  public int getPronounSubjects() {
+    return this.pronounSubjects;
+  }
+
+  /**
+   * Gets the number of sentences.
+   *
+   * @return The number
+   */
+  public int getSentences() {
+    return this.sentences;
+  }
+
+  /**
+   * Gets the number of sentences that start with a coordinating conjunction.
+   *
+   * @return The number
+   *
+   * @see CoordInit
+   */
+  public int getCoordInitSentences() {
+    return this.coordInitSentences;
+  }
+
+  /**
+   * Gets the number of interrogative sentences.
+   *
+   * @return The number
+   *
+   * @see Question
+   */
+  public int getQuestionSentences() {
+    return this.questionSentences;
+  }
+
+  /**
+   * Gets the number of exclamative sentences.
+   *
+   * @return The number
+   *
+   * @see Exclam
+   */
+  public int getExclamSentences() {
+    return this.exclamSentences;
+  }
+
+  /**
+   * Gets the summed up length of all sentences, in words.
+   *
+   * @return The length
+   *
+   * @see MeanSentenceLength
+   */
+  public long getSentenceLengthSum() {
+    return this.sentenceLengthSum;
+  }
+
+  /**
+   * Gets the median length of all sentences, in words.
+   *
+   * @return The median or 0 if there are no sentences
+   *
+   * @see MedianSentenceLength
+   */
+  public double getMedianSentenceLength() {
+    return this.sentenceLengths.getMedian();
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds the counts of a token.
+   *
+   * @param view The view of the token's JCas
+   * @param t The index of the token in the view
+   */
+  public void addToken(final TokenView view, final int t) {
+    final int pos = view.getPosCode(t);
+    final String lemma = view.getLemma(t);
+
+    if (view.hasPos(t, VERBS))
+      this.verbs++;
+    if (view.hasPos(t, NOUN_TAGS))
+      this.nounTags++;
+    if (pos == IN)
+      this.subordinatingConjunctions++;
+    final boolean parsed = view.isParsed(t);
+    this.tokens++;
+    if (parsed)
+      this.parsedTokens++;
+    if (view.hasPos(t, NOUNS)) {
+      this.nouns++;
+      if (parsed)
+        this.parsedNouns++;
+    }
+    if (view.hasPos(t, PRENOMIALS)) {
+      final int parent = view.getParent(t);
+      if (parent != TokenView.NO_PARENT && view.hasPos(parent, NOUNS))
+        this.prenominalDependents++;
+    }
+    if (pos == DT && lemma != null) {
+      // lemmas are missing if no configured feature requires them
+      if (DemonstrativePronounsShort.LEMMAS.contains(lemma))
+        this.demonstrativePronounsLong++;
+      if ("the".equals(lemma))
+        this.demonstrativePronounsShort++;
+    }
+    if (view.hasDepLabel(t, SUBJECTS)) {
+      this.subjects++;
+      if (pos == PRP)
+        this.pronounSubjects++;
+    }
+
+    if (pos == PUNCTUATION) // exclude punctuation
+      return;
+    final int length = view.getLength(t);
+    this.wordLengths.add(length);
+    this.words++;
+    this.wordLengthSum += length;
+    if (length <= AnswerParticles.MAX_LENGTH
+        && AnswerParticles.isAnswerParticle(view.getText(t, this.text)))
+      this.answerParticles++;
+    if (pos == DT && lemma != null
+        && DemonstrativePronouns.PRONOUNS.contains(lemma))
+      this.demonstrativePronouns++;
+    if (pos == UH)
+      this.interjections++;
+    if (view.hasPos(t, LEXICAL_ITEMS))
+      this.lexicalItems++;
+    if (pos == PRP && PronounFirst.isFirstPerson(lemma))
+      this.firstPersonPronouns++;
+  }
+
+  @Override
+  public void merge(final Ortmann19Statistics other) {
+    this.wordLengths.merge(other.wordLengths);
+    this.words += other.words;
+    this.wordLengthSum += other.wordLengthSum;
+    this.answerParticles += other.answerParticles;
+    this.demonstrativePronouns += other.demonstrativePronouns;
+    this.demonstrativePronounsLong += other.demonstrativePronounsLong;
+    this.demonstrativePronounsShort += other.demonstrativePronounsShort;
+    this.interjections += other.interjections;
+    this.lexicalItems += other.lexicalItems;
+    this.nouns += other.nouns;
+    this.parsedNouns += other.parsedNouns;
+    this.tokens += other.tokens;
+    this.parsedTokens += other.parsedTokens;
+    this.nounTags += other.nounTags;
+    this.prenominalDependents += other.prenominalDependents;
+    this.verbs += other.verbs;
+    this.subordinatingConjunctions += other.subordinatingConjunctions;
+    this.firstPersonPronouns += other.firstPersonPronouns;
+    this.subjects += other.subjects;
+    this.pronounSubjects += other.pronounSubjects;
+    this.sentenceLengthSum += other.sentenceLengthSum;
+    this.sentenceLengths.merge(other.sentenceLengths);
+    this.sentences += other.sentences;
+    this.coordInitSentences += other.coordInitSentences;
+    this.questionSentences += other.questionSentences;
+    this.exclamSentences += other.exclamSentences;
+  }
+
+  /**
+   * Adds the counts of a sentence, for which the tokens have already been
+   * added using {@link #addToken(TokenView, int)}.
+   *
+   * @param view The view of the sentence's JCas
+   * @param first The index of the first token of the sentence
+   * @param limit The index after the last token of the sentence
+   */
+  private void addSentence(
+      final TokenView view, final int first, final int limit) {
+    int length = 0;
+    for (int t = first; t < limit; ++t) {
+      if (view.getPosCode(t) != PUNCTUATION) // exclude punctuation
+        length++;
+    }
+
+    if (first < limit && view.getPosCode(first) == CC)
+      this.coordInitSentences++;
+    final int last = limit - 1;
+    if (first < limit && view.getPosCode(last) == PUNCTUATION) {
+      if (view.contains(last, '?'))
+        this.questionSentences++;
+      if (view.contains(last, '!'))
+        this.exclamSentences++;
+    }
+    this.sentenceLengthSum += length;
+    this.sentenceLengths.add(length);
+    this.sentences++;
+  }
+
+}
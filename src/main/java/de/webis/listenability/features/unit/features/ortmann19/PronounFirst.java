@@ -13,6 +13,7 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "PRON1st" in Ortmann19.
@@ -36,7 +37,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class PronounFirst extends AbstractFeature {
+public class PronounFirst
+  extends AbstractFeature<Ortmann19Statistics> {
 
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -55,6 +57,12 @@ public class PronounFirst extends AbstractFeature {
           UnitLevel.DOCUMENT,
           UnitLevel.PARAGRAPH,
           UnitLevel.SENTENCE);
+  
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.LEMMA);
 
   // -------------------------------------------------------------------------
   // GETTERS
@@ -70,6 +78,11 @@ public class PronounFirst extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
@@ -83,13 +96,28 @@ public class PronounFirst extends AbstractFeature {
       final String lemma = token.getLemma();
       if (pos.equals(".")) // exclude puncuation
         continue;
-      if (pos.equals("PRP") 
-          && (lemma.toLowerCase().equals("we")
-              || lemma.toLowerCase().equals("i")))
+      if (pos.equals("PRP") && isFirstPerson(lemma))
         pronounCount++;
       tokenCount++;
     }
     return tokenCount == 0.0 ? 0.0 : pronounCount / tokenCount;
   }
   
+  /**
+   * Checks whether a lemma is "I" or "we", ignoring case.
+   * 
+   * @param lemma The lemma
+   * @return Whether the lemma is a first person pronoun
+   */
+  static boolean isFirstPerson(final String lemma) {
+    return "we".equalsIgnoreCase(lemma) || "i".equalsIgnoreCase(lemma);
+  }
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getWords() == 0 ? 0.0
+        : (double) statistics.getFirstPersonPronouns()
+          / statistics.getWords();
+  }
+
 }
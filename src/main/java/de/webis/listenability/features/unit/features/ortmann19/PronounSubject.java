@@ -15,6 +15,8 @@ import de.webis.listenability.features.unit.AbstractUnitFeatureAnalysisEngine;
 import de.webis.listenability.features.unit.UnitLevel;
 import de.webis.listenability.features.unit.features.AbstractFeature;
 import de.webis.listenability.features.unit.features.Feature;
+import de.webis.writing.TokenView;
+import de.webis.writing.pipeline.Layer;
 
 /**
  * This class implements the feature called "PRONsubj" in Ortmann19.
@@ -23,6 +25,9 @@ import de.webis.listenability.features.unit.features.Feature;
  * realized as personal pronouns, i.e. are tagged with "PRP", for a span of
  * text captured by a {@link Unit}-annotation.
  * <p>
+ * Subjects are only found in sentences that the dependency parser parsed,
+ * so the fraction of parsed tokens is reported as coverage.
+ * <p>
  * This feature can be computed for following {@link Unit}s:
  * <ul>
  *  <li>{@link Document}</li>
@@ -37,7 +42,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class PronounSubject extends AbstractFeature {
+public class PronounSubject
+  extends AbstractFeature<Ortmann19Statistics> {
 
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -57,11 +63,17 @@ public class PronounSubject extends AbstractFeature {
           UnitLevel.PARAGRAPH,
           UnitLevel.SENTENCE);
   
+  /**
+   * The annotation layers needed to compute this feature.
+   */
+  private static final Set<Layer> REQUIRED_LAYERS =
+      Set.of(Layer.TOKEN, Layer.POS, Layer.DEPENDENCY);
+  
   /**
    * The tags emitted by the {@link StanfordDependencyParser},
    * indicating subjects.
    */
-  private static final List<String> SUBJECTS =
+  static final List<String> SUBJECTS =
       List.of("nsubj", "nsubjpass", "csubj", "csubjpass", "xsubj");
   
   // -------------------------------------------------------------------------
@@ -78,15 +90,31 @@ public class PronounSubject extends AbstractFeature {
     return CONSTRAINTS;
   }
   
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return REQUIRED_LAYERS;
+  }
+  
   // -------------------------------------------------------------------------
   // FUNCTIONALITY
   // -------------------------------------------------------------------------
 
   @Override
   protected double computeValue(Unit span) {
+    return this.computeValueAndCoverage(span)[0];
+  }
+
+  @Override
+  protected double[] computeValueAndCoverage(final Unit span) {
+    final TokenView view = TokenView.of(span.getJCas());
+    double tokenCount = 0.0;
+    double parsedCount = 0.0;
     double subjectCount = 0.0;
     double pronounCount = 0.0;
     for (final Token token : JCasUtil.selectCovered(Token.class, span)) {
+      tokenCount++;
+      if (view.isParsed(view.indexOf(token)))
+        parsedCount++;
       final String depLabel = token.getDepLabel();
       if (depLabel != null && SUBJECTS.contains(depLabel)) {
         subjectCount++;
@@ -94,7 +122,25 @@ public class PronounSubject extends AbstractFeature {
           pronounCount++;
       }
     }
-    return subjectCount == 0.0 ? 0.0 : pronounCount / subjectCount;
+    return new double[] {
+        subjectCount == 0.0 ? 0.0 : pronounCount / subjectCount,
+        tokenCount == 0.0 ? 1.0 : parsedCount / tokenCount };
   }
-  
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getSubjects() == 0 ? 0.0
+        : (double) statistics.getPronounSubjects() / statistics.getSubjects();
+  }
+
+  @Override
+  protected double computeCoverage(final Unit span) {
+    return this.computeValueAndCoverage(span)[1];
+  }
+
+  @Override
+  protected double computeCoverage(final Ortmann19Statistics statistics) {
+    return statistics.getParseCoverage();
+  }
+
 }
@@ -46,7 +46,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class Subord extends AbstractFeature {
+public class Subord
+  extends AbstractFeature<Ortmann19Statistics> {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -97,4 +98,11 @@ public class Subord extends AbstractFeature {
     return verbCount == 0.0 ? 0.0 : subordCount / verbCount;
   }
 
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getVerbs() == 0 ? 0.0
+        : (double) statistics.getSubordinatingConjunctions()
+          / statistics.getVerbs();
+  }
+
 }
@@ -41,7 +41,8 @@ import de.webis.listenability.features.unit.features.Feature;
  * @see {@link AbstractUnitFeatureAnalysisEngine}
  *
  */
-public class VerbsToNouns extends AbstractFeature {
+public class VerbsToNouns
+  extends AbstractFeature<Ortmann19Statistics> {
 
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -92,5 +93,11 @@ public class VerbsToNouns extends AbstractFeature {
     }
     return nounCount == 0.0 ? 0.0 : verbCount / nounCount;
   }
-  
+
+  @Override
+  protected double computeValue(final Ortmann19Statistics statistics) {
+    return statistics.getNounTags() == 0 ? 0.0
+        : (double) statistics.getVerbs() / statistics.getNounTags();
+  }
+
 }
@@ -0,0 +1,431 @@
+package de.webis.listenability.features.unit.lexicon;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * A word lexicon with float columns, compiled from a CSV file into a binary
+ * file that is memory-mapped read-only.
+ * <p>
+ * Opening a compiled lexicon only maps the file, so it takes no time and
+ * memory to parse it, and all threads (see {@link #open(Path)}) and all
+ * processes on the same machine share the page-cached copy.
+ * </p><p>
+ * The file contains, in this order and in big endian byte order:
+ * </p>
+ * <pre>
+ * int MAGIC, int numColumns, int numWords, int wordBytes,
+ * UTF column * numColumns (as by DataOutputStream#writeUTF),
+ * zero padding to a multiple of 4 bytes,
+ * int offset * (numWords + 1) (start of each word in the word bytes),
+ * byte word * wordBytes (the UTF-8 encoded words, sorted by their bytes),
+ * zero padding to a multiple of 4 bytes,
+ * float value * (numWords * numColumns) (row-major, NaN if missing)
+ * </pre>
+ * <p>
+ * Compile a lexicon using {@link #main(String[])}.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class CompiledLexicon {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(CompiledLexicon.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The first integer of each compiled lexicon ("LEX1").
+   */
+  public static final int MAGIC = 0x4c455831;
+
+  /**
+   * The lexicons opened in this process, by their real path.
+   */
+  private static final Map<Path, CompiledLexicon> LEXICONS =
+      new HashMap<Path, CompiledLexicon>();
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private final List<String> columns;
+
+  private final int numWords;
+
+  private final IntBuffer offsets;
+
+  private final ByteBuffer words;
+
+  private final FloatBuffer values;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates a lexicon backed by the contents of a compiled lexicon file.
+   * @param buffer The contents
+   * @throws IllegalArgumentException If the contents are not a compiled
+   * lexicon
+   */
+  protected CompiledLexicon(final ByteBuffer buffer) {
+    final ByteBuffer header = buffer.duplicate();
+    if (header.getInt() != MAGIC) {
+      throw new IllegalArgumentException("Not a compiled lexicon");
+    }
+    final int numColumns = header.getInt();
+    this.numWords = header.getInt();
+    final int wordBytes = header.getInt();
+    final List<String> columns = new ArrayList<String>(numColumns);
+    for (int c = 0; c < numColumns; ++c) {
+      final byte[] column = new byte[header.getShort() & 0xFFFF];
+      header.get(column);
+      columns.add(new String(column, StandardCharsets.UTF_8));
+    }
+    this.columns = Collections.unmodifiableList(columns);
+
+    int position = align(header.position());
+    this.offsets = slice(buffer, position, (this.numWords + 1) * 4)
+        .asIntBuffer();
+    position += (this.numWords + 1) * 4;
+    this.words = slice(buffer, position, wordBytes);
+    position = align(position + wordBytes);
+    this.values = slice(buffer, position, this.numWords * numColumns * 4)
+        .asFloatBuffer();
+  }
+
+  /**
+   * Gets the compiled lexicon at a path, memory-mapping it if it was not
+   * opened in this process before.
+   * @param path The path of the compiled lexicon
+   * @return The lexicon
+   * @throws IOException If the file could not be mapped
+   * @throws IllegalArgumentException If the file is not a compiled lexicon
+   */
+  public static CompiledLexicon open(final Path path) throws IOException {
+    final Path realPath = path.toRealPath();
+    synchronized (LEXICONS) {
+      CompiledLexicon lexicon = LEXICONS.get(realPath);
+      if (lexicon == null) {
+        try (final FileChannel channel =
+            FileChannel.open(realPath, StandardOpenOption.READ)) {
+          final MappedByteBuffer buffer =
+              channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+          lexicon = new CompiledLexicon(buffer);
+        }
+        LOG.info("Mapped lexicon " + realPath + " with "
+            + lexicon.getNumWords() + " words");
+        LEXICONS.put(realPath, lexicon);
+      }
+      return lexicon;
+    }
+  }
+
+  /**
+   * Checks whether a file is a compiled lexicon.
+   * @param path The path of the file
+   * @return Whether the file starts with the {@link #MAGIC}
+   * @throws IOException If the file could not be read
+   */
+  public static boolean isCompiled(final Path path) throws IOException {
+    try (final DataInputStream input =
+        new DataInputStream(Files.newInputStream(path))) {
+      return Files.size(path) >= 4 && input.readInt() == MAGIC;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the names of the columns.
+   * @return The names
+   */
+  public List<String> getColumns() {
+    return this.columns;
+  }
+
+  /**
+   * Gets the number of words in the lexicon.
+   * @return The number
+   */
+  public int getNumWords() {
+    return this.numWords;
+  }
+
+  /**
+   * Gets the index of a word, ignoring case.
+   * <p>
+   * The word is lower-cased and compared to the mapped UTF-8 bytes one code
+   * point at a time, so that looking up a token text does not allocate.
+   * </p>
+   * @param word The word
+   * @return The index or a negative number if the word is not in the lexicon
+   */
+  public int indexOf(final CharSequence word) {
+    int low = 0;
+    int high = this.numWords - 1;
+    while (low <= high) {
+      final int middle = (low + high) >>> 1;
+      final int comparison = this.compareTo(middle, word);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets a word of the lexicon.
+   * @param index The index of the word
+   * @return The lower-cased word
+   */
+  public String getWord(final int index) {
+    final int begin = this.offsets.get(index);
+    final byte[] bytes = new byte[this.offsets.get(index + 1) - begin];
+    for (int b = 0; b < bytes.length; ++b) {
+      bytes[b] = this.words.get(begin + b);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Gets a value of a word.
+   * @param index The index of the word
+   * @param column The index of the column
+   * @return The value, which is {@link Float#NaN} if missing
+   */
+  public float getValue(final int index, final int column) {
+    return this.values.get(index * this.columns.size() + column);
+  }
+
+  // -------------------------------------------------------------------------
+  // COMPILATION
+  // -------------------------------------------------------------------------
+
+  /**
+   * Compiles a lexicon from a CSV file with a header line.
+   * <p>
+   * Words are lower-cased, and for duplicate words the last row is used.
+   * Values that are not numbers are stored as missing, and columns without
+   * any number are left out.
+   * </p>
+   * @param csv The CSV file
+   * @param wordColumn The name of the column that contains the words
+   * @param output The file to write the compiled lexicon to
+   * @throws IOException If reading or writing fails
+   */
+  public static void compile(
+      final Path csv, final String wordColumn, final Path output)
+  throws IOException {
+    final List<String> columns = new ArrayList<String>();
+    final TreeMap<byte[], float[]> rows =
+        new TreeMap<byte[], float[]>(Arrays::compareUnsigned);
+    try (final BufferedReader reader = Files.newBufferedReader(csv);
+        final CSVParser parser =
+            CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+      for (final String column : parser.getHeaderMap().keySet()) {
+        if (!column.equals(wordColumn)) {
+          columns.add(column);
+        }
+      }
+      for (final CSVRecord record : parser) {
+        final float[] row = new float[columns.size()];
+        for (int c = 0; c < row.length; ++c) {
+          row[c] = parseValue(record.get(columns.get(c)));
+        }
+        rows.put(record.get(wordColumn).toLowerCase(Locale.ROOT)
+            .getBytes(StandardCharsets.UTF_8), row);
+      }
+    }
+
+    // leave out columns without numbers
+    final List<Integer> keptColumns = new ArrayList<Integer>();
+    for (int c = 0; c < columns.size(); ++c) {
+      for (final float[] row : rows.values()) {
+        if (!Float.isNaN(row[c])) {
+          keptColumns.add(c);
+          break;
+        }
+      }
+    }
+
+    int wordBytes = 0;
+    for (final byte[] word : rows.keySet()) {
+      wordBytes += word.length;
+    }
+    try (final DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(output)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(keptColumns.size());
+      out.writeInt(rows.size());
+      out.writeInt(wordBytes);
+      for (final int c : keptColumns) {
+        out.writeUTF(columns.get(c));
+      }
+      pad(out);
+      int offset = 0;
+      for (final byte[] word : rows.keySet()) {
+        out.writeInt(offset);
+        offset += word.length;
+      }
+      out.writeInt(offset);
+      for (final byte[] word : rows.keySet()) {
+        out.write(word);
+      }
+      pad(out);
+      for (final float[] row : rows.values()) {
+        for (final int c : keptColumns) {
+          out.writeFloat(row[c]);
+        }
+      }
+    }
+    LOG.info("Compiled " + rows.size() + " words and "
+        + keptColumns.size() + " columns to " + output);
+  }
+
+  /**
+   * Compiles a lexicon from a CSV file.
+   * <p>
+   * Arguments: <code>CSV-FILE OUTPUT-FILE [WORD-COLUMN]</code>, where the
+   * word column defaults to <code>Word</code>.
+   * </p>
+   * @param args The arguments
+   * @throws IOException If reading or writing fails
+   * @see #compile(Path, String, Path)
+   */
+  public static void main(final String[] args) throws IOException {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("Usage: " + CompiledLexicon.class.getName()
+          + " CSV-FILE OUTPUT-FILE [WORD-COLUMN]");
+      System.exit(1);
+    }
+    final String wordColumn = args.length == 3 ? args[2] : "Word";
+    CompiledLexicon.compile(Paths.get(args[0]), wordColumn, Paths.get(args[1]));
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Compares a word of this lexicon to the lower case of a character
+   * sequence by code points, which is the same order as by UTF-8 bytes.
+   * @param index The index of the word
+   * @param sequence The sequence
+   * @return A negative number, zero, or a positive number if the word is
+   * less than, equal to, or greater than the lower-cased sequence
+   */
+  private int compareTo(final int index, final CharSequence sequence) {
+    int b = this.offsets.get(index);
+    final int end = this.offsets.get(index + 1);
+    final int length = sequence.length();
+    int c = 0;
+    while (b < end && c < length) {
+      // decode one code point from UTF-8
+      final int lead = this.words.get(b++) & 0xFF;
+      int wordCodePoint;
+      int continuations;
+      if (lead < 0x80) {
+        wordCodePoint = lead;
+        continuations = 0;
+      } else if (lead < 0xE0) {
+        wordCodePoint = lead & 0x1F;
+        continuations = 1;
+      } else if (lead < 0xF0) {
+        wordCodePoint = lead & 0x0F;
+        continuations = 2;
+      } else {
+        wordCodePoint = lead & 0x07;
+        continuations = 3;
+      }
+      for (; continuations > 0 && b < end; --continuations) {
+        wordCodePoint = (wordCodePoint << 6) | (this.words.get(b++) & 0x3F);
+      }
+
+      final int codePoint = Character.codePointAt(sequence, c);
+      c += Character.charCount(codePoint);
+      final int comparison =
+          Integer.compare(wordCodePoint, Character.toLowerCase(codePoint));
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    if (b < end) {
+      return 1;
+    } else if (c < length) {
+      return -1;
+    } else {
+      return 0;
+    }
+  }
+
+  private static float parseValue(final String value) {
+    if (value == null || value.isEmpty()) {
+      return Float.NaN;
+    }
+    try {
+      return Float.parseFloat(value);
+    } catch (final NumberFormatException e) {
+      return Float.NaN;
+    }
+  }
+
+  private static int align(final int position) {
+    return (position + 3) & ~3;
+  }
+
+  private static void pad(final DataOutputStream out) throws IOException {
+    while (out.size() % 4 != 0) {
+      out.writeByte(0);
+    }
+  }
+
+  private static ByteBuffer slice(
+      final ByteBuffer buffer, final int position, final int length) {
+    final ByteBuffer slice = buffer.duplicate();
+    slice.position(position);
+    slice.limit(position + length);
+    return slice.slice();
+  }
+
+}
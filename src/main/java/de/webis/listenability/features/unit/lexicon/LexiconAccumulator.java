@@ -0,0 +1,206 @@
+package de.webis.listenability.features.unit.lexicon;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the lexicon values of the tokens of one unit into the mean,
+ * median, minimum, and maximum of each feature, and the rate of tokens that
+ * are not in the lexicon.
+ * <p>
+ * Mean, minimum, and maximum are updated with each token. For the median,
+ * the values are collected in one growing array per feature, which is sorted
+ * only when the median is requested. An accumulator can be {@link #clear()}ed
+ * and reused for the next unit without allocating.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class LexiconAccumulator {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  private static final int INITIAL_CAPACITY = 32;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private int numTokens;
+
+  private int numOutOfVocabulary;
+
+  private final int[] counts;
+
+  private final double[] sums;
+
+  private final double[] minimums;
+
+  private final double[] maximums;
+
+  private final double[][] values;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates an empty accumulator.
+   * @param numFeatures The number of features
+   */
+  public LexiconAccumulator(final int numFeatures) {
+    this.counts = new int[numFeatures];
+    this.sums = new double[numFeatures];
+    this.minimums = new double[numFeatures];
+    this.maximums = new double[numFeatures];
+    this.values = new double[numFeatures][INITIAL_CAPACITY];
+    this.clear();
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of tokens added.
+   * @return The number, including those not in the lexicon
+   */
+  public int getNumTokens() {
+    return this.numTokens;
+  }
+
+  /**
+   * Gets the rate of added tokens that are not in the lexicon.
+   * @return The rate, or 0 if no tokens were added
+   */
+  public double getOutOfVocabularyRate() {
+    return this.numTokens == 0 ? 0.0
+        : (double) this.numOutOfVocabulary / this.numTokens;
+  }
+
+  /**
+   * Gets the number of values of a feature.
+   * @param feature The index of the feature
+   * @return The number
+   */
+  public int getCount(final int feature) {
+    return this.counts[feature];
+  }
+
+  /**
+   * Gets the mean value of a feature.
+   * @param feature The index of the feature
+   * @return The mean or {@link Double#NaN} if there is no value
+   */
+  public double getMean(final int feature) {
+    return this.counts[feature] == 0 ? Double.NaN
+        : this.sums[feature] / this.counts[feature];
+  }
+
+  /**
+   * Gets the median value of a feature, which is the mean of the two middle
+   * values for an even number of values.
+   * @param feature The index of the feature
+   * @return The median or {@link Double#NaN} if there is no value
+   */
+  public double getMedian(final int feature) {
+    final int count = this.counts[feature];
+    if (count == 0) {
+      return Double.NaN;
+    }
+    final double[] featureValues = this.values[feature];
+    Arrays.sort(featureValues, 0, count);
+    if (count % 2 == 1) {
+      return featureValues[count / 2];
+    } else {
+      return (featureValues[count / 2 - 1] + featureValues[count / 2]) / 2;
+    }
+  }
+
+  /**
+   * Gets the minimum value of a feature.
+   * @param feature The index of the feature
+   * @return The minimum or {@link Double#NaN} if there is no value
+   */
+  public double getMinimum(final int feature) {
+    return this.counts[feature] == 0 ? Double.NaN : this.minimums[feature];
+  }
+
+  /**
+   * Gets the maximum value of a feature.
+   * @param feature The index of the feature
+   * @return The maximum or {@link Double#NaN} if there is no value
+   */
+  public double getMaximum(final int feature) {
+    return this.counts[feature] == 0 ? Double.NaN : this.maximums[feature];
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds the values of a token that is in the lexicon.
+   * @param tokenValues The value of each feature, {@link Double#NaN} for
+   * missing values
+   */
+  public void add(final double[] tokenValues) {
+    ++this.numTokens;
+    this.addValues(tokenValues);
+  }
+
+  /**
+   * Adds a token that is not in the lexicon, but for which some values were
+   * estimated.
+   * @param tokenValues The value of each feature, {@link Double#NaN} for
+   * missing values
+   */
+  public void addOutOfVocabulary(final double[] tokenValues) {
+    this.addOutOfVocabulary();
+    this.addValues(tokenValues);
+  }
+
+  /**
+   * Adds a token that is not in the lexicon.
+   */
+  public void addOutOfVocabulary() {
+    ++this.numTokens;
+    ++this.numOutOfVocabulary;
+  }
+
+  /**
+   * Removes all tokens, keeping the allocated memory.
+   */
+  public void clear() {
+    this.numTokens = 0;
+    this.numOutOfVocabulary = 0;
+    Arrays.fill(this.counts, 0);
+    Arrays.fill(this.sums, 0.0);
+    Arrays.fill(this.minimums, Double.POSITIVE_INFINITY);
+    Arrays.fill(this.maximums, Double.NEGATIVE_INFINITY);
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  private void addValues(final double[] tokenValues) {
+    for (int f = 0; f < this.counts.length; ++f) {
+      final double value = tokenValues[f];
+      if (Double.isNaN(value)) {
+        continue;
+      }
+      final int count = this.counts[f];
+      if (count == this.values[f].length) {
+        this.values[f] = Arrays.copyOf(this.values[f], count * 2);
+      }
+      this.values[f][count] = value;
+      this.counts[f] = count + 1;
+      this.sums[f] += value;
+      this.minimums[f] = Math.min(this.minimums[f], value);
+      this.maximums[f] = Math.max(this.maximums[f], value);
+    }
+  }
+
+}
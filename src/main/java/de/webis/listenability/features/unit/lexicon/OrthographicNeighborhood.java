@@ -0,0 +1,394 @@
+package de.webis.listenability.features.unit.lexicon;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Computes the orthographic neighborhood of words within the vocabulary of a
+ * lexicon, for words that are not in the lexicon.
+ * <p>
+ * The neighborhood measures are those of the English Lexicon Project:
+ * </p>
+ * <ul>
+ * <li>{@link #getOld20(CharSequence)}: the mean Levenshtein distance to the
+ * {@value #OLD_NEIGHBORS} closest words of the vocabulary</li>
+ * <li>{@link #getNumNeighbors(CharSequence)}: the number of words of the
+ * vocabulary that differ by exactly one substituted letter (Coltheart's
+ * N)</li>
+ * </ul>
+ * <p>
+ * The vocabulary is indexed in a BK-tree, a tree in which each child of a
+ * word is placed under its Levenshtein distance to the word. By the triangle
+ * inequality, a search only needs to visit the children whose distance is
+ * within the current search radius of the distance of the query to their
+ * parent, which skips most of the vocabulary. The measures of the last
+ * {@link #getMaxMemoized()} words are memoized, as the same unknown words
+ * tend to recur within and across documents.
+ * </p><p>
+ * Words are compared lower-cased. An instance can be used by several threads.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class OrthographicNeighborhood {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The number of closest words over which the OLD20 is averaged.
+   */
+  public static final int OLD_NEIGHBORS = 20;
+
+  /**
+   * The default of {@link #getMaxMemoized()}.
+   */
+  public static final int DEFAULT_MAX_MEMOIZED = 100000;
+
+  private static final int NO_NODE = -1;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The word of each node; the root is node 0.
+   */
+  private String[] words;
+
+  /**
+   * The first child of each node.
+   */
+  private int[] firstChildren;
+
+  /**
+   * The next sibling of each node.
+   */
+  private int[] nextSiblings;
+
+  /**
+   * The distance of each node to its parent.
+   */
+  private int[] parentDistances;
+
+  private int size;
+
+  private final int maxMemoized;
+
+  /**
+   * The OLD20 and number of neighbors of the most recently queried words.
+   */
+  private final Map<String, double[]> memoized;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates an index for a vocabulary, memoizing the measures of up to
+   * {@link #DEFAULT_MAX_MEMOIZED} words.
+   * @param vocabulary The words of the vocabulary
+   */
+  public OrthographicNeighborhood(final Iterable<String> vocabulary) {
+    this(vocabulary, DEFAULT_MAX_MEMOIZED);
+  }
+
+  /**
+   * Creates an index for a vocabulary.
+   * @param vocabulary The words of the vocabulary
+   * @param maxMemoized The maximum number of words for which the measures are
+   * memoized
+   */
+  public OrthographicNeighborhood(
+      final Iterable<String> vocabulary, final int maxMemoized) {
+    this.words = new String[1024];
+    this.firstChildren = new int[1024];
+    this.nextSiblings = new int[1024];
+    this.parentDistances = new int[1024];
+    this.size = 0;
+    for (final String word : vocabulary) {
+      this.insert(word.toLowerCase(Locale.ROOT));
+    }
+
+    this.maxMemoized = maxMemoized;
+    this.memoized = Collections.synchronizedMap(
+        new LinkedHashMap<String, double[]>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+          @Override
+          protected boolean removeEldestEntry(
+              final Map.Entry<String, double[]> eldest) {
+            return this.size() > maxMemoized;
+          }
+        });
+  }
+
+  /**
+   * Creates an index for the vocabulary of a compiled lexicon.
+   * @param lexicon The lexicon
+   * @return The index
+   */
+  public static OrthographicNeighborhood of(final CompiledLexicon lexicon) {
+    return new OrthographicNeighborhood(
+        () -> new Iterator<String>() {
+          private int index = 0;
+          @Override
+          public boolean hasNext() {
+            return this.index < lexicon.getNumWords();
+          }
+          @Override
+          public String next() {
+            return lexicon.getWord(this.index++);
+          }
+        });
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of distinct words in the vocabulary.
+   * @return The number
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the maximum number of words for which the measures are memoized.
+   * @return The number
+   */
+  public int getMaxMemoized() {
+    return this.maxMemoized;
+  }
+
+  /**
+   * Gets the mean Levenshtein distance of a word to the
+   * {@value #OLD_NEIGHBORS} closest words of the vocabulary.
+   * @param word The word, which should not be in the vocabulary
+   * @return The distance, which is averaged over the whole vocabulary if it
+   * has less words, or {@link Double#NaN} if the vocabulary is empty
+   */
+  public double getOld20(final CharSequence word) {
+    return this.getMeasures(word)[0];
+  }
+
+  /**
+   * Gets the number of words of the vocabulary that have the same length as
+   * a word and differ from it by exactly one letter.
+   * @param word The word
+   * @return The number
+   */
+  public int getNumNeighbors(final CharSequence word) {
+    return (int) this.getMeasures(word)[1];
+  }
+
+  /**
+   * Gets the OLD20 and number of neighbors of a word.
+   * @param word The word
+   * @return An array of the OLD20 and the number of neighbors, which must not
+   * be modified
+   * @see #getOld20(CharSequence)
+   * @see #getNumNeighbors(CharSequence)
+   */
+  public double[] getMeasures(final CharSequence word) {
+    final String query = word.toString().toLowerCase(Locale.ROOT);
+    double[] measures = this.memoized.get(query);
+    if (measures == null) {
+      measures = this.search(query);
+      if (this.maxMemoized > 0) {
+        this.memoized.put(query, measures);
+      }
+    }
+    return measures;
+  }
+
+  // -------------------------------------------------------------------------
+  // INDEXING
+  // -------------------------------------------------------------------------
+
+  private void insert(final String word) {
+    if (this.size == 0) {
+      this.addNode(word, 0);
+      return;
+    }
+    int[] rows = new int[2 * (word.length() + 1)];
+    int node = 0;
+    while (true) {
+      final String nodeWord = this.words[node];
+      if (rows.length < 2 * (nodeWord.length() + 1)) {
+        rows = new int[2 * (nodeWord.length() + 1)];
+      }
+      final int distance = distance(word, nodeWord, rows);
+      if (distance == 0) {
+        return; // already in the tree
+      }
+      int child = this.firstChildren[node];
+      while (child != NO_NODE && this.parentDistances[child] != distance) {
+        child = this.nextSiblings[child];
+      }
+      if (child == NO_NODE) {
+        final int added = this.addNode(word, distance);
+        this.nextSiblings[added] = this.firstChildren[node];
+        this.firstChildren[node] = added;
+        return;
+      }
+      node = child;
+    }
+  }
+
+  private int addNode(final String word, final int parentDistance) {
+    if (this.size == this.words.length) {
+      final int capacity = this.size * 2;
+      this.words = Arrays.copyOf(this.words, capacity);
+      this.firstChildren = Arrays.copyOf(this.firstChildren, capacity);
+      this.nextSiblings = Arrays.copyOf(this.nextSiblings, capacity);
+      this.parentDistances = Arrays.copyOf(this.parentDistances, capacity);
+    }
+    final int node = this.size++;
+    this.words[node] = word;
+    this.firstChildren[node] = NO_NODE;
+    this.nextSiblings[node] = NO_NODE;
+    this.parentDistances[node] = parentDistance;
+    return node;
+  }
+
+  // -------------------------------------------------------------------------
+  // SEARCH
+  // -------------------------------------------------------------------------
+
+  /**
+   * Searches the tree for the {@link #OLD_NEIGHBORS} closest words of a word.
+   * <p>
+   * Found distances are counted in a histogram, from which the search radius
+   * is the distance of the {@link #OLD_NEIGHBORS}-th closest word found so
+   * far. As the radius only shrinks, all words within the final radius are
+   * visited, which includes all one-letter neighbors unless the word itself
+   * is in the vocabulary.
+   * </p>
+   * @param word The lower-cased word
+   * @return The OLD20 and the number of neighbors
+   */
+  private double[] search(final String word) {
+    if (this.size == 0) {
+      return new double[] { Double.NaN, 0 };
+    }
+    int[] counts = new int[word.length() + 2];
+    int[] rows = new int[2 * (word.length() + 1)];
+    int[] stack = new int[64];
+    int stackSize = 0;
+    stack[stackSize++] = 0;
+    int found = 0;
+    int radius = Integer.MAX_VALUE;
+    int neighbors = 0;
+    while (stackSize > 0) {
+      final int node = stack[--stackSize];
+      final String nodeWord = this.words[node];
+      if (rows.length < 2 * (nodeWord.length() + 1)) {
+        rows = new int[2 * (nodeWord.length() + 1)];
+      }
+      final int distance = distance(word, nodeWord, rows);
+      if (distance == 1 && nodeWord.length() == word.length()) {
+        ++neighbors;
+      }
+      if (distance <= radius) {
+        if (distance >= counts.length) {
+          counts = Arrays.copyOf(counts, distance + 1);
+        }
+        ++counts[distance];
+        ++found;
+        if (found >= OLD_NEIGHBORS) {
+          radius = kthDistance(counts, OLD_NEIGHBORS);
+        }
+      }
+
+      // push the most promising children last so that they are visited
+      // first, which shrinks the radius early
+      final int pushed = stackSize;
+      for (int child = this.firstChildren[node]; child != NO_NODE;
+          child = this.nextSiblings[child]) {
+        final int offset = Math.abs(this.parentDistances[child] - distance);
+        if (offset <= radius) {
+          if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stackSize * 2);
+          }
+          int position = stackSize++;
+          while (position > pushed && offset > Math.abs(
+              this.parentDistances[stack[position - 1]] - distance)) {
+            stack[position] = stack[position - 1];
+            --position;
+          }
+          stack[position] = child;
+        }
+      }
+    }
+
+    // mean of the closest distances
+    final int numClosest = Math.min(found, OLD_NEIGHBORS);
+    int remaining = numClosest;
+    long sum = 0;
+    for (int d = 0; d < counts.length && remaining > 0; ++d) {
+      final int taken = Math.min(counts[d], remaining);
+      sum += (long) taken * d;
+      remaining -= taken;
+    }
+    return new double[] { (double) sum / numClosest, neighbors };
+  }
+
+  /**
+   * Gets the distance of the k-th closest word from a histogram of
+   * distances.
+   * @param counts The number of words found for each distance
+   * @param k The rank, starting at 1
+   * @return The distance
+   */
+  private static int kthDistance(final int[] counts, final int k) {
+    int cumulated = 0;
+    for (int d = 0; d < counts.length; ++d) {
+      cumulated += counts[d];
+      if (cumulated >= k) {
+        return d;
+      }
+    }
+    return Integer.MAX_VALUE;
+  }
+
+  /**
+   * Computes the Levenshtein distance between two words.
+   * @param first The first word
+   * @param second The second word
+   * @param rows Memory for two rows of the length of the second word plus one
+   * @return The distance
+   */
+  private static int distance(
+      final String first, final String second, final int[] rows) {
+    final int width = second.length() + 1;
+    int previous = 0;
+    int current = width;
+    for (int j = 0; j < width; ++j) {
+      rows[previous + j] = j;
+    }
+    for (int i = 1; i <= first.length(); ++i) {
+      final char character = first.charAt(i - 1);
+      rows[current] = i;
+      for (int j = 1; j < width; ++j) {
+        final int substitution = rows[previous + j - 1]
+            + (character == second.charAt(j - 1) ? 0 : 1);
+        final int deletion = rows[previous + j] + 1;
+        final int insertion = rows[current + j - 1] + 1;
+        rows[current + j] =
+            Math.min(substitution, Math.min(deletion, insertion));
+      }
+      final int swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return rows[previous + width - 1];
+  }
+
+}
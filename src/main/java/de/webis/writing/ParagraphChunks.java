@@ -0,0 +1,87 @@
+package de.webis.writing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import de.aitools.commons.uima.core.Paragraph;
+
+/**
+ * Divides the text of a JCas into chunks of whole {@link Paragraph}s, so that
+ * long documents can be processed chunk by chunk.
+ * <p>
+ * The chunks cover the whole text and only end where a paragraph begins.
+ * Consecutive paragraphs are put into the same chunk as long as it does not
+ * get longer than a maximum length, but a paragraph that is longer on its own
+ * is still one chunk. Texts without paragraphs are one chunk.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class ParagraphChunks {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The default maximum length of chunks for components that process
+   * documents in chunks, which is 0 so that documents are processed whole
+   * unless chunking is enabled explicitly.
+   */
+  public static final int DEFAULT_MAX_LENGTH = 0;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private ParagraphChunks() { }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Divides the text of a JCas into chunks of paragraphs.
+   * @param jCas The JCas
+   * @param maxLength The maximum number of characters of a chunk, where 0 or
+   * below puts the whole text into one chunk
+   * @return The begin and end of each chunk in the document text, in order
+   */
+  public static List<int[]> of(final JCas jCas, final int maxLength) {
+    final int length = jCas.getDocumentText().length();
+    final List<int[]> chunks = new ArrayList<int[]>();
+    if (maxLength <= 0 || length <= maxLength) {
+      chunks.add(new int[] { 0, length });
+      return chunks;
+    }
+
+    final TreeSet<Integer> boundaries = new TreeSet<Integer>();
+    final FSIterator<Annotation> iterator =
+        jCas.getAnnotationIndex(Paragraph.type).iterator();
+    while (iterator.hasNext()) {
+      final int begin = iterator.next().getBegin();
+      if (begin > 0 && begin < length) {
+        boundaries.add(begin);
+      }
+    }
+    boundaries.add(length);
+
+    int begin = 0;
+    int previous = 0;
+    for (final int boundary : boundaries) {
+      if (boundary - begin > maxLength && previous > begin) {
+        chunks.add(new int[] { begin, previous });
+        begin = previous;
+      }
+      previous = boundary;
+    }
+    chunks.add(new int[] { begin, length });
+    return chunks;
+  }
+
+}
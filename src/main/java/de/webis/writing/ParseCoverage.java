@@ -0,0 +1,232 @@
+package de.webis.writing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+import org.apache.uima.jcas.JCas;
+
+/**
+ * The sentences of a JCas for which the dependency parse is degraded, kept
+ * outside of the CAS.
+ * <p>
+ * A dependency parser that does not parse a sentence fully, for example
+ * because it is too long or the time budget of the document is used up,
+ * records the sentence here (see {@link #of(JCas)}). Features that use the
+ * parse can then restrict themselves to the parsed tokens (see
+ * {@link TokenView#isParsed(int)}) and report their coverage.
+ * </p><p>
+ * The coverage of a JCas is dropped with the JCas and reset when the
+ * document text changes.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class ParseCoverage {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The coverage for each JCas, which is dropped with its JCas.
+   */
+  private static final Map<JCas, ParseCoverage> COVERAGES =
+      Collections.synchronizedMap(new WeakHashMap<JCas, ParseCoverage>());
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The document text the coverage was recorded for.
+   */
+  private final String documentText;
+
+  private final List<DegradedSentence> degradedSentences;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private ParseCoverage(final String documentText) {
+    this.documentText = documentText;
+    this.degradedSentences = new ArrayList<DegradedSentence>();
+  }
+
+  /**
+   * Gets the coverage of a JCas, creating an empty one if needed.
+   * @param jCas The JCas
+   * @return The coverage
+   */
+  public static ParseCoverage of(final JCas jCas) {
+    synchronized (COVERAGES) {
+      ParseCoverage coverage = COVERAGES.get(Objects.requireNonNull(jCas));
+      if (coverage == null
+          || coverage.documentText != jCas.getDocumentText()) {
+        coverage = new ParseCoverage(jCas.getDocumentText());
+        COVERAGES.put(jCas, coverage);
+      }
+      return coverage;
+    }
+  }
+
+  /**
+   * Gets the coverage of a JCas, if one was recorded.
+   * @param jCas The JCas
+   * @return The coverage or <code>null</code> if no sentence of the current
+   * document was recorded as degraded
+   */
+  public static ParseCoverage find(final JCas jCas) {
+    final ParseCoverage coverage = COVERAGES.get(jCas);
+    if (coverage == null
+        || coverage.documentText != jCas.getDocumentText()) {
+      return null;
+    }
+    return coverage;
+  }
+
+  /**
+   * Removes the coverage of a JCas, so that all sentences count as parsed
+   * fully again.
+   * @param jCas The JCas
+   */
+  public static void remove(final JCas jCas) {
+    COVERAGES.remove(jCas);
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the sentences for which the parse is degraded.
+   * @return The sentences in the order they were recorded
+   */
+  public synchronized List<DegradedSentence> getDegradedSentences() {
+    return new ArrayList<DegradedSentence>(this.degradedSentences);
+  }
+
+  /**
+   * Checks whether a position is part of a sentence that was not parsed.
+   * @param offset The position in the document text
+   * @return Whether the sentence at the position was not parsed at all
+   */
+  public synchronized boolean isUnparsed(final int offset) {
+    for (final DegradedSentence sentence : this.degradedSentences) {
+      if (!sentence.getDegradation().isParsed()
+          && sentence.getBegin() <= offset && offset < sentence.getEnd()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Records a sentence as degraded.
+   * @param begin The begin of the sentence
+   * @param end The end of the sentence
+   * @param degradation How the parse of the sentence is degraded
+   */
+  public synchronized void add(
+      final int begin, final int end, final Degradation degradation) {
+    this.degradedSentences.add(
+        new DegradedSentence(begin, end, Objects.requireNonNull(degradation)));
+  }
+
+  // -------------------------------------------------------------------------
+  // CLASSES
+  // -------------------------------------------------------------------------
+
+  /**
+   * The ways in which the parse of a sentence can be degraded.
+   */
+  public static enum Degradation {
+
+    /**
+     * The sentence was too long, so its segments between clause punctuation
+     * were parsed separately and no dependencies cross them.
+     */
+    SPLIT(true),
+
+    /**
+     * The sentence was too long and could not be split, so it was not
+     * parsed.
+     */
+    TOKEN_LIMIT(false),
+
+    /**
+     * The time budget for parsing the document was used up before the
+     * sentence was parsed, so it was not parsed.
+     */
+    TIME_BUDGET(false);
+
+    private final boolean parsed;
+
+    private Degradation(final boolean parsed) {
+      this.parsed = parsed;
+    }
+
+    /**
+     * Checks whether the tokens of a sentence with this degradation have
+     * been parsed.
+     * @return Whether they have been parsed, if only in parts
+     */
+    public boolean isParsed() {
+      return this.parsed;
+    }
+
+  }
+
+  /**
+   * A sentence for which the parse is degraded.
+   */
+  public static final class DegradedSentence {
+
+    private final int begin;
+
+    private final int end;
+
+    private final Degradation degradation;
+
+    private DegradedSentence(
+        final int begin, final int end, final Degradation degradation) {
+      this.begin = begin;
+      this.end = end;
+      this.degradation = degradation;
+    }
+
+    /**
+     * Gets the begin of the sentence.
+     * @return The position in the document text
+     */
+    public int getBegin() {
+      return this.begin;
+    }
+
+    /**
+     * Gets the end of the sentence.
+     * @return The position in the document text
+     */
+    public int getEnd() {
+      return this.end;
+    }
+
+    /**
+     * Gets how the parse of the sentence is degraded.
+     * @return The degradation
+     */
+    public Degradation getDegradation() {
+      return this.degradation;
+    }
+
+  }
+
+}
@@ -0,0 +1,295 @@
+package de.webis.writing;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.cas.TOP;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import de.aitools.commons.uima.supertype.Unit;
+import de.aitools.commons.uima.util.FSArrays;
+import de.webis.writing.types.Explanation;
+import de.webis.writing.types.Score;
+import de.webis.writing.types.ScoredUnit;
+import de.webis.writing.types.Suggestion;
+
+/**
+ * Collects the scores, suggestions, and explanations for one unit and adds
+ * them to the CAS at once.
+ * <p>
+ * The functions of {@link Scores} grow the {@link FSArray}s of a
+ * {@link ScoredUnit}, {@link Suggestion}, or {@link Score} by one element on
+ * each call, which copies the array every time. A batch instead keeps the
+ * added objects in lists and creates each array only once on
+ * {@link #commit()}. Until then, the objects are already in the CAS indexes,
+ * but not yet referenced from their unit, suggestion, or score.
+ * </p><p>
+ * Use {@link Scores#batch(Unit)} to create a batch. A batch is not thread-safe
+ * and can be committed only once.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class ScoreBatch {
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private final Unit unit;
+
+  private final List<Score> scores;
+
+  private final List<Suggestion> suggestions;
+
+  private final Map<Suggestion, List<Score>> suggestionScores;
+
+  private final Map<Score, List<Explanation>> explanations;
+
+  private boolean committed;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates an empty batch for a unit.
+   * @param unit The unit
+   * @throws NullPointerException If the unit is <code>null</code>
+   * @see Scores#batch(Unit)
+   */
+  public ScoreBatch(final Unit unit) {
+    this.unit = Objects.requireNonNull(unit);
+    this.scores = new ArrayList<>();
+    this.suggestions = new ArrayList<>();
+    this.suggestionScores = new IdentityHashMap<>();
+    this.explanations = new IdentityHashMap<>();
+    this.committed = false;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the unit for which this batch collects.
+   * @return The unit
+   */
+  public Unit getUnit() {
+    return this.unit;
+  }
+
+  /**
+   * Checks whether nothing was added to this batch.
+   * @return Whether the batch is empty
+   */
+  public boolean isEmpty() {
+    return this.scores.isEmpty() && this.suggestions.isEmpty()
+        && this.explanations.isEmpty();
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds a score to the unit.
+   * @param name The name of the measure that calculated the value
+   * @param value The calculated value
+   * @return The score object
+   * @throws NullPointerException If the name is <code>null</code>
+   * @throws IllegalArgumentException If the value is negative
+   * @see Scores#add(Unit, String, double)
+   */
+  public Score add(final String name, final double value) {
+    final Score score = this.createScore(name, value);
+    this.scores.add(score);
+    return score;
+  }
+
+  /**
+   * Adds a score to a suggestion of this batch.
+   * @param suggestion The suggestion
+   * @param name The name of the measure that calculated the value
+   * @param value The calculated value
+   * @return The score object
+   * @throws NullPointerException If the name is <code>null</code>
+   * @throws IllegalArgumentException If the value is negative or the
+   * suggestion was not created by this batch
+   * @see Scores#add(Suggestion, String, double)
+   */
+  public Score add(
+      final Suggestion suggestion, final String name, final double value) {
+    final List<Score> scores = this.suggestionScores.get(suggestion);
+    if (scores == null) {
+      throw new IllegalArgumentException("Not a suggestion of this batch");
+    }
+    final Score score = this.createScore(name, value);
+    scores.add(score);
+    return score;
+  }
+
+  /**
+   * Adds a suggestion to the unit.
+   * @param text The suggestion text
+   * @return The suggestion object
+   * @throws NullPointerException If the text is <code>null</code>
+   * @see Scores#suggest(Unit, String)
+   */
+  public Suggestion suggest(final String text) {
+    this.checkNotCommitted();
+    final Suggestion suggestion = new Suggestion(this.getJCas());
+    suggestion.setText(Objects.requireNonNull(text));
+    suggestion.addToIndexes();
+    this.suggestions.add(suggestion);
+    this.suggestionScores.put(suggestion, new ArrayList<>());
+    return suggestion;
+  }
+
+  /**
+   * Adds an explanation to a score.
+   * <p>
+   * The score need not be created by this batch.
+   * </p>
+   * @param score The score
+   * @param key The name for this explanation
+   * @param value Some value of the explanation (interpretation depends on the
+   * key) or <code>null</code>
+   * @param reference A referenced annotation for the explanation
+   * (interpretation depends on the key) or <code>null</code>
+   * @return The explanation object
+   * @throws NullPointerException If the score or key is <code>null</code>
+   * @see Scores#explain(Score, String, String, Annotation)
+   */
+  public Explanation explain(final Score score,
+      final String key, final String value, final Annotation reference) {
+    this.checkNotCommitted();
+    Objects.requireNonNull(score);
+    final Explanation explanation = new Explanation(this.getJCas());
+    explanation.setKey(Objects.requireNonNull(key));
+    explanation.setValue(value);
+    explanation.setReference(reference);
+    explanation.addToIndexes();
+    this.explanations.computeIfAbsent(score, s -> new ArrayList<>())
+      .add(explanation);
+    return explanation;
+  }
+
+  /**
+   * Adds an explanation to a score.
+   * @param score The score
+   * @param key The name for this explanation
+   * @param value Some value of the explanation (interpretation depends on the
+   * key)
+   * @return The explanation object
+   * @throws NullPointerException If the score or key is <code>null</code>
+   * @see #explain(Score, String, String, Annotation)
+   */
+  public Explanation explain(final Score score,
+      final String key, final String value) {
+    return this.explain(score, key, value, null);
+  }
+
+  /**
+   * Adds everything collected in this batch to the CAS.
+   * <p>
+   * Creates each array of a score, suggestion, and the {@link ScoredUnit}
+   * once, appending to the elements it already had. If nothing was added to
+   * this batch, no {@link ScoredUnit} is created.
+   * </p>
+   * @throws IllegalStateException If the batch was already committed
+   */
+  public void commit() {
+    this.checkNotCommitted();
+    this.committed = true;
+    if (this.isEmpty()) { return; }
+
+    final JCas jCas = this.getJCas();
+    for (final Map.Entry<Score, List<Explanation>> entry
+        : this.explanations.entrySet()) {
+      final Score score = entry.getKey();
+      score.setExplanations(
+          append(jCas, score.getExplanations(), entry.getValue()));
+    }
+    for (final Map.Entry<Suggestion, List<Score>> entry
+        : this.suggestionScores.entrySet()) {
+      if (!entry.getValue().isEmpty()) {
+        final Suggestion suggestion = entry.getKey();
+        suggestion.setScores(
+            append(jCas, suggestion.getScores(), entry.getValue()));
+      }
+    }
+    if (!this.scores.isEmpty() || !this.suggestions.isEmpty()) {
+      final ScoredUnit scoredUnit = Scores.getUnitFor(this.unit);
+      if (!this.scores.isEmpty()) {
+        scoredUnit.setScores(
+            append(jCas, scoredUnit.getScores(), this.scores));
+      }
+      if (!this.suggestions.isEmpty()) {
+        scoredUnit.setSuggestions(
+            append(jCas, scoredUnit.getSuggestions(), this.suggestions));
+      }
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  private JCas getJCas() {
+    return this.unit.getJCas();
+  }
+
+  private void checkNotCommitted() {
+    if (this.committed) {
+      throw new IllegalStateException("Batch was already committed");
+    }
+  }
+
+  /**
+   * Creates a score that is in the indexes but not referenced yet.
+   * @param name The name of the measure that calculated the value
+   * @param value The calculated value
+   * @return The score
+   */
+  private Score createScore(final String name, final double value) {
+    this.checkNotCommitted();
+    final Score score = new Score(this.getJCas());
+    score.setName(Objects.requireNonNull(name));
+    if (value < 0.0) {
+      throw new IllegalArgumentException(
+          "Negative values are not allowed, but got " + value);
+    }
+    score.setValue(value);
+    score.addToIndexes();
+    return score;
+  }
+
+  /**
+   * Creates a new array with the elements of an array and additional ones.
+   * @param jCas The JCas
+   * @param array The array, which may be <code>null</code>
+   * @param elements The elements to append
+   * @return The new array
+   */
+  private static <T extends TOP> FSArray<T> append(
+      final JCas jCas, final FSArray<T> array, final List<T> elements) {
+    final List<T> previous = FSArrays.getNonNull(array);
+    final FSArray<T> appended =
+        new FSArray<T>(jCas, previous.size() + elements.size());
+    int index = 0;
+    for (final T element : previous) {
+      appended.set(index++, element);
+    }
+    for (final T element : elements) {
+      appended.set(index++, element);
+    }
+    return appended;
+  }
+
+}
@@ -2,10 +2,15 @@ package de.webis.writing;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.WeakHashMap;
 
 import de.webis.writing.types.*;
 import org.apache.uima.cas.text.AnnotationIndex;
@@ -18,6 +23,7 @@ import com.fasterxml.jackson.core.JsonGenerator;
 
 import de.aitools.commons.uima.util.FSArrays;
 import de.aitools.commons.uima.supertype.Unit;
+import de.webis.writing.pipeline.DocumentCaches;
 
 /**
  * Utility class for dealing with the writing assistance UIMA types.
@@ -35,6 +41,19 @@ public class Scores {
    * different <code>toJson</code> methods.
    */
   public static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  /**
+   * The mapping from units to their ScoredUnit for each JCas, which refers to
+   * feature structures of the JCas and is therefore held softly and dropped
+   * when the JCas is released (see {@link DocumentCaches}) or collected.
+   */
+  private static final Map<JCas, SoftReference<ScoredUnitMap>>
+      SCORED_UNIT_MAPS = Collections.synchronizedMap(
+          new WeakHashMap<JCas, SoftReference<ScoredUnitMap>>());
+
+  static {
+    DocumentCaches.register(Scores::invalidate);
+  }
   
   // -------------------------------------------------------------------------
   // CONSTRUCTORS
@@ -52,6 +71,9 @@ public class Scores {
    * If a ScoredUnit already exists for the unit, it is returned. Otherwise
    * this function creates a new ScoredUnit, adds it to the indexed, and returns
    * it.
+   * </p><p>
+   * The ScoredUnits are looked up in an identity map per JCas, so this takes
+   * constant time. See {@link #findUnitFor(Unit)} for details.
    * </p>
    * @param unit The unit
    * @return The scored unit
@@ -59,25 +81,98 @@ public class Scores {
    */
   public static ScoredUnit getUnitFor(final Unit unit) {
     final JCas jCas = unit.getJCas();
-    final int begin = unit.getBegin();
-    final int end = unit.getEnd();
-
-    final AnnotationIndex<ScoredUnit> index =
-        jCas.getAnnotationIndex(ScoredUnit.class);
-    final Optional<ScoredUnit> maybeScoredUnit = index.select()
-        .at(begin, end)
-        .filter(scoredUnit -> scoredUnit.getUnit() == unit)
-        .findFirst();
-    if (maybeScoredUnit.isPresent()) {
-      return maybeScoredUnit.get();
-    } else {
-      final ScoredUnit scoredUnit = new ScoredUnit(jCas, begin, end);
+    final ScoredUnitMap scoredUnits = Scores.getScoredUnitMap(jCas);
+    synchronized (scoredUnits) {
+      final ScoredUnit existing = scoredUnits.find(unit);
+      if (existing != null) {
+        return existing;
+      }
+      final ScoredUnit scoredUnit =
+          new ScoredUnit(jCas, unit.getBegin(), unit.getEnd());
       scoredUnit.setUnit(unit);
       scoredUnit.addToIndexes();
+      scoredUnits.put(unit, scoredUnit);
       return scoredUnit;
     }
   }
 
+  /**
+   * Gets the ScoredUnit for a unit if one exists.
+   * <p>
+   * The ScoredUnits of each JCas are kept in an identity map, which is
+   * updated by {@link #getUnitFor(Unit)}. If the ScoredUnit index contains
+   * ScoredUnits that were not created by this class (e.g., when the CAS was
+   * deserialized), these are looked up in the index once and then added to
+   * the map. The map is cleared when the document text of the JCas changes or
+   * ScoredUnits were removed from the index, like when the CAS is reset.
+   * </p>
+   * @param unit The unit
+   * @return The scored unit or <code>null</code> if none exists
+   * @throws NullPointerException If the unit is <code>null</code>
+   */
+  public static ScoredUnit findUnitFor(final Unit unit) {
+    final ScoredUnitMap scoredUnits =
+        Scores.getScoredUnitMap(unit.getJCas());
+    synchronized (scoredUnits) {
+      return scoredUnits.find(unit);
+    }
+  }
+
+  /**
+   * Removes the mapping from units to ScoredUnits for a JCas.
+   * <p>
+   * This is necessary if ScoredUnits have been removed from the index and
+   * others added for the same units since, and once the document of the JCas
+   * was processed, which the {@link DocumentCaches} take care of.
+   * </p>
+   * @param jCas The JCas
+   */
+  public static void invalidate(final JCas jCas) {
+    SCORED_UNIT_MAPS.remove(jCas);
+  }
+
+  /**
+   * Gets the mapping from units to ScoredUnits for a JCas, creating it if
+   * needed.
+   * @param jCas The JCas
+   * @return The mapping
+   */
+  private static ScoredUnitMap getScoredUnitMap(final JCas jCas) {
+    synchronized (SCORED_UNIT_MAPS) {
+      final SoftReference<ScoredUnitMap> reference =
+          SCORED_UNIT_MAPS.get(jCas);
+      ScoredUnitMap scoredUnitMap =
+          reference == null ? null : reference.get();
+      if (scoredUnitMap == null) {
+        scoredUnitMap = new ScoredUnitMap(jCas.getDocumentText());
+        SCORED_UNIT_MAPS.put(
+            jCas, new SoftReference<ScoredUnitMap>(scoredUnitMap));
+      }
+      return scoredUnitMap;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY: BATCHES
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates a batch that collects scores, suggestions, and explanations for a
+   * unit and adds them to the CAS at once when it is committed.
+   * <p>
+   * Use a batch instead of the other functions of this class when adding
+   * several objects to the same unit, as these functions copy the arrays of
+   * the unit on each call.
+   * </p>
+   * @param unit The unit
+   * @return The batch
+   * @throws NullPointerException If the unit is <code>null</code>
+   * @see ScoreBatch#commit()
+   */
+  public static ScoreBatch batch(final Unit unit) {
+    return new ScoreBatch(unit);
+  }
+
   // -------------------------------------------------------------------------
   // FUNCTIONALITY: SCORES
   // -------------------------------------------------------------------------
@@ -597,4 +692,67 @@ public class Scores {
     json.writeEndObject();
   }
 
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Identity map from units to their ScoredUnit in one JCas.
+   */
+  private static final class ScoredUnitMap {
+
+    private final Map<Unit, ScoredUnit> scoredUnits;
+
+    /**
+     * The document text for which the map was filled.
+     */
+    private String documentText;
+
+    private ScoredUnitMap(final String documentText) {
+      this.scoredUnits = new IdentityHashMap<>();
+      this.documentText = documentText;
+    }
+
+    /**
+     * Finds the ScoredUnit of a unit.
+     * @param unit The unit
+     * @return The ScoredUnit or <code>null</code> if none exists
+     */
+    private ScoredUnit find(final Unit unit) {
+      final JCas jCas = unit.getJCas();
+      final AnnotationIndex<ScoredUnit> index =
+          jCas.getAnnotationIndex(ScoredUnit.class);
+      final int indexSize = index.size();
+      if (this.documentText != jCas.getDocumentText()
+          || indexSize < this.scoredUnits.size()) {
+        // CAS was reset or ScoredUnits were removed
+        this.scoredUnits.clear();
+        this.documentText = jCas.getDocumentText();
+      }
+
+      final ScoredUnit scoredUnit = this.scoredUnits.get(unit);
+      if (scoredUnit != null || indexSize == this.scoredUnits.size()) {
+        // if all ScoredUnits are in the map, none exists for this unit
+        return scoredUnit;
+      }
+
+      // some ScoredUnits were added without this class
+      final Optional<ScoredUnit> maybeScoredUnit = index.select()
+          .at(unit.getBegin(), unit.getEnd())
+          .filter(candidate -> candidate.getUnit() == unit)
+          .findFirst();
+      if (maybeScoredUnit.isPresent()) {
+        this.scoredUnits.put(unit, maybeScoredUnit.get());
+        return maybeScoredUnit.get();
+      } else {
+        return null;
+      }
+    }
+
+    private void put(final Unit unit, final ScoredUnit scoredUnit) {
+      this.scoredUnits.put(unit, scoredUnit);
+    }
+
+  }
+
 }
@@ -0,0 +1,172 @@
+package de.webis.writing;
+
+import java.util.Objects;
+
+import org.apache.uima.jcas.tcas.Annotation;
+
+/**
+ * A {@link CharSequence} view of a span of a text, like the covered text of
+ * an annotation, that does not copy the characters.
+ * <p>
+ * A text span is mutable, so that one object can be reused for all tokens of
+ * a document (see {@link #set(String, int, int)}). It therefore does not
+ * override {@link #equals(Object)} and {@link #hashCode()}; use
+ * {@link #contentEqualsIgnoreCase(CharSequence, CharSequence)} and
+ * {@link #hashCodeIgnoreCase(CharSequence)} or a {@link WordTable} instead.
+ * </p><p>
+ * Case is ignored by comparing {@link Character#toLowerCase(char)} of each
+ * character, which is the same as comparing the lower-cased strings except
+ * for the few characters whose lower case has a different length.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class TextSpan implements CharSequence {
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private String text;
+
+  private int begin;
+
+  private int end;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates an empty span.
+   */
+  public TextSpan() {
+    this("", 0, 0);
+  }
+
+  /**
+   * Creates a span of a text.
+   * @param text The text
+   * @param begin The offset of the first character of the span
+   * @param end The offset after the last character of the span
+   * @throws IndexOutOfBoundsException If the span is not within the text
+   */
+  public TextSpan(final String text, final int begin, final int end) {
+    this.set(text, begin, end);
+  }
+
+  // -------------------------------------------------------------------------
+  // SETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Sets this span to a span of a text.
+   * @param text The text
+   * @param begin The offset of the first character of the span
+   * @param end The offset after the last character of the span
+   * @return This span
+   * @throws IndexOutOfBoundsException If the span is not within the text
+   */
+  public TextSpan set(final String text, final int begin, final int end) {
+    Objects.checkFromToIndex(begin, end, text.length());
+    this.text = text;
+    this.begin = begin;
+    this.end = end;
+    return this;
+  }
+
+  /**
+   * Sets this span to the covered text of an annotation.
+   * @param annotation The annotation
+   * @return This span
+   */
+  public TextSpan set(final Annotation annotation) {
+    return this.set(annotation.getJCas().getDocumentText(),
+        annotation.getBegin(), annotation.getEnd());
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  @Override
+  public int length() {
+    return this.end - this.begin;
+  }
+
+  @Override
+  public char charAt(final int index) {
+    Objects.checkIndex(index, this.length());
+    return this.text.charAt(this.begin + index);
+  }
+
+  @Override
+  public TextSpan subSequence(final int start, final int end) {
+    Objects.checkFromToIndex(start, end, this.length());
+    return new TextSpan(this.text, this.begin + start, this.begin + end);
+  }
+
+  /**
+   * Checks whether this span contains a character.
+   * @param character The character
+   * @return Whether the character occurs in this span
+   */
+  public boolean contains(final char character) {
+    for (int c = this.begin; c < this.end; ++c) {
+      if (this.text.charAt(c) == character) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return this.text.substring(this.begin, this.end);
+  }
+
+  // -------------------------------------------------------------------------
+  // CASE-INSENSITIVE COMPARISON
+  // -------------------------------------------------------------------------
+
+  /**
+   * Computes a hash code of a character sequence that ignores case.
+   * <p>
+   * For strings without characters whose lower case has a different length,
+   * this is the same as <code>sequence.toString().toLowerCase().hashCode()
+   * </code>.
+   * </p>
+   * @param sequence The sequence
+   * @return The hash code
+   */
+  public static int hashCodeIgnoreCase(final CharSequence sequence) {
+    int hash = 0;
+    final int length = sequence.length();
+    for (int c = 0; c < length; ++c) {
+      hash = 31 * hash + Character.toLowerCase(sequence.charAt(c));
+    }
+    return hash;
+  }
+
+  /**
+   * Checks whether two character sequences are equal when ignoring case.
+   * @param first The first sequence
+   * @param second The second sequence
+   * @return Whether the sequences are equal
+   */
+  public static boolean contentEqualsIgnoreCase(
+      final CharSequence first, final CharSequence second) {
+    final int length = first.length();
+    if (second.length() != length) {
+      return false;
+    }
+    for (int c = 0; c < length; ++c) {
+      if (Character.toLowerCase(first.charAt(c))
+          != Character.toLowerCase(second.charAt(c))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+}
@@ -0,0 +1,696 @@
+package de.webis.writing;
+
+import java.lang.ref.SoftReference;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.cas.FSIterator;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import de.aitools.commons.uima.core.Paragraph;
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+import de.aitools.commons.uima.supertype.Unit;
+import de.webis.writing.pipeline.DocumentCaches;
+
+/**
+ * Columnar view on the tokens, sentences, and paragraphs of a JCas.
+ * <p>
+ * The view stores the begin and end of each token in primitive arrays, the
+ * part-of-speech tag and dependency label of each token as codes, the parent
+ * of each token as an index, and the boundaries of sentences and paragraphs as
+ * token indices. Analysis engines can thus iterate over the tokens of a span
+ * without walking the annotation indexes, and test tags using
+ * {@link BitSet}s from {@link #getCodes(Collection)} instead of string
+ * comparisons.
+ * </p><p>
+ * Use {@link #of(JCas)} to get the view of a JCas. The view is built when it
+ * is requested first and then shared by all analysis engines until the
+ * document text or the number of tokens, sentences, or paragraphs changes.
+ * Components that change the annotations of existing tokens (like the
+ * dependency parser) have to call {@link #invalidate(JCas)}. As the view
+ * refers to the tokens of its JCas, it is only softly reachable from the
+ * weak key of its JCas, and a {@link DocumentCaches} entry that pipelines
+ * drop once the document was processed.
+ * </p><p>
+ * Codes are assigned process-wide, so they can be compared across documents.
+ * At most {@link #MAX_CODES} distinct tags and labels get a code of their
+ * own; further ones share the code {@link #MAX_CODES}.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class TokenView {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The code for a missing tag or label.
+   */
+  public static final int NO_CODE = -1;
+
+  /**
+   * The index of a missing parent.
+   */
+  public static final int NO_PARENT = -1;
+
+  /**
+   * The number of tags and labels that get a code of their own.
+   */
+  public static final int MAX_CODES = 4096;
+
+  /**
+   * The codes assigned so far.
+   */
+  private static final Map<String, Integer> CODES =
+      new HashMap<String, Integer>();
+
+  /**
+   * The views built so far, which are dropped when their JCas is released or
+   * collected.
+   */
+  private static final Map<JCas, SoftReference<TokenView>> VIEWS =
+      Collections.synchronizedMap(
+          new WeakHashMap<JCas, SoftReference<TokenView>>());
+
+  static {
+    DocumentCaches.register(TokenView::invalidate);
+  }
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The document text the view was built for.
+   */
+  private final String documentText;
+
+  /**
+   * The tokens in the order of the index.
+   */
+  private final Token[] tokens;
+
+  /**
+   * The begin of each token.
+   */
+  private final int[] begins;
+
+  /**
+   * The end of each token.
+   */
+  private final int[] ends;
+
+  /**
+   * The code of the part-of-speech tag of each token.
+   */
+  private final int[] posCodes;
+
+  /**
+   * The code of the dependency label of each token.
+   */
+  private final int[] depLabelCodes;
+
+  /**
+   * The index of the dependency parent of each token.
+   */
+  private final int[] parents;
+
+  /**
+   * The lemma of each token.
+   */
+  private final String[] lemmas;
+
+  /**
+   * The tokens in sentences that the dependency parser did not parse.
+   * @see ParseCoverage
+   */
+  private final BitSet unparsed;
+
+  /**
+   * The begin of each sentence.
+   */
+  private final int[] sentenceBegins;
+
+  /**
+   * The end of each sentence.
+   */
+  private final int[] sentenceEnds;
+
+  /**
+   * The index of the first token of each sentence.
+   */
+  private final int[] sentenceFirstTokens;
+
+  /**
+   * The index after the last token of each sentence.
+   */
+  private final int[] sentenceTokenLimits;
+
+  /**
+   * The begin of each paragraph.
+   */
+  private final int[] paragraphBegins;
+
+  /**
+   * The end of each paragraph.
+   */
+  private final int[] paragraphEnds;
+
+  /**
+   * The index of the first token of each paragraph.
+   */
+  private final int[] paragraphFirstTokens;
+
+  /**
+   * The index after the last token of each paragraph.
+   */
+  private final int[] paragraphTokenLimits;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Builds the view of a JCas.
+   * @param jCas The JCas
+   */
+  protected TokenView(final JCas jCas) {
+    this.documentText = jCas.getDocumentText();
+
+    final int numTokens = jCas.getAnnotationIndex(Token.type).size();
+    this.tokens = new Token[numTokens];
+    this.begins = new int[numTokens];
+    this.ends = new int[numTokens];
+    this.posCodes = new int[numTokens];
+    this.depLabelCodes = new int[numTokens];
+    this.parents = new int[numTokens];
+    this.lemmas = new String[numTokens];
+
+    final FSIterator<Annotation> iterator =
+        jCas.getAnnotationIndex(Token.type).iterator();
+    for (int t = 0; iterator.hasNext(); ++t) {
+      final Token token = (Token) iterator.next();
+      this.tokens[t] = token;
+      this.begins[t] = token.getBegin();
+      this.ends[t] = token.getEnd();
+      this.posCodes[t] = TokenView.getCode(token.getPos());
+      this.depLabelCodes[t] = TokenView.getCode(token.getDepLabel());
+      this.lemmas[t] = token.getLemma();
+    }
+    for (int t = 0; t < numTokens; ++t) {
+      this.parents[t] = this.indexOf(this.tokens[t].getParent());
+    }
+    this.unparsed = new BitSet(numTokens);
+    final ParseCoverage coverage = ParseCoverage.find(jCas);
+    if (coverage != null) {
+      for (final ParseCoverage.DegradedSentence sentence
+          : coverage.getDegradedSentences()) {
+        if (!sentence.getDegradation().isParsed()) {
+          for (int t = this.getFirstTokenFrom(sentence.getBegin());
+              t < numTokens && this.ends[t] <= sentence.getEnd(); ++t) {
+            this.unparsed.set(t);
+          }
+        }
+      }
+    }
+
+    final int numSentences = jCas.getAnnotationIndex(Sentence.type).size();
+    this.sentenceBegins = new int[numSentences];
+    this.sentenceEnds = new int[numSentences];
+    this.sentenceFirstTokens = new int[numSentences];
+    this.sentenceTokenLimits = new int[numSentences];
+    this.setBoundaries(jCas, Sentence.type,
+        this.sentenceBegins, this.sentenceEnds,
+        this.sentenceFirstTokens, this.sentenceTokenLimits);
+
+    final int numParagraphs = jCas.getAnnotationIndex(Paragraph.type).size();
+    this.paragraphBegins = new int[numParagraphs];
+    this.paragraphEnds = new int[numParagraphs];
+    this.paragraphFirstTokens = new int[numParagraphs];
+    this.paragraphTokenLimits = new int[numParagraphs];
+    this.setBoundaries(jCas, Paragraph.type,
+        this.paragraphBegins, this.paragraphEnds,
+        this.paragraphFirstTokens, this.paragraphTokenLimits);
+  }
+
+  /**
+   * Gets the view of a JCas, building it if needed.
+   * @param jCas The JCas
+   * @return The view
+   */
+  public static TokenView of(final JCas jCas) {
+    synchronized (VIEWS) {
+      final SoftReference<TokenView> reference = VIEWS.get(jCas);
+      TokenView view = reference == null ? null : reference.get();
+      if (view == null || !view.isValidFor(jCas)) {
+        view = new TokenView(jCas);
+        VIEWS.put(jCas, new SoftReference<TokenView>(view));
+      }
+      return view;
+    }
+  }
+
+  /**
+   * Drops the view of a JCas, so that the next call of {@link #of(JCas)}
+   * builds it anew.
+   * <p>
+   * This method has to be called by components that change the tokens of a
+   * JCas after a view may have been built for it.
+   * </p>
+   * @param jCas The JCas
+   */
+  public static void invalidate(final JCas jCas) {
+    VIEWS.remove(jCas);
+  }
+
+  // -------------------------------------------------------------------------
+  // CODES
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the code of a tag or label, assigning a new one if needed.
+   * @param tag The tag or label
+   * @return The code, {@link #MAX_CODES} if all other codes are assigned
+   * already, or {@link #NO_CODE} for <code>null</code>
+   */
+  public static int getCode(final String tag) {
+    if (tag == null) { return NO_CODE; }
+    synchronized (CODES) {
+      final Integer code = CODES.get(tag);
+      if (code != null) { return code; }
+      final int newCode = CODES.size();
+      if (newCode == MAX_CODES) { return MAX_CODES; }
+      CODES.put(tag, newCode);
+      return newCode;
+    }
+  }
+
+  /**
+   * Gets the codes of several tags or labels as a set.
+   * <p>
+   * The returned set should not be modified, as it may be used by several
+   * threads.
+   * </p>
+   * @param tags The tags or labels
+   * @return The set of codes
+   */
+  public static BitSet getCodes(final Collection<String> tags) {
+    final BitSet codes = new BitSet();
+    for (final String tag : tags) {
+      codes.set(TokenView.getCode(tag));
+    }
+    return codes;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS: TOKENS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of tokens.
+   * @return The number
+   */
+  public int size() {
+    return this.tokens.length;
+  }
+
+  /**
+   * Gets a token.
+   * @param index The index of the token
+   * @return The token
+   */
+  public Token getToken(final int index) {
+    return this.tokens[index];
+  }
+
+  /**
+   * Gets the begin of a token.
+   * @param index The index of the token
+   * @return The character offset
+   */
+  public int getBegin(final int index) {
+    return this.begins[index];
+  }
+
+  /**
+   * Gets the end of a token.
+   * @param index The index of the token
+   * @return The character offset
+   */
+  public int getEnd(final int index) {
+    return this.ends[index];
+  }
+
+  /**
+   * Gets the covered text of a token.
+   * @param index The index of the token
+   * @return The text
+   */
+  public String getText(final int index) {
+    return this.documentText.substring(this.begins[index], this.ends[index]);
+  }
+
+  /**
+   * Sets a text span to the covered text of a token, which unlike
+   * {@link #getText(int)} does not copy the characters.
+   * @param index The index of the token
+   * @param span The span to set
+   * @return The span
+   */
+  public TextSpan getText(final int index, final TextSpan span) {
+    return span.set(this.documentText, this.begins[index], this.ends[index]);
+  }
+
+  /**
+   * Checks whether the covered text of a token contains a character.
+   * @param index The index of the token
+   * @param character The character
+   * @return Whether the character occurs in the text
+   */
+  public boolean contains(final int index, final char character) {
+    for (int c = this.begins[index]; c < this.ends[index]; ++c) {
+      if (this.documentText.charAt(c) == character) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the length of the covered text of a token.
+   * @param index The index of the token
+   * @return The length in characters
+   */
+  public int getLength(final int index) {
+    return this.ends[index] - this.begins[index];
+  }
+
+  /**
+   * Gets the code of the part-of-speech tag of a token.
+   * @param index The index of the token
+   * @return The code or {@link #NO_CODE}
+   * @see #getCode(String)
+   */
+  public int getPosCode(final int index) {
+    return this.posCodes[index];
+  }
+
+  /**
+   * Checks whether the part-of-speech tag of a token is one of several.
+   * @param index The index of the token
+   * @param codes The codes of the tags
+   * @return Whether the tag is one of them
+   * @see #getCodes(Collection)
+   */
+  public boolean hasPos(final int index, final BitSet codes) {
+    final int code = this.posCodes[index];
+    return code != NO_CODE && codes.get(code);
+  }
+
+  /**
+   * Gets the code of the dependency label of a token.
+   * @param index The index of the token
+   * @return The code or {@link #NO_CODE}
+   * @see #getCode(String)
+   */
+  public int getDepLabelCode(final int index) {
+    return this.depLabelCodes[index];
+  }
+
+  /**
+   * Checks whether the dependency label of a token is one of several.
+   * @param index The index of the token
+   * @param codes The codes of the labels
+   * @return Whether the label is one of them
+   * @see #getCodes(Collection)
+   */
+  public boolean hasDepLabel(final int index, final BitSet codes) {
+    final int code = this.depLabelCodes[index];
+    return code != NO_CODE && codes.get(code);
+  }
+
+  /**
+   * Gets the index of the dependency parent of a token.
+   * @param index The index of the token
+   * @return The index of the parent or {@link #NO_PARENT}
+   */
+  public int getParent(final int index) {
+    return this.parents[index];
+  }
+
+  /**
+   * Gets the lemma of a token.
+   * @param index The index of the token
+   * @return The lemma or <code>null</code>
+   */
+  public String getLemma(final int index) {
+    return this.lemmas[index];
+  }
+
+  /**
+   * Checks whether the dependency parser considered a token.
+   * @param index The index of the token
+   * @return Whether the sentence of the token was parsed, which is the case
+   * unless it is recorded as unparsed in the {@link ParseCoverage}
+   */
+  public boolean isParsed(final int index) {
+    return !this.unparsed.get(index);
+  }
+
+  /**
+   * Gets the index of the first token that begins at or after an offset.
+   * @param offset The character offset
+   * @return The index, which is {@link #size()} if there is no such token
+   */
+  public int getFirstTokenFrom(final int offset) {
+    return TokenView.getFirstFrom(this.begins, offset);
+  }
+
+  /**
+   * Gets the tokens covered by a span.
+   * @param span The span
+   * @return The tokens in the order of the index
+   */
+  public List<Token> getTokens(final Unit span) {
+    final int end = span.getEnd();
+    final int first = this.getFirstTokenFrom(span.getBegin());
+    int limit = first;
+    while (limit < this.tokens.length && this.ends[limit] <= end) {
+      ++limit;
+    }
+    return Collections.unmodifiableList(
+        Arrays.asList(this.tokens).subList(first, limit));
+  }
+
+  /**
+   * Gets the index of a token.
+   * @param token The token
+   * @return The index or {@link #NO_PARENT} if the token is <code>null</code>
+   * or not part of this view
+   */
+  public int indexOf(final Token token) {
+    if (token == null) { return NO_PARENT; }
+    for (int t = this.getFirstTokenFrom(token.getBegin());
+        t < this.tokens.length && this.begins[t] == token.getBegin();
+        ++t) {
+      if (this.tokens[t] == token) { return t; }
+    }
+    return NO_PARENT;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS: SENTENCES AND PARAGRAPHS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of sentences.
+   * @return The number
+   */
+  public int getNumSentences() {
+    return this.sentenceFirstTokens.length;
+  }
+
+  /**
+   * Gets the begin of a sentence.
+   * @param sentence The index of the sentence
+   * @return The character offset
+   */
+  public int getSentenceBegin(final int sentence) {
+    return this.sentenceBegins[sentence];
+  }
+
+  /**
+   * Gets the end of a sentence.
+   * @param sentence The index of the sentence
+   * @return The character offset
+   */
+  public int getSentenceEnd(final int sentence) {
+    return this.sentenceEnds[sentence];
+  }
+
+  /**
+   * Gets the index of the first sentence that begins at or after an offset.
+   * @param offset The character offset
+   * @return The index, which is {@link #getNumSentences()} if there is no such
+   * sentence
+   */
+  public int getFirstSentenceFrom(final int offset) {
+    return TokenView.getFirstFrom(this.sentenceBegins, offset);
+  }
+
+  /**
+   * Gets the index of the first token of a sentence.
+   * @param sentence The index of the sentence
+   * @return The index of the token
+   */
+  public int getSentenceFirstToken(final int sentence) {
+    return this.sentenceFirstTokens[sentence];
+  }
+
+  /**
+   * Gets the index after the last token of a sentence.
+   * @param sentence The index of the sentence
+   * @return The index after the token
+   */
+  public int getSentenceTokenLimit(final int sentence) {
+    return this.sentenceTokenLimits[sentence];
+  }
+
+  /**
+   * Gets the number of paragraphs.
+   * @return The number
+   */
+  public int getNumParagraphs() {
+    return this.paragraphFirstTokens.length;
+  }
+
+  /**
+   * Gets the begin of a paragraph.
+   * @param paragraph The index of the paragraph
+   * @return The character offset
+   */
+  public int getParagraphBegin(final int paragraph) {
+    return this.paragraphBegins[paragraph];
+  }
+
+  /**
+   * Gets the end of a paragraph.
+   * @param paragraph The index of the paragraph
+   * @return The character offset
+   */
+  public int getParagraphEnd(final int paragraph) {
+    return this.paragraphEnds[paragraph];
+  }
+
+  /**
+   * Gets the index of the first paragraph that begins at or after an offset.
+   * @param offset The character offset
+   * @return The index, which is {@link #getNumParagraphs()} if there is no such
+   * paragraph
+   */
+  public int getFirstParagraphFrom(final int offset) {
+    return TokenView.getFirstFrom(this.paragraphBegins, offset);
+  }
+
+  /**
+   * Gets the index of the first token of a paragraph.
+   * @param paragraph The index of the paragraph
+   * @return The index of the token
+   */
+  public int getParagraphFirstToken(final int paragraph) {
+    return this.paragraphFirstTokens[paragraph];
+  }
+
+  /**
+   * Gets the index after the last token of a paragraph.
+   * @param paragraph The index of the paragraph
+   * @return The index after the token
+   */
+  public int getParagraphTokenLimit(final int paragraph) {
+    return this.paragraphTokenLimits[paragraph];
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Checks whether this view still reflects a JCas.
+   * @param jCas The JCas
+   * @return Whether the document text and the number of units are the same
+   */
+  private boolean isValidFor(final JCas jCas) {
+    return this.documentText == jCas.getDocumentText()
+        && this.tokens.length == jCas.getAnnotationIndex(Token.type).size()
+        && this.sentenceFirstTokens.length
+          == jCas.getAnnotationIndex(Sentence.type).size()
+        && this.paragraphFirstTokens.length
+          == jCas.getAnnotationIndex(Paragraph.type).size();
+  }
+
+  /**
+   * Sets the token boundaries of all spans of one type.
+   * <p>
+   * A token belongs to a span if it is covered by it.
+   * </p>
+   * @param jCas The JCas
+   * @param type The type of the spans
+   * @param spanBegins Target array for the begin of each span
+   * @param spanEnds Target array for the end of each span
+   * @param firstTokens Target array for the index of the first token of each
+   * span
+   * @param tokenLimits Target array for the index after the last token of
+   * each span
+   */
+  private void setBoundaries(final JCas jCas, final int type,
+      final int[] spanBegins, final int[] spanEnds,
+      final int[] firstTokens, final int[] tokenLimits) {
+    final FSIterator<Annotation> iterator =
+        jCas.getAnnotationIndex(type).iterator();
+    for (int s = 0; iterator.hasNext(); ++s) {
+      final Annotation span = iterator.next();
+      final int first = this.getFirstTokenFrom(span.getBegin());
+      int limit = first;
+      while (limit < this.tokens.length && this.ends[limit] <= span.getEnd()) {
+        ++limit;
+      }
+      spanBegins[s] = span.getBegin();
+      spanEnds[s] = span.getEnd();
+      firstTokens[s] = first;
+      tokenLimits[s] = limit;
+    }
+  }
+
+  /**
+   * Gets the index of the first value in a sorted array that is at least
+   * some offset.
+   * @param offsets The sorted array
+   * @param offset The offset
+   * @return The index, which is the length of the array if there is no such
+   * value
+   */
+  private static int getFirstFrom(final int[] offsets, final int offset) {
+    int low = 0;
+    int high = offsets.length;
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (offsets[middle] < offset) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+}
@@ -0,0 +1,198 @@
+package de.webis.writing;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Assigns consecutive ids to words and looks them up ignoring case, for any
+ * {@link CharSequence} and without creating strings.
+ * <p>
+ * The table uses open addressing with linear probing over arrays, so that a
+ * lookup of a {@link TextSpan} of the document text allocates nothing. Use
+ * the ids to index arrays of the values that belong to the words.
+ * </p><p>
+ * Adding words is not thread-safe, but once filled, a table can be read by
+ * several threads.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class WordTable {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The id returned for words that are not in the table.
+   */
+  public static final int NO_ID = -1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The lower-cased words, by slot, or <code>null</code> for empty slots.
+   */
+  private String[] words;
+
+  /**
+   * The case-insensitive hash code of the word in each slot.
+   */
+  private int[] hashes;
+
+  /**
+   * The id of the word in each slot.
+   */
+  private int[] ids;
+
+  private int size;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates an empty table.
+   */
+  public WordTable() {
+    this(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Creates an empty table for about the given number of words.
+   * @param expectedSize The expected number of words
+   */
+  public WordTable(final int expectedSize) {
+    this.allocate(Math.max(INITIAL_CAPACITY,
+        Integer.highestOneBit(Math.max(1, expectedSize) * 2 - 1) * 2));
+    this.size = 0;
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of words in the table.
+   * @return The number, which is also the next id
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the id of a word, ignoring case.
+   * @param word The word
+   * @return The id or {@link #NO_ID} if the word is not in the table
+   */
+  public int indexOf(final CharSequence word) {
+    final int hash = TextSpan.hashCodeIgnoreCase(word);
+    final int mask = this.words.length - 1;
+    for (int slot = mix(hash) & mask; this.words[slot] != null;
+        slot = (slot + 1) & mask) {
+      if (this.hashes[slot] == hash
+          && TextSpan.contentEqualsIgnoreCase(this.words[slot], word)) {
+        return this.ids[slot];
+      }
+    }
+    return NO_ID;
+  }
+
+  /**
+   * Gets the words in the table.
+   * @return The lower-cased words, in the order of their ids
+   */
+  public List<String> getWords() {
+    final String[] words = new String[this.size];
+    for (int slot = 0; slot < this.words.length; ++slot) {
+      if (this.words[slot] != null) {
+        words[this.ids[slot]] = this.words[slot];
+      }
+    }
+    return Arrays.asList(words);
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Adds a word if it is not yet in the table (ignoring case).
+   * @param word The word
+   * @return The id of the word, which is {@link #size()} minus one if the
+   * word was added
+   */
+  public int add(final CharSequence word) {
+    Objects.requireNonNull(word);
+    final int existing = this.indexOf(word);
+    if (existing != NO_ID) {
+      return existing;
+    }
+    if ((this.size + 1) * 2 > this.words.length) {
+      this.grow();
+    }
+    final char[] lowerCased = new char[word.length()];
+    for (int c = 0; c < lowerCased.length; ++c) {
+      lowerCased[c] = Character.toLowerCase(word.charAt(c));
+    }
+    final int id = this.size++;
+    this.insert(new String(lowerCased), TextSpan.hashCodeIgnoreCase(word), id);
+    return id;
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  private void allocate(final int capacity) {
+    this.words = new String[capacity];
+    this.hashes = new int[capacity];
+    this.ids = new int[capacity];
+  }
+
+  private void grow() {
+    final String[] words = this.words;
+    final int[] hashes = this.hashes;
+    final int[] ids = this.ids;
+    this.allocate(words.length * 2);
+    for (int slot = 0; slot < words.length; ++slot) {
+      if (words[slot] != null) {
+        this.insert(words[slot], hashes[slot], ids[slot]);
+      }
+    }
+  }
+
+  private void insert(final String word, final int hash, final int id) {
+    final int mask = this.words.length - 1;
+    int slot = mix(hash) & mask;
+    while (this.words[slot] != null) {
+      slot = (slot + 1) & mask;
+    }
+    this.words[slot] = word;
+    this.hashes[slot] = hash;
+    this.ids[slot] = id;
+  }
+
+  /**
+   * Spreads the bits of a hash code so that similar words do not cluster.
+   * @param hash The hash code
+   * @return The mixed hash code
+   */
+  private static int mix(final int hash) {
+    final int mixed = hash * 0x9E3779B9;
+    return mixed ^ (mixed >>> 16);
+  }
+
+  @Override
+  public String toString() {
+    final String[] words = Arrays.stream(this.words)
+        .filter(Objects::nonNull).toArray(String[]::new);
+    return "WordTable" + Arrays.toString(words);
+  }
+
+}
@@ -0,0 +1,188 @@
+package de.webis.writing.discourse;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.apache.uima.jcas.JCas;
+
+import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+import de.webis.writing.TextSpan;
+import de.webis.writing.TokenView;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
+import de.webis.writing.types.DiscourseMarker;
+
+/**
+ * Annotates the {@link DiscourseMarker}s of a {@link DiscourseMarkerLexicon}
+ * in one pass over the tokens of each sentence.
+ * <p>
+ * Where markers overlap, the one that starts first and, among those, the
+ * longest one is annotated. Markers do not span sentences.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class DiscourseMarkerAnalysisEngine
+extends AnalysisEngineComponent implements LayerComponent {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(DiscourseMarkerAnalysisEngine.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Configuration option specifying the path of the DiMLex XML file.
+   */
+  public static final String PROPERTY_LEXICON_PATH = "lexicon";
+
+  /**
+   * Default value for {@link #PROPERTY_LEXICON_PATH}.
+   */
+  private static final String DEFAULT_LEXICON_PATH =
+      "src/main/resources/de/webis/lexicon/en_dimlex.xml";
+
+  /**
+   * Configuration option specifying whether the lemmas of tokens are matched
+   * instead of their texts, where available.
+   */
+  public static final String PROPERTY_MATCH_LEMMAS = "matchLemmas";
+
+  /**
+   * Default value for {@link #PROPERTY_MATCH_LEMMAS}.
+   */
+  private static final String DEFAULT_MATCH_LEMMAS = "false";
+
+  /**
+   * Orders matches by their first token and then by descending length.
+   */
+  private static final Comparator<int[]> MATCH_ORDER =
+      Comparator.<int[]>comparingInt(match -> match[0])
+        .thenComparingInt(match -> -match[1]);
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private DiscourseMarkerLexicon lexicon;
+
+  private boolean matchLemmas;
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the lexicon of markers.
+   * @return The lexicon or <code>null</code> if not yet configured
+   */
+  public DiscourseMarkerLexicon getLexicon() {
+    return this.lexicon;
+  }
+
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    if (this.matchLemmas) {
+      return Set.of(Layer.TOKEN, Layer.SENTENCE, Layer.LEMMA);
+    }
+    return Set.of(Layer.TOKEN, Layer.SENTENCE);
+  }
+
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of();
+  }
+
+  // -------------------------------------------------------------------------
+  // CONFIGURATION
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void configure(final Properties properties) {
+    try {
+      this.lexicon = new DiscourseMarkerLexicon(Paths.get(
+          properties.getProperty(PROPERTY_LEXICON_PATH, DEFAULT_LEXICON_PATH)));
+    } catch (final IOException e) {
+      LOG.severe(e.toString());
+      throw new UncheckedIOException(e);
+    }
+    this.matchLemmas = Boolean.parseBoolean(
+        properties.getProperty(PROPERTY_MATCH_LEMMAS, DEFAULT_MATCH_LEMMAS));
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void accept(final JCas jCas) {
+    final TokenView view = TokenView.of(jCas);
+    final TextSpan text = new TextSpan();
+    final List<int[]> matches = new ArrayList<int[]>();
+    if (view.getNumSentences() == 0) {
+      this.annotate(jCas, view, 0, view.size(), text, matches);
+    } else {
+      for (int s = 0; s < view.getNumSentences(); ++s) {
+        this.annotate(jCas, view, view.getSentenceFirstToken(s),
+            view.getSentenceTokenLimit(s), text, matches);
+      }
+    }
+  }
+
+  /**
+   * Annotates the markers in a sequence of tokens.
+   * @param jCas The JCas
+   * @param view The view of the JCas
+   * @param first The index of the first token
+   * @param limit The index after the last token
+   * @param text Span to reuse for the token texts
+   * @param matches List to reuse for the matches
+   */
+  private void annotate(
+      final JCas jCas, final TokenView view, final int first, final int limit,
+      final TextSpan text, final List<int[]> matches) {
+    final DiscourseMarkerLexicon lexicon = this.getLexicon();
+    matches.clear();
+    int state = DiscourseMarkerLexicon.START;
+    for (int t = first; t < limit; ++t) {
+      final String lemma = this.matchLemmas ? view.getLemma(t) : null;
+      state = lexicon.next(state, lemma != null ? lemma : view.getText(t, text));
+      for (int matched = state; matched != DiscourseMarkerLexicon.START;
+          matched = lexicon.getShorterMarkerState(matched)) {
+        final int marker = lexicon.getMarker(matched);
+        if (marker != DiscourseMarkerLexicon.NO_MARKER) {
+          final int length = lexicon.getMarkerLength(marker);
+          matches.add(new int[] { t + 1 - length, length, marker });
+        }
+      }
+    }
+
+    matches.sort(MATCH_ORDER);
+    int end = first;
+    for (final int[] match : matches) {
+      if (match[0] >= end) {
+        end = match[0] + match[1];
+        final int marker = match[2];
+        final DiscourseMarker annotation = new DiscourseMarker(
+            jCas, view.getBegin(match[0]), view.getEnd(end - 1));
+        annotation.setIsPhrase(match[1] > 1);
+        annotation.setDiscourseMarker(lexicon.getMarkerWord(marker));
+        annotation.setMarkerType(lexicon.getMarkerType(marker));
+        annotation.addToIndexes();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,344 @@
+package de.webis.writing.discourse;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.logging.Logger;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import de.webis.writing.WordTable;
+
+/**
+ * The discourse markers (connectives) of a DiMLex lexicon, compiled into an
+ * Aho-Corasick automaton over word sequences.
+ * <p>
+ * Each word of any marker is a symbol of the automaton, and the transitions
+ * of all states are precomputed in one dense table. Matching therefore takes
+ * one {@link WordTable} lookup and one array access per word, independent of
+ * the number of markers, and finds all markers ending at each word.
+ * </p><p>
+ * Only continuous markers are compiled; the few discontinuous ones (like
+ * <i>either ... or</i>) are skipped. Words are matched ignoring case.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class DiscourseMarkerLexicon {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(DiscourseMarkerLexicon.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The state of the automaton before any word was matched.
+   */
+  public static final int START = 0;
+
+  /**
+   * Marks states without marker.
+   */
+  public static final int NO_MARKER = -1;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The id of each word that occurs in a marker.
+   */
+  private final WordTable symbols;
+
+  /**
+   * The next state for each state and symbol, row-major by state.
+   */
+  private final int[] transitions;
+
+  /**
+   * The longest marker that ends in each state, or {@link #NO_MARKER}.
+   */
+  private final int[] markers;
+
+  /**
+   * The next shorter state with a marker among the suffixes of each state,
+   * or {@link #START}.
+   */
+  private final int[] outputLinks;
+
+  /**
+   * The canonical word of each marker's entry.
+   */
+  private final String[] markerWords;
+
+  /**
+   * The type of each marker's entry.
+   */
+  private final String[] markerTypes;
+
+  /**
+   * The number of words of each marker.
+   */
+  private final int[] markerLengths;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Compiles the markers of a DiMLex XML file.
+   * <p>
+   * The type of each marker is the top-level class (like
+   * <code>Temporal</code> or <code>Comparison</code>) of the PDTB sense that
+   * is most frequent for its entry, or <code>null</code> if the entry has no
+   * sense.
+   * </p>
+   * @param dimlex The path of the XML file
+   * @throws IOException If the file could not be read or parsed
+   */
+  public DiscourseMarkerLexicon(final Path dimlex) throws IOException {
+    this(parse(dimlex));
+  }
+
+  /**
+   * Compiles markers.
+   * @param markers The markers as space-separated words, mapped to their
+   * canonical word and type
+   */
+  protected DiscourseMarkerLexicon(final Map<String, String[]> markers) {
+    this.symbols = new WordTable();
+    this.markerWords = new String[markers.size()];
+    this.markerTypes = new String[markers.size()];
+    this.markerLengths = new int[markers.size()];
+
+    // trie
+    final Map<Long, Integer> children = new HashMap<Long, Integer>();
+    final List<Integer> trieMarkers = new ArrayList<Integer>();
+    trieMarkers.add(NO_MARKER);
+    int marker = 0;
+    for (final Map.Entry<String, String[]> entry : markers.entrySet()) {
+      final String[] words = entry.getKey().split(" ");
+      int state = START;
+      for (final String word : words) {
+        final long edge = edge(state, this.symbols.add(word));
+        final Integer child = children.get(edge);
+        if (child == null) {
+          children.put(edge, trieMarkers.size());
+          state = trieMarkers.size();
+          trieMarkers.add(NO_MARKER);
+        } else {
+          state = child;
+        }
+      }
+      trieMarkers.set(state, marker);
+      this.markerWords[marker] = entry.getValue()[0];
+      this.markerTypes[marker] = entry.getValue()[1];
+      this.markerLengths[marker] = words.length;
+      ++marker;
+    }
+
+    // automaton, breadth-first so that failure states are complete
+    final int numStates = trieMarkers.size();
+    final int numSymbols = this.symbols.size();
+    this.transitions = new int[numStates * numSymbols];
+    this.markers = trieMarkers.stream().mapToInt(Integer::intValue).toArray();
+    this.outputLinks = new int[numStates];
+    final int[] failures = new int[numStates];
+    final Queue<Integer> queue = new ArrayDeque<Integer>();
+    queue.add(START);
+    while (!queue.isEmpty()) {
+      final int state = queue.poll();
+      for (int symbol = 0; symbol < numSymbols; ++symbol) {
+        final Integer child = children.get(edge(state, symbol));
+        final int fallback = state == START
+            ? START : this.transitions[failures[state] * numSymbols + symbol];
+        if (child == null) {
+          this.transitions[state * numSymbols + symbol] = fallback;
+        } else {
+          this.transitions[state * numSymbols + symbol] = child;
+          failures[child] = fallback;
+          this.outputLinks[child] = this.markers[fallback] != NO_MARKER
+              ? fallback : this.outputLinks[fallback];
+          queue.add(child);
+        }
+      }
+    }
+    LOG.info("Compiled " + this.markerWords.length + " discourse markers of "
+        + numSymbols + " words into " + numStates + " states");
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the number of markers.
+   * @return The number
+   */
+  public int size() {
+    return this.markerWords.length;
+  }
+
+  /**
+   * Gets the state after matching a word.
+   * @param state The state before the word
+   * @param word The word, in any case
+   * @return The state after the word, which is {@link #START} if the word
+   * does not occur in any marker
+   */
+  public int next(final int state, final CharSequence word) {
+    final int symbol = this.symbols.indexOf(word);
+    if (symbol == WordTable.NO_ID) {
+      return START;
+    }
+    return this.transitions[state * this.symbols.size() + symbol];
+  }
+
+  /**
+   * Gets the longest marker that ends in a state.
+   * @param state The state
+   * @return The marker or {@link #NO_MARKER}
+   * @see #getShorterMarkerState(int)
+   */
+  public int getMarker(final int state) {
+    return this.markers[state];
+  }
+
+  /**
+   * Gets the state of the next shorter marker that ends with the words
+   * matched by a state.
+   * @param state The state
+   * @return The state, for which {@link #getMarker(int)} is not
+   * {@link #NO_MARKER}, or {@link #START} if there is none
+   */
+  public int getShorterMarkerState(final int state) {
+    return this.outputLinks[state];
+  }
+
+  /**
+   * Gets the canonical word of the entry of a marker.
+   * @param marker The marker
+   * @return The word
+   */
+  public String getMarkerWord(final int marker) {
+    return this.markerWords[marker];
+  }
+
+  /**
+   * Gets the type of the entry of a marker.
+   * @param marker The marker
+   * @return The type or <code>null</code> if unknown
+   */
+  public String getMarkerType(final int marker) {
+    return this.markerTypes[marker];
+  }
+
+  /**
+   * Gets the number of words of a marker.
+   * @param marker The marker
+   * @return The number
+   */
+  public int getMarkerLength(final int marker) {
+    return this.markerLengths[marker];
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  private static long edge(final int state, final int symbol) {
+    return ((long) state << 32) | symbol;
+  }
+
+  /**
+   * Reads the continuous markers of a DiMLex XML file.
+   * @param dimlex The path of the XML file
+   * @return The markers as lower-cased, space-separated words, mapped to
+   * their canonical word and type
+   * @throws IOException If the file could not be read or parsed
+   */
+  private static Map<String, String[]> parse(final Path dimlex)
+  throws IOException {
+    final Document document;
+    try {
+      document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .parse(dimlex.toFile());
+    } catch (final ParserConfigurationException | SAXException e) {
+      throw new IOException("Could not parse " + dimlex, e);
+    }
+
+    final Map<String, String[]> markers = new LinkedHashMap<String, String[]>();
+    final NodeList entries = document.getElementsByTagName("entry");
+    for (int e = 0; e < entries.getLength(); ++e) {
+      final Element entry = (Element) entries.item(e);
+      final String[] marker =
+          new String[] { entry.getAttribute("word"), getType(entry) };
+      final NodeList orths = entry.getElementsByTagName("orth");
+      for (int o = 0; o < orths.getLength(); ++o) {
+        final Element orth = (Element) orths.item(o);
+        if (orth.getAttribute("type").equals("discont")) {
+          continue;
+        }
+        final List<String> words = new ArrayList<String>();
+        final NodeList parts = orth.getElementsByTagName("part");
+        for (int p = 0; p < parts.getLength(); ++p) {
+          words.addAll(Arrays.asList(parts.item(p).getTextContent().trim()
+              .toLowerCase(Locale.ROOT).split("\\s+")));
+        }
+        words.removeAll(Collections.singleton(""));
+        if (!words.isEmpty()) {
+          markers.putIfAbsent(String.join(" ", words), marker);
+        }
+      }
+    }
+    return markers;
+  }
+
+  /**
+   * Gets the top-level class of the most frequent PDTB sense of an entry.
+   * @param entry The entry element
+   * @return The class or <code>null</code> if the entry has no sense
+   */
+  private static String getType(final Element entry) {
+    final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+    final NodeList relations = entry.getElementsByTagName("pdtb2_relation");
+    for (int r = 0; r < relations.getLength(); ++r) {
+      final Element relation = (Element) relations.item(r);
+      final String sense = relation.getAttribute("sense").split("\\.")[0];
+      int frequency = 0;
+      try {
+        frequency = Integer.parseInt(relation.getAttribute("pdtb_freq"));
+      } catch (final NumberFormatException e) {
+        // count as 0
+      }
+      if (!sense.isEmpty()) {
+        frequencies.merge(sense, frequency, Integer::sum);
+      }
+    }
+    return frequencies.entrySet().stream()
+        .max(Map.Entry.comparingByValue())
+        .map(Map.Entry::getKey).orElse(null);
+  }
+
+}
@@ -0,0 +1,62 @@
+package de.webis.writing.pipeline;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.apache.uima.jcas.JCas;
+
+/**
+ * Registry of the caches that are kept outside of a JCas for the document it
+ * currently holds, like the {@link de.webis.writing.TokenView}.
+ * <p>
+ * Such caches map each JCas weakly to its entry, and entries that refer to
+ * feature structures of the JCas are held softly, so that they do not keep
+ * the JCas alive. To free the entries right away instead of once memory gets
+ * low, each cache {@link #register(Consumer)}s how to drop its entry for a
+ * JCas, and the {@link PrunedCompositeAnalysisEngineComponent}
+ * {@link #release(JCas)}es the JCas once all components processed its
+ * document. Code that runs components on its own should call
+ * {@link #release(JCas)} as well.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class DocumentCaches {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  private static final List<Consumer<JCas>> CACHES =
+      new CopyOnWriteArrayList<Consumer<JCas>>();
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  private DocumentCaches() { }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Registers a cache.
+   * @param release Drops the entry of the cache for a JCas, if any
+   */
+  public static void register(final Consumer<JCas> release) {
+    CACHES.add(release);
+  }
+
+  /**
+   * Drops the entries of all registered caches for a JCas.
+   * @param jCas The JCas, whose document was processed completely
+   */
+  public static void release(final JCas jCas) {
+    for (final Consumer<JCas> release : CACHES) {
+      release.accept(jCas);
+    }
+  }
+
+}
@@ -0,0 +1,39 @@
+package de.webis.writing.pipeline;
+
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+
+/**
+ * Layers of annotations that analysis engine components require or produce.
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ * @see LayerComponent
+ */
+public enum Layer {
+
+  /**
+   * {@link Token} annotations.
+   */
+  TOKEN,
+
+  /**
+   * {@link Sentence} annotations.
+   */
+  SENTENCE,
+
+  /**
+   * The part-of-speech tags of {@link Token}s.
+   */
+  POS,
+
+  /**
+   * The lemmas of {@link Token}s.
+   */
+  LEMMA,
+
+  /**
+   * The dependency parents and labels of {@link Token}s.
+   */
+  DEPENDENCY
+
+}
@@ -0,0 +1,57 @@
+package de.webis.writing.pipeline;
+
+import java.util.Set;
+
+/**
+ * A component that declares which annotation {@link Layer}s it requires and
+ * which it produces.
+ * <p>
+ * The {@link PrunedCompositeAnalysisEngineComponent} uses these declarations
+ * to skip components that produce only layers no later component requires.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public interface LayerComponent {
+
+  /**
+   * Gets the layers that have to be annotated before this component is run.
+   * @return The layers
+   */
+  public Set<Layer> getRequiredLayers();
+
+  /**
+   * Gets the layers that this component annotates.
+   * @return The layers, which are empty for components that only assess
+   * the text
+   */
+  public Set<Layer> getProducedLayers();
+
+  /**
+   * Informs this component which layers are actually required by later
+   * components, so that it can skip producing others.
+   * <p>
+   * This method is called at most once, before the component is run. The
+   * default implementation ignores the information.
+   * </p>
+   * @param neededLayers The layers that are required later on, including
+   * ones that this component does not produce
+   */
+  public default void setNeededLayers(final Set<Layer> neededLayers) {
+    // nothing to do by default
+  }
+
+  /**
+   * Loads the resources of this component and runs them on a short sample,
+   * so that the first document does not pay for loading and compilation.
+   * <p>
+   * This method is called at most once, after
+   * {@link #setNeededLayers(Set)}, and only if warm-up is enabled for the
+   * pipeline. The default implementation does nothing.
+   * </p>
+   */
+  public default void warmUp() {
+    // nothing to do by default
+  }
+
+}
@@ -0,0 +1,222 @@
+package de.webis.writing.pipeline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import org.apache.uima.jcas.JCas;
+
+import de.aitools.commons.uima.pipeline.AnalysisEngineComponent;
+
+/**
+ * Pipeline that runs several analysis engine components in sequence, but
+ * skips those components whose annotations are not required by later ones.
+ * <p>
+ * The components are specified like for the composite analysis engine
+ * component of the aitools: the property {@link #PROPERTY_COMPONENTS} lists
+ * their names, separated by spaces, and each name is used as the property to
+ * create the component from.
+ * </p><p>
+ * Components that implement {@link LayerComponent} declare the annotation
+ * layers they require and produce. Going backwards through the pipeline, a
+ * component that produces layers is skipped if none of them is required by a
+ * later (non-skipped) component. Otherwise, it is told which layers are
+ * needed later on (see {@link LayerComponent#setNeededLayers(Set)}).
+ * Components that do not declare their layers are always run and are assumed
+ * to require all layers.
+ * </p><p>
+ * If {@link #PROPERTY_WARM_UP} is set, the remaining components are
+ * {@link LayerComponent#warmUp()}ed when the pipeline is configured.
+ * </p><p>
+ * Once all components processed a document, the {@link DocumentCaches} of
+ * its JCas are released. Closing the pipeline closes all components that are
+ * {@link AutoCloseable}.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class PrunedCompositeAnalysisEngineComponent
+extends AnalysisEngineComponent implements AutoCloseable {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(PrunedCompositeAnalysisEngineComponent.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The parameter to specify the names of the components, separated by
+   * spaces, in the order in which they are run.
+   */
+  public static final String PROPERTY_COMPONENTS = "components";
+
+  /**
+   * The parameter to specify whether the components are warmed up when the
+   * pipeline is configured.
+   */
+  public static final String PROPERTY_WARM_UP = "warmUp";
+
+  /**
+   * Default value for {@link #PROPERTY_WARM_UP}.
+   */
+  private static final String DEFAULT_WARM_UP = "false";
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private List<Consumer<JCas>> components;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTOR
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates a new pipeline.
+   * <p>
+   * The pipeline has to be {@link #configure(Properties)}d before it can be
+   * used.
+   * </p>
+   */
+  public PrunedCompositeAnalysisEngineComponent() {
+    this.components = Collections.emptyList();
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the components that are run, in order.
+   * @return The components that were not skipped
+   */
+  public List<Consumer<JCas>> getComponents() {
+    return this.components;
+  }
+
+  // -------------------------------------------------------------------------
+  // CONFIGURATION
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void configure(final Properties properties) {
+    final String[] names = Objects.requireNonNull(
+        properties.getProperty(PROPERTY_COMPONENTS),
+        PROPERTY_COMPONENTS).trim().split("\\s+");
+    final List<Consumer<JCas>> components = new ArrayList<>();
+    for (final String name : names) {
+      components.add(AnalysisEngineComponent.create(name, properties));
+    }
+    this.setComponents(prune(components, names));
+    if (Boolean.parseBoolean(
+        properties.getProperty(PROPERTY_WARM_UP, DEFAULT_WARM_UP))) {
+      this.warmUp();
+    }
+  }
+
+  /**
+   * Sets the components that are run, without pruning them.
+   * @param components The components, in order
+   */
+  public void setComponents(final List<Consumer<JCas>> components) {
+    this.components =
+        Collections.unmodifiableList(new ArrayList<>(components));
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  /**
+   * Warms up all components that are run.
+   * @see LayerComponent#warmUp()
+   */
+  public void warmUp() {
+    for (final Consumer<JCas> component : this.getComponents()) {
+      if (component instanceof LayerComponent) {
+        ((LayerComponent) component).warmUp();
+      }
+    }
+  }
+
+  @Override
+  public void accept(final JCas jCas) {
+    for (final Consumer<JCas> component : this.getComponents()) {
+      component.accept(jCas);
+    }
+    DocumentCaches.release(jCas);
+  }
+
+  /**
+   * Closes all components that are run and {@link AutoCloseable}, like those
+   * that hold models or threads.
+   * @throws Exception If a component could not be closed, after trying to
+   * close all others
+   */
+  @Override
+  public void close() throws Exception {
+    Exception exception = null;
+    for (final Consumer<JCas> component : this.getComponents()) {
+      if (component instanceof AutoCloseable) {
+        try {
+          ((AutoCloseable) component).close();
+        } catch (final Exception e) {
+          if (exception == null) {
+            exception = e;
+          } else {
+            exception.addSuppressed(e);
+          }
+        }
+      }
+    }
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /**
+   * Removes the components that produce only layers no later component
+   * requires.
+   * @param components The components, in order
+   * @param names The names of the components, for logging
+   * @return The components to run, in order
+   */
+  protected static List<Consumer<JCas>> prune(
+      final List<Consumer<JCas>> components, final String[] names) {
+    final Set<Layer> neededLayers = EnumSet.noneOf(Layer.class);
+    final List<Consumer<JCas>> pruned = new ArrayList<>();
+    for (int c = components.size() - 1; c >= 0; --c) {
+      final Consumer<JCas> component = components.get(c);
+      if (component instanceof LayerComponent) {
+        final LayerComponent layerComponent = (LayerComponent) component;
+        final Set<Layer> producedLayers = layerComponent.getProducedLayers();
+        if (!producedLayers.isEmpty()
+            && Collections.disjoint(producedLayers, neededLayers)) {
+          LOG.info("Skipping component " + names[c] + " as no later "
+              + "component requires any of " + producedLayers);
+          continue;
+        }
+        if (!producedLayers.isEmpty()) {
+          layerComponent.setNeededLayers(EnumSet.copyOf(neededLayers));
+        }
+        neededLayers.addAll(layerComponent.getRequiredLayers());
+      } else {
+        neededLayers.addAll(EnumSet.allOf(Layer.class));
+      }
+      pruned.add(0, component);
+    }
+    return pruned;
+  }
+
+}
@@ -0,0 +1,310 @@
+package de.webis.writing.suggestions;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.apache.uima.cas.text.AnnotationIndex;
+
+import de.aitools.commons.uima.core.Sentence;
+import de.aitools.commons.uima.core.Token;
+import de.webis.writing.ScoreBatch;
+import de.webis.writing.Scores;
+import de.webis.writing.TextSpan;
+import de.webis.writing.TokenView;
+import de.webis.writing.WordTable;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
+import de.webis.writing.types.Score;
+import de.webis.writing.types.Suggestion;
+
+/**
+ * An analysis engine that scores units based on their relative frequency
+ * compared to their ConceptNet synonyms, like the
+ * {@link NetspeakAnalysisEngine}, but offline.
+ * <p>
+ * The synonyms and frequencies are looked up in a {@link SynonymIndex} that
+ * is built once per process. A token is looked up by its text and, if that
+ * is not in the index, by its lemma (if lemmas were annotated). As the
+ * frequency lists contain only common words, words that are not in them
+ * count as less frequent than all listed words, and only synonyms that are
+ * more frequent than the token are suggested.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class ConceptNetAnalysisEngine
+extends AbstractUnitInContextAnalysisEngine<Sentence, Token>
+implements LayerComponent {
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Property to specify the path of the synonyms CSV file.
+   */
+  public static final String PROPERTY_SYNONYMS_PATH = "synonyms";
+
+  /**
+   * Default value for {@link #PROPERTY_SYNONYMS_PATH}.
+   */
+  protected static final String DEFAULT_SYNONYMS_PATH =
+      "src/main/resources/de/webis/lexicon/synonyms-conceptnet.csv";
+
+  /**
+   * Property to specify the paths of the frequency lists, separated by
+   * spaces and in order of priority.
+   */
+  public static final String PROPERTY_FREQUENCIES_PATHS = "frequencies";
+
+  /**
+   * Default value for {@link #PROPERTY_FREQUENCIES_PATHS}.
+   */
+  protected static final String DEFAULT_FREQUENCIES_PATHS =
+      "src/main/resources/de/webis/frequencies/frequencies_bnc_sorted.csv "
+      + "src/main/resources/de/webis/frequencies/frequencies_short.csv";
+
+  /**
+   * Property to specify the maximum number of suggestions per token.
+   */
+  public static final String PROPERTY_MAX_SUGGESTIONS = "maxSuggestions";
+
+  /**
+   * Default value for {@link #PROPERTY_MAX_SUGGESTIONS}.
+   */
+  protected static final int DEFAULT_MAX_SUGGESTIONS = 10;
+
+  /**
+   * Property to specify the threshold that determines whether a score is
+   * assigned to a token.
+   * @see #getMaximumScore()
+   */
+  public static final String PROPERTY_MAXIMUM_SCORE = "maximumScore";
+
+  /**
+   * Default value for {@link #PROPERTY_MAXIMUM_SCORE}.
+   */
+  protected static final double DEFAULT_MAXIMUM_SCORE = 0.9;
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private SynonymIndex index;
+
+  private int maxSuggestions;
+
+  private double maximumScore;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Creates a new analysis engine with default settings.
+   * <p>
+   * The synonym index is built when the engine is configured.
+   * </p>
+   */
+  public ConceptNetAnalysisEngine() {
+    super(Sentence.class, Token.class);
+    this.index = null;
+    this.setMaxSuggestions(DEFAULT_MAX_SUGGESTIONS);
+    this.setMaximumScore(DEFAULT_MAXIMUM_SCORE);
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the index of synonyms.
+   * @return The index or <code>null</code> if not yet configured
+   */
+  public SynonymIndex getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Gets the maximum number of suggestions per token.
+   * @return The maximum number
+   */
+  public int getMaxSuggestions() {
+    return this.maxSuggestions;
+  }
+
+  /**
+   * Gets the threshold that determines whether a score is assigned to a token.
+   * <p>
+   * The frequency of the token divided by the frequency of its most-frequent
+   * synonym (= the score of the token) must be lower than this threshold for
+   * it to be added as a score.
+   * </p>
+   * @return The threshold
+   */
+  public double getMaximumScore() {
+    return this.maximumScore;
+  }
+
+  /**
+   * Gets the string that is used as the name for the scores that this analysis
+   * engine assigns.
+   * @return The name
+   */
+  public String getScoreName() {
+    return "ConceptNetSynonyms";
+  }
+
+  /**
+   * Gets the string that is used as the name for the explanation of a
+   * suggestion that holds its source.
+   * @return The name
+   */
+  public String getSourceName() {
+    return "Source";
+  }
+
+  // -------------------------------------------------------------------------
+  // SETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Sets the index of synonyms.
+   * @param index The index
+   */
+  public void setIndex(final SynonymIndex index) {
+    this.index = index;
+  }
+
+  /**
+   * Sets the maximum number of suggestions per token.
+   * @param maxSuggestions The maximum number
+   */
+  public void setMaxSuggestions(final int maxSuggestions) {
+    this.maxSuggestions = maxSuggestions;
+  }
+
+  /**
+   * Sets the threshold that determines whether a score is assigned to a token.
+   * @param maximumScore The threshold
+   * @see #getMaximumScore()
+   */
+  public void setMaximumScore(final double maximumScore) {
+    this.maximumScore = maximumScore;
+  }
+
+  // -------------------------------------------------------------------------
+  // LAYERS
+  // -------------------------------------------------------------------------
+
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return Set.of(Layer.TOKEN, Layer.SENTENCE);
+  }
+
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of();
+  }
+
+  // -------------------------------------------------------------------------
+  // CONFIGURATION
+  // -------------------------------------------------------------------------
+
+  @Override
+  public void configure(final Properties properties) {
+    super.configure(properties);
+    final Path synonymsPath = Paths.get(properties.getProperty(
+        PROPERTY_SYNONYMS_PATH, DEFAULT_SYNONYMS_PATH));
+    final List<Path> frequenciesPaths = new ArrayList<>();
+    for (final String frequenciesPath : properties.getProperty(
+        PROPERTY_FREQUENCIES_PATHS, DEFAULT_FREQUENCIES_PATHS).split("\\s+")) {
+      if (!frequenciesPath.isEmpty()) {
+        frequenciesPaths.add(Paths.get(frequenciesPath));
+      }
+    }
+    try {
+      this.setIndex(SynonymIndex.open(synonymsPath, frequenciesPaths));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (properties.containsKey(PROPERTY_MAX_SUGGESTIONS)) {
+      this.setMaxSuggestions(Integer.parseInt(
+          properties.getProperty(PROPERTY_MAX_SUGGESTIONS)));
+    }
+    if (properties.containsKey(PROPERTY_MAXIMUM_SCORE)) {
+      this.setMaximumScore(Double.parseDouble(
+          properties.getProperty(PROPERTY_MAXIMUM_SCORE)));
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // FUNCTIONALITY
+  // -------------------------------------------------------------------------
+
+  @Override
+  protected List<Token> getContextUnits(
+      final AnnotationIndex<Token> unitIndex, final Sentence context) {
+    return TokenView.of(context.getJCas()).getTokens(context);
+  }
+
+  @Override
+  protected void processUnitInContext(
+      final Sentence context,
+      final List<Token> contextUnits, final int contextUnitsIndex) {
+    final SynonymIndex index = this.getIndex();
+    final Token token = contextUnits.get(contextUnitsIndex);
+    final int word = this.indexOf(token);
+    if (word == WordTable.NO_ID || index.getNumSynonyms(word) == 0) {
+      return;
+    }
+
+    final double originalFrequency = index.getFrequency(word);
+    final double highestFrequency =
+        index.getFrequency(index.getSynonym(word, 0));
+    if (highestFrequency <= originalFrequency) { return; }
+    final double originalScore = originalFrequency / highestFrequency;
+    if (originalScore >= this.getMaximumScore()) { return; }
+
+    final String scoreName = this.getScoreName();
+    final ScoreBatch batch = Scores.batch(token);
+    batch.add(scoreName, originalScore);
+    final int numSuggestions =
+        Math.min(index.getNumSynonyms(word), this.getMaxSuggestions());
+    for (int rank = 0; rank < numSuggestions; ++rank) {
+      final int synonym = index.getSynonym(word, rank);
+      final double frequency = index.getFrequency(synonym);
+      if (frequency <= originalFrequency) { break; }
+      final Suggestion suggestion = batch.suggest(index.getText(synonym));
+      final Score score =
+          batch.add(suggestion, scoreName, frequency / highestFrequency);
+      batch.explain(score, this.getSourceName(), "ConceptNet");
+    }
+    batch.commit();
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the id of a token in the index, by its text or else its lemma.
+   * @param token The token
+   * @return The id or {@link WordTable#NO_ID} if neither is in the index
+   */
+  protected int indexOf(final Token token) {
+    final int word = this.getIndex().indexOf(new TextSpan().set(token));
+    final String lemma = token.getLemma();
+    if (word == WordTable.NO_ID && lemma != null) {
+      return this.getIndex().indexOf(lemma);
+    }
+    return word;
+  }
+
+}
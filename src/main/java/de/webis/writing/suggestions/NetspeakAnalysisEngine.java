@@ -11,21 +11,26 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Scanner;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 
+import org.apache.uima.cas.text.AnnotationIndex;
+
 import de.aitools.commons.datastructures.Cache;
 import de.aitools.commons.uima.core.Sentence;
 import de.aitools.commons.uima.core.Token;
+import de.webis.writing.ScoreBatch;
 import de.webis.writing.Scores;
+import de.webis.writing.TokenView;
+import de.webis.writing.pipeline.Layer;
+import de.webis.writing.pipeline.LayerComponent;
 import de.webis.writing.suggestions.predicates.UnitInContextPredicate;
 import de.webis.writing.types.Score;
-import de.webis.writing.types.ScoredUnit;
 import de.webis.writing.types.Suggestion;
 
 
@@ -38,7 +43,8 @@ import de.webis.writing.types.Suggestion;
  * @author johannes.kiesel@uni-weimar.de
  */
 public class NetspeakAnalysisEngine
-extends AbstractUnitInContextAnalysisEngine<Sentence, Token> {
+extends AbstractUnitInContextAnalysisEngine<Sentence, Token>
+implements LayerComponent {
   
   // -------------------------------------------------------------------------
   // CONSTANTS
@@ -252,6 +258,20 @@ extends AbstractUnitInContextAnalysisEngine<Sentence, Token> {
     this.getNetspeakCache().clear();
   }
   
+  // -------------------------------------------------------------------------
+  // LAYERS
+  // -------------------------------------------------------------------------
+
+  @Override
+  public Set<Layer> getRequiredLayers() {
+    return Set.of(Layer.TOKEN, Layer.SENTENCE);
+  }
+
+  @Override
+  public Set<Layer> getProducedLayers() {
+    return Set.of();
+  }
+  
   // -------------------------------------------------------------------------
   // CONFIGURATION
   // -------------------------------------------------------------------------
@@ -281,6 +301,12 @@ extends AbstractUnitInContextAnalysisEngine<Sentence, Token> {
   // -------------------------------------------------------------------------
 
 
+  @Override
+  protected List<Token> getContextUnits(
+      final AnnotationIndex<Token> unitIndex, final Sentence context) {
+    return TokenView.of(context.getJCas()).getTokens(context);
+  }
+
   @Override
   protected void processUnitsInContext(
       final Sentence context, final List<Token> contextUnits) {
@@ -303,23 +329,23 @@ extends AbstractUnitInContextAnalysisEngine<Sentence, Token> {
           final double highestFrequency = synonyms.get(0).getFrequency();
           final double originalScore = originalFrequency / highestFrequency;
           if (originalScore >= maximumScore) { continue; }
-          final ScoredUnit token = Scores.getUnitFor(contextUnits.get(r));
-          Scores.add(token, this.getScoreName(), originalScore);
+          final ScoreBatch token = Scores.batch(contextUnits.get(r));
+          token.add(this.getScoreName(), originalScore);
           
 
           for (final Synonym synonym : result.getSynonyms()) {
             final double frequency = synonym.getFrequency();
             if (frequency < originalFrequency) { break; }
-            final Suggestion suggestion =
-                Scores.suggest(token, synonym.getText());
+            final Suggestion suggestion = token.suggest(synonym.getText());
             final Score score =
-                Scores.add(suggestion, scoreName, frequency / highestFrequency);
-            Scores.explain(score, requestUrlName, result.getRequestUrl());
-            Scores.explain(score, netspeakUrlName,
+                token.add(suggestion, scoreName, frequency / highestFrequency);
+            token.explain(score, requestUrlName, result.getRequestUrl());
+            token.explain(score, netspeakUrlName,
                 result.getRequestUrl().replaceAll(
                     "^.*query=",
                     "https://netspeak.org/#q=")); // TODO: parameter
           }
+          token.commit();
         }
       }
     } catch (final InterruptedException | ExecutionException e) {
@@ -390,29 +416,33 @@ extends AbstractUnitInContextAnalysisEngine<Sentence, Token> {
    */
   protected Request makeRequest(
       final List<Token> contextUnits, final int contextUnitsIndex) {
-    String before = "";
-    final ListIterator<Token> beforeIterator =
-        contextUnits.listIterator(contextUnitsIndex);
-    for (int remaining = this.getPreviousContextSize();
-        remaining > 0 && beforeIterator.hasPrevious();
-        --remaining) {
-      before = beforeIterator.previous().getCoveredText() + " " + before;
+    final Token token = contextUnits.get(contextUnitsIndex);
+    final String documentText = token.getJCas().getDocumentText();
+
+    // append the covered texts directly from the document text
+    final StringBuilder before = new StringBuilder();
+    final int first = Math.max(0, contextUnitsIndex
+        - Math.max(0, this.getPreviousContextSize()));
+    for (final Token previous
+        : contextUnits.subList(first, contextUnitsIndex)) {
+      before.append(documentText, previous.getBegin(), previous.getEnd())
+        .append(' ');
     }
 
     final String original =
-        contextUnits.get(contextUnitsIndex).getCoveredText();
-
-    String after = "";
-    final ListIterator<Token> afterIterator =
-        contextUnits.listIterator(contextUnitsIndex + 1);
-    for (int remaining = this.getFollowingContextSize();
-        remaining > 0 && afterIterator.hasNext();
-        --remaining) {
-      after = after + " " + afterIterator.next().getCoveredText();
+        documentText.substring(token.getBegin(), token.getEnd());
+
+    final StringBuilder after = new StringBuilder();
+    final int limit = Math.min(contextUnits.size(), contextUnitsIndex + 1
+        + Math.max(0, this.getFollowingContextSize()));
+    for (final Token following
+        : contextUnits.subList(contextUnitsIndex + 1, limit)) {
+      after.append(' ')
+        .append(documentText, following.getBegin(), following.getEnd());
     }
 
     try {
-      return new Request(before, original, after);
+      return new Request(before.toString(), original, after.toString());
     } catch (final IllegalArgumentException e) {
       return null; // empty original
     }
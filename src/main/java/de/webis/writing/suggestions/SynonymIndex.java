@@ -0,0 +1,311 @@
+package de.webis.writing.suggestions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import de.webis.writing.WordTable;
+
+/**
+ * An in-memory index of synonyms, ranked by word frequency.
+ * <p>
+ * All words (the head words and their synonyms) are stored once in a
+ * {@link WordTable}. The synonyms of each head word are a range of word ids
+ * in one packed int array, sorted by descending frequency when the index is
+ * built, so that a lookup is one case-insensitive hash table probe that does
+ * not allocate.
+ * </p><p>
+ * The synonyms are read from a CSV file with a header line and the columns
+ * <code>word</code> and <code>synonyms</code>, where the synonyms are a JSON
+ * array of strings (the ConceptNet export in
+ * <code>de/webis/lexicon/synonyms-conceptnet.csv</code>). The frequencies are
+ * read from files with one <code>word;count</code> line per word (further
+ * columns are ignored). Counts are divided by the largest count of their file
+ * and, for a word in several files, taken from the first one.
+ * </p>
+ *
+ * @author johannes.kiesel@uni-weimar.de
+ */
+public class SynonymIndex {
+
+  // -------------------------------------------------------------------------
+  // LOGGING
+  // -------------------------------------------------------------------------
+
+  private static final Logger LOG =
+      Logger.getLogger(SynonymIndex.class.getName());
+
+  // -------------------------------------------------------------------------
+  // CONSTANTS
+  // -------------------------------------------------------------------------
+
+  /**
+   * The indexes built in this process, by their real paths.
+   */
+  private static final Map<List<Path>, SynonymIndex> INDEXES =
+      new HashMap<List<Path>, SynonymIndex>();
+
+  // -------------------------------------------------------------------------
+  // MEMBERS
+  // -------------------------------------------------------------------------
+
+  private final WordTable words;
+
+  /**
+   * The text of each word, by id.
+   */
+  private final String[] texts;
+
+  /**
+   * The relative frequency of each word, by id, or 0 if unknown.
+   */
+  private final float[] frequencies;
+
+  /**
+   * The start of the synonyms of each word in the {@link #synonyms}, by id,
+   * plus the end of the synonyms of the last word.
+   */
+  private final int[] offsets;
+
+  /**
+   * The synonym ids of all words, one range per word.
+   */
+  private final int[] synonyms;
+
+  // -------------------------------------------------------------------------
+  // CONSTRUCTORS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Builds an index.
+   * @param synonymsFile The CSV file of synonyms
+   * @param frequencyFiles The files of word frequencies, in order of priority
+   * @throws IOException If a file could not be read
+   */
+  protected SynonymIndex(
+      final Path synonymsFile, final List<Path> frequencyFiles)
+  throws IOException {
+    this.words = new WordTable(1 << 17);
+    final List<String> texts = new ArrayList<String>();
+    final List<int[]> synonymsOfWords = new ArrayList<int[]>();
+    try (final BufferedReader reader = Files.newBufferedReader(synonymsFile);
+        final CSVParser parser =
+            CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+      for (final CSVRecord record : parser) {
+        final int word = this.add(record.get("word"), texts, synonymsOfWords);
+        final List<String> synonymTexts = parseArray(record.get("synonyms"));
+        final int[] synonyms = new int[synonymTexts.size()];
+        int numSynonyms = 0;
+        for (final String synonymText : synonymTexts) {
+          final int synonym = this.add(synonymText, texts, synonymsOfWords);
+          if (synonym != word) {
+            synonyms[numSynonyms++] = synonym;
+          }
+        }
+        synonymsOfWords.set(word, Arrays.stream(synonyms, 0, numSynonyms)
+            .distinct().toArray());
+      }
+    }
+    this.texts = texts.toArray(new String[0]);
+
+    this.frequencies = new float[this.texts.length];
+    final boolean[] known = new boolean[this.texts.length];
+    for (final Path frequencyFile : frequencyFiles) {
+      this.readFrequencies(frequencyFile, known);
+    }
+
+    this.offsets = new int[this.texts.length + 1];
+    for (int w = 0; w < this.texts.length; ++w) {
+      this.offsets[w + 1] = this.offsets[w] + synonymsOfWords.get(w).length;
+    }
+    this.synonyms = new int[this.offsets[this.texts.length]];
+    for (int w = 0; w < this.texts.length; ++w) {
+      final int[] ranked = Arrays.stream(synonymsOfWords.get(w)).boxed()
+          .sorted((first, second) -> Float.compare(
+              this.frequencies[second], this.frequencies[first]))
+          .mapToInt(Integer::intValue).toArray();
+      System.arraycopy(ranked, 0, this.synonyms, this.offsets[w],
+          ranked.length);
+    }
+    LOG.info("Indexed " + this.synonyms.length + " synonyms of "
+        + this.texts.length + " words from " + synonymsFile);
+  }
+
+  /**
+   * Gets the index of a synonyms file, building it if it was not built in
+   * this process before.
+   * @param synonymsFile The CSV file of synonyms
+   * @param frequencyFiles The files of word frequencies, in order of priority
+   * @return The index
+   * @throws IOException If a file could not be read
+   */
+  public static SynonymIndex open(
+      final Path synonymsFile, final List<Path> frequencyFiles)
+  throws IOException {
+    final List<Path> key = new ArrayList<Path>();
+    key.add(synonymsFile.toRealPath());
+    for (final Path frequencyFile : frequencyFiles) {
+      key.add(frequencyFile.toRealPath());
+    }
+    synchronized (INDEXES) {
+      SynonymIndex index = INDEXES.get(key);
+      if (index == null) {
+        index = new SynonymIndex(key.get(0), key.subList(1, key.size()));
+        INDEXES.put(key, index);
+      }
+      return index;
+    }
+  }
+
+  // -------------------------------------------------------------------------
+  // GETTERS
+  // -------------------------------------------------------------------------
+
+  /**
+   * Gets the id of a word, ignoring case.
+   * @param word The word
+   * @return The id or {@link WordTable#NO_ID} if the word is not in the index
+   */
+  public int indexOf(final CharSequence word) {
+    return this.words.indexOf(word);
+  }
+
+  /**
+   * Gets the text of a word.
+   * @param word The id of the word
+   * @return The text as in the synonyms file
+   */
+  public String getText(final int word) {
+    return this.texts[word];
+  }
+
+  /**
+   * Gets the relative frequency of a word.
+   * @param word The id of the word
+   * @return The frequency or 0 if it is unknown
+   */
+  public float getFrequency(final int word) {
+    return this.frequencies[word];
+  }
+
+  /**
+   * Gets the number of synonyms of a word.
+   * @param word The id of the word
+   * @return The number
+   */
+  public int getNumSynonyms(final int word) {
+    return this.offsets[word + 1] - this.offsets[word];
+  }
+
+  /**
+   * Gets a synonym of a word.
+   * @param word The id of the word
+   * @param rank The rank of the synonym, where synonyms are sorted by
+   * descending frequency
+   * @return The id of the synonym
+   */
+  public int getSynonym(final int word, final int rank) {
+    return this.synonyms[this.offsets[word] + rank];
+  }
+
+  // -------------------------------------------------------------------------
+  // HELPERS
+  // -------------------------------------------------------------------------
+
+  private int add(
+      final String text, final List<String> texts,
+      final List<int[]> synonymsOfWords) {
+    final int word = this.words.add(text);
+    if (word == texts.size()) {
+      texts.add(text);
+      synonymsOfWords.add(new int[0]);
+    }
+    return word;
+  }
+
+  private void readFrequencies(final Path frequencyFile, final boolean[] known)
+  throws IOException {
+    final float[] counts = new float[this.frequencies.length];
+    final boolean[] inFile = new boolean[this.frequencies.length];
+    float maxCount = 0;
+    try (final BufferedReader reader = Files.newBufferedReader(frequencyFile)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final int wordEnd = line.indexOf(';');
+        if (wordEnd < 0) {
+          continue;
+        }
+        int countEnd = line.indexOf(';', wordEnd + 1);
+        if (countEnd < 0) {
+          countEnd = line.length();
+        }
+        final float count;
+        try {
+          count = Float.parseFloat(line.substring(wordEnd + 1, countEnd));
+        } catch (final NumberFormatException e) {
+          LOG.fine("Skipping line without count: " + line);
+          continue;
+        }
+        maxCount = Math.max(maxCount, count);
+        final int word = this.words.indexOf(line.substring(0, wordEnd));
+        if (word != WordTable.NO_ID && !known[word]) {
+          counts[word] = count;
+          inFile[word] = true;
+        }
+      }
+    }
+    for (int w = 0; w < counts.length; ++w) {
+      if (inFile[w]) {
+        this.frequencies[w] = counts[w] / maxCount;
+        known[w] = true;
+      }
+    }
+  }
+
+  /**
+   * Parses a JSON array of strings.
+   * @param array The array
+   * @return The strings
+   */
+  private static List<String> parseArray(final String array) {
+    final List<String> strings = new ArrayList<String>();
+    final StringBuilder string = new StringBuilder();
+    boolean inString = false;
+    for (int c = 0; c < array.length(); ++c) {
+      final char character = array.charAt(c);
+      if (!inString) {
+        if (character == '"') {
+          inString = true;
+          string.setLength(0);
+        }
+      } else if (character == '"') {
+        inString = false;
+        strings.add(string.toString());
+      } else if (character == '\\' && c + 1 < array.length()) {
+        final char escaped = array.charAt(++c);
+        if (escaped == 'u' && c + 4 < array.length()) {
+          string.append((char) Integer.parseInt(
+              array.substring(c + 1, c + 5), 16));
+          c += 4;
+        } else {
+          string.append(escaped);
+        }
+      } else {
+        string.append(character);
+      }
+    }
+    return strings;
+  }
+
+}
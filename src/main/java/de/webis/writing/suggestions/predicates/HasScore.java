@@ -131,7 +131,8 @@ implements UnitInContextPredicate<Annotation, Unit> {
       final Annotation context,
       final List<? extends Unit> contextUnits, final int contextUnitsIndex) {
     final Unit unit = contextUnits.get(contextUnitsIndex);
-    final ScoredUnit scoredUnit = Scores.getUnitFor(unit);
+    final ScoredUnit scoredUnit = Scores.findUnitFor(unit);
+    if (scoredUnit == null) { return false; }
     final String scoreName = Objects.requireNonNull(this.getScoreName());
     final double scoreThreshold = this.getScoreThreshold();
     for (final Score score : FSArrays.getNonNull(scoredUnit.getScores())) {